@@ -0,0 +1,59 @@
+package com.example.photoshop.benchmarks;
+
+import com.example.photoshop.raster.ArgbRaster;
+import javafx.scene.image.WritableImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the bulk copies between JavaFX images and rasters that bracket every pipeline run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx12g"})
+public class RasterConversionBenchmark {
+
+    // 1, 12, 24 and 50 megapixels.
+    @Param({"1000x1000", "4000x3000", "6000x4000", "8660x5774"})
+    public String size;
+
+    @Param({"OPAQUE", "TRANSLUCENT"})
+    public String layout;
+
+    private ArgbRaster raster;
+    private WritableImage image;
+
+    @Setup
+    public void setup() {
+        raster = SyntheticImages.create(size, "TRANSLUCENT".equals(layout));
+        image = raster.toImage();
+    }
+
+    @Benchmark
+    public ArgbRaster fromImage(Throughput throughput) {
+        ArgbRaster result = ArgbRaster.fromImage(image);
+        throughput.megapixels += SyntheticImages.megapixels(result);
+        return result;
+    }
+
+    @Benchmark
+    public WritableImage toImage(Throughput throughput) {
+        WritableImage result = raster.toImage();
+        throughput.megapixels += SyntheticImages.megapixels(raster);
+        return result;
+    }
+}
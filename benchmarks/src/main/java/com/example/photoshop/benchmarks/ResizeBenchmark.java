@@ -0,0 +1,78 @@
+package com.example.photoshop.benchmarks;
+
+import com.example.photoshop.interploators.ImageResizer;
+import com.example.photoshop.interploators.Interpolator;
+import com.example.photoshop.interploators.InterpolatorFactory;
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.Simd;
+import com.example.photoshop.raster.TileScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the resize path used by Photoshop.processImage for every interpolator.
+ * Throughput is counted in output megapixels, since that is what the resize loop iterates over.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx12g", "--add-modules=jdk.incubator.vector"})
+public class ResizeBenchmark {
+
+    // 1, 12, 24 and 50 megapixels.
+    @Param({"1000x1000", "4000x3000", "6000x4000", "8660x5774"})
+    public String size;
+
+    @Param({"OPAQUE", "TRANSLUCENT"})
+    public String layout;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    @Param({"0.25", "0.5", "2.0"})
+    public double scale;
+
+    @Param({"Nearest Neighbor", "Bilinear"})
+    public String interpolator;
+
+    // Vector kernels against the scalar loops; see Simd.
+    @Param({"true", "false"})
+    public boolean simd;
+
+    private ArgbRaster source;
+    private Interpolator instance;
+
+    @Setup
+    public void setup() {
+        source = SyntheticImages.create(size, "TRANSLUCENT".equals(layout));
+        instance = InterpolatorFactory.createInterpolator(interpolator);
+        TileScheduler.setDefault(new TileScheduler(threads, 256, 256));
+        Simd.setEnabled(simd);
+    }
+
+    @TearDown
+    public void tearDown() {
+        TileScheduler.getDefault().close();
+    }
+
+    @Benchmark
+    public ArgbRaster resize(Throughput throughput) {
+        ArgbRaster result = ImageResizer.resize(source, scale, instance);
+        throughput.megapixels += SyntheticImages.megapixels(result);
+        return result;
+    }
+}
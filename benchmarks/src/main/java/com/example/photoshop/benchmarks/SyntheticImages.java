@@ -0,0 +1,51 @@
+package com.example.photoshop.benchmarks;
+
+import com.example.photoshop.raster.ArgbRaster;
+
+import java.util.Random;
+
+/**
+ * Builds deterministic synthetic rasters so benchmarks run headlessly and reproducibly.
+ */
+final class SyntheticImages {
+
+    private SyntheticImages() {
+    }
+
+    /**
+     * Creates a raster of smooth gradients overlaid with noise, so both flat regions and edges are present.
+     *
+     * @param size Dimensions formatted as "WIDTHxHEIGHT", for example "6000x4000".
+     * @param translucent Whether to vary the alpha channel instead of keeping every pixel opaque.
+     * @return The raster.
+     */
+    static ArgbRaster create(String size, boolean translucent) {
+        int separator = size.indexOf('x');
+        int width = Integer.parseInt(size.substring(0, separator));
+        int height = Integer.parseInt(size.substring(separator + 1));
+        ArgbRaster raster = new ArgbRaster(width, height);
+        int[] pixels = raster.pixels();
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(32);
+                int r = (x * 255 / Math.max(width - 1, 1) + noise) & 0xFF;
+                int g = (y * 255 / Math.max(height - 1, 1) + noise) & 0xFF;
+                int b = ((x + y) * 255 / Math.max(width + height - 2, 1)) & 0xFF;
+                int a = translucent ? 128 + ((x ^ y) & 0x7F) : 255;
+                pixels[y * width + x] = ArgbRaster.pack(a, r, g, b);
+            }
+        }
+        return raster;
+    }
+
+    /**
+     * Returns the number of megapixels in a raster.
+     *
+     * @param raster The raster.
+     * @return Pixel count divided by one million.
+     */
+    static double megapixels(ArgbRaster raster) {
+        return (double) raster.width() * raster.height() / 1_000_000;
+    }
+}
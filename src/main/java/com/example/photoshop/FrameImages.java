@@ -0,0 +1,60 @@
+package com.example.photoshop;
+
+import com.example.photoshop.raster.ArgbRaster;
+import javafx.scene.image.WritableImage;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Hands out images for rendered frames, reusing the image of an earlier frame of the same size, so that a drag
+ * writes every frame into the image already on screen through its pixel writer instead of allocating a new one.
+ * Images of the last few sizes are kept, since previews and full-resolution frames alternate. Only used on the
+ * FX thread.
+ */
+final class FrameImages {
+    // Number of frame sizes whose images are kept.
+    private static final int SIZES = 2;
+
+    // Most recently used first.
+    private final LinkedList<WritableImage> images = new LinkedList<>();
+
+    /**
+     * Returns an image of the given size, reusing the last one of that size. Its pixels are those of the frame
+     * it last showed.
+     *
+     * @param width Width in pixels; 0 is treated as 1.
+     * @param height Height in pixels; 0 is treated as 1.
+     * @return Image of the given size.
+     */
+    WritableImage obtain(int width, int height) {
+        int w = Math.max(width, 1);
+        int h = Math.max(height, 1);
+        for (Iterator<WritableImage> it = images.iterator(); it.hasNext(); ) {
+            WritableImage image = it.next();
+            if ((int) image.getWidth() == w && (int) image.getHeight() == h) {
+                it.remove();
+                images.addFirst(image);
+                return image;
+            }
+        }
+        WritableImage image = new WritableImage(w, h);
+        images.addFirst(image);
+        if (images.size() > SIZES) {
+            images.removeLast();
+        }
+        return image;
+    }
+
+    /**
+     * Copies a frame into an image of its size.
+     *
+     * @param frame Rendered frame.
+     * @return Image holding the frame.
+     */
+    WritableImage show(ArgbRaster frame) {
+        WritableImage image = obtain(frame.width(), frame.height());
+        frame.writeTo(image, 0, 0);
+        return image;
+    }
+}
@@ -1,31 +1,48 @@
 package com.example.photoshop;
 
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import javafx.stage.FileChooser;
+import com.example.photoshop.batch.ImageStore;
+import com.example.photoshop.batch.RasterImageIO;
+import com.example.photoshop.filter.AutoGammaFilter;
 import com.example.photoshop.filter.FilterFactory;
-import com.example.photoshop.filter.Filters;
-import com.example.photoshop.filter.GammaCorrectionFilter;
-import com.example.photoshop.interploators.Interpolator;
+import com.example.photoshop.filter.ImageStatistics;
+import com.example.photoshop.interploators.ImagePyramid;
 import com.example.photoshop.interploators.InterpolatorFactory;
-import java.io.FileInputStream;
+import com.example.photoshop.metrics.PipelineMetrics;
+import com.example.photoshop.metrics.StageMetrics;
+import com.example.photoshop.pipeline.EditGraph;
+import com.example.photoshop.pipeline.PipelineSpec;
+import com.example.photoshop.pipeline.RenderCache;
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.TileScheduler;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class Photoshop extends Application {
 
@@ -40,10 +57,44 @@ public class Photoshop extends Application {
     private double zoomLevel = 1.0; // Default zoom level
 
     private String currentFilter = "None";
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    // Coalesces edits into latest-wins renders, started at most once per photoshop.renderIntervalMs.
+    private final RenderScheduler renderScheduler = new RenderScheduler(Long.getLong("photoshop.renderIntervalMs", 16));
     private final Button resetButton = new Button("Reset Image");
-    private Future<?> lastTask; // To handle async image processing tasks
+    private final Button previousButton = new Button("Previous");
+    private final Button nextButton = new Button("Next");
+    private final Button exportButton = new Button("Export...");
+    private final Button autoGammaButton = new Button("Auto Gamma");
+    // Most pixels Auto Gamma measures; it reads the largest pyramid level within this budget.
+    private static final long STATISTICS_PIXELS = Long.getLong("photoshop.statisticsPixels", 1L << 20);
+    // Image opened at startup, unless a path is given as the first program argument.
+    private static final String DEFAULT_IMAGE = "src/main/java/com/example/photoshop/raytrace.jpg";
+    // Decodes, caches and prefetches the images of the open folder, and writes exports, all off the FX thread.
+    private final ImageStore imageStore = new ImageStore(Long.getLong("photoshop.imageCacheBytes", 256L << 20),
+            Integer.getInteger("photoshop.prefetchImages", 2), Integer.getInteger("photoshop.decodeThreads", 2));
+    private Path imagePath; // File of the open image
+    private Image originalImage; // The open image as shown before any edit, or null while the first one loads
+    private volatile ArgbRaster originalRaster; // Decoded pixels of the open image, reused by every render
     private ProgressIndicator progressIndicator;
+    // Delay after the last edit before the full-resolution render replaces the preview.
+    private final PauseTransition refineTimer = new PauseTransition(Duration.millis(250));
+    // Mipmap pyramid of the loaded image and the image it was built from; only used on the render thread.
+    private ImagePyramid pyramid;
+    private ArgbRaster pyramidSource;
+    // Edit graph of the loaded image, so a final render only recomputes the stages an edit changed; only used
+    // on the render thread.
+    private EditGraph editGraph;
+    private ArgbRaster editGraphSource;
+    // Rendered results and filter intermediates, bounded by the photoshop.cacheBytes system property.
+    private final RenderCache renderCache = new RenderCache(Long.getLong("photoshop.cacheBytes", 512L << 20));
+    // Renders just the on-screen tiles, plus a photoshop.prefetchMargin band, of outputs larger than the window.
+    private final ViewportRenderer viewportRenderer = new ViewportRenderer(imageView, renderCache,
+            Integer.getInteger("photoshop.prefetchMargin", 256));
+    private boolean viewportMode; // Whether the current output is larger than the window and rendered by viewport
+    // Per-stage pipeline metrics drawn over the image, shown from the start when photoshop.metricsOverlay is true.
+    private final Label metricsOverlay = new Label();
+    private final CheckBox metricsCheckBox = new CheckBox("Show Metrics");
+    // Images rendered frames are written into, reused while the frame size stays the same.
+    private final FrameImages frames = new FrameImages();
 
     public static void main(String[] args) {
         launch(args);
@@ -56,11 +107,14 @@ public class Photoshop extends Application {
     }
 
     // Resets the image view to its original state
-    private void resetImage(Image originalImage) {
+    private void resetImage() {
         // Cancel any ongoing image processing task
+        refineTimer.stop();
         cancelPreviousTask();
         // Reset image transformations and settings
         imageView.setImage(originalImage);
+        imageView.setFitWidth(0);
+        imageView.setFitHeight(0);
         imageView.setScaleX(1.0);
         imageView.setScaleY(1.0);
         imageView.setTranslateX(0);
@@ -79,43 +133,123 @@ public class Photoshop extends Application {
      */
     @Override
     public void start(Stage primaryStage) throws Exception {
-        Image originalImage = loadImage();
         // Configure the reset button to reset the image view
-        resetButton.setOnAction(event -> resetImage(originalImage));
-        // Set up the initial image and UI components
-        imageView.setImage(originalImage);
-        setupComboBoxes(originalImage);
+        resetButton.setOnAction(event -> resetImage());
+        previousButton.setOnAction(event -> openSibling(-1));
+        nextButton.setOnAction(event -> openSibling(1));
+        exportButton.setOnAction(event -> exportImage(primaryStage));
+        autoGammaButton.setOnAction(event -> autoGamma());
+        // Set up the UI components; the image appears once it is decoded.
+        setupComboBoxes();
         setupImageView();
-        VBox root = setupRoot(originalImage);
+        VBox root = setupRoot();
         Scene scene = new Scene(root, 1300, 1300);
         // Load and apply CSS stylesheet
         scene.getStylesheets().add(Objects.requireNonNull(getClass().getResource("/style.css")).toExternalForm());
         primaryStage.setScene(scene);
         primaryStage.show();
+        List<String> args = getParameters().getRaw();
+        openImage(Path.of(args.isEmpty() ? DEFAULT_IMAGE : args.get(0)));
+    }
+
+    // Decodes an image on the store's decode pool and shows it once ready, then prefetches the folder's next images.
+    private void openImage(Path file) {
+        updateStatusLabel("Loading " + file.getFileName() + "...", true);
+        CompletableFuture<ArgbRaster> raster = imageStore.load(file);
+        // The displayed image is converted on the decode pool as well, so the FX thread only swaps it in.
+        raster.thenApply(ArgbRaster::toImage).whenComplete((image, failure) ->
+                Platform.runLater(() -> {
+                    if (failure != null) {
+                        updateStatusLabel("Cannot open " + file.getFileName() + ": " + causeMessage(failure), false);
+                        return;
+                    }
+                    imagePath = file;
+                    originalRaster = raster.join();
+                    // Renders of the previous image and its pyramid will not be asked for again.
+                    renderCache.clear();
+                    originalImage = image;
+                    resetImage();
+                    updateStatusLabel("Opened " + file.getFileName(), false);
+                    // Build the preview pyramid in the background so the first edit can use it.
+                    ArgbRaster source = originalRaster;
+                    renderScheduler.submit(token -> getPyramid(source), false);
+                    imageStore.prefetch(file);
+                }));
+    }
+
+    // Opens the image before or after the open one in its folder, in name order.
+    private void openSibling(int step) {
+        if (imagePath == null) {
+            return;
+        }
+        try {
+            List<Path> images = imageStore.folderImages(imagePath);
+            int index = images.indexOf(imagePath.toAbsolutePath().normalize()) + step;
+            if (index >= 0 && index < images.size()) {
+                openImage(images.get(index));
+            }
+        } catch (IOException e) {
+            updateStatusLabel("Cannot list " + imagePath.getParent() + ": " + e.getMessage(), false);
+        }
+    }
+
+    // Renders the current edit at full resolution and writes it on the store's encoding thread.
+    private void exportImage(Stage owner) {
+        ArgbRaster source = originalRaster;
+        if (source == null) {
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Image");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("PNG", "*.png"),
+                new FileChooser.ExtensionFilter("JPEG", "*.jpg"),
+                new FileChooser.ExtensionFilter("TIFF", "*.tif"),
+                new FileChooser.ExtensionFilter("Raw raster (fast, uncompressed)", "*." + RasterImageIO.RASTER_FORMAT));
+        File chosen = chooser.showSaveDialog(owner);
+        if (chosen == null) {
+            return;
+        }
+        Path file = withExtension(chosen.toPath(), chooser.getSelectedExtensionFilter());
+        PipelineSpec spec = new PipelineSpec(gammaSlider.getValue(), currentFilter, currentInterpolationMethod,
+                resizeSlider.getValue());
+        updateStatusLabel("Exporting " + file.getFileName() + "...", true);
+        imageStore.save(() -> renderCache.render(source, spec), file).whenComplete((written, failure) ->
+                updateStatusLabel(failure == null ? "Exported " + file.getFileName()
+                        : "Export failed: " + causeMessage(failure), false));
     }
 
-    // Loads the initial image to be displayed
-    private Image loadImage() throws Exception {
-        return new Image(new FileInputStream("src/main/java/com/example/photoshop/raytrace.jpg"));
+    // Returns the message of the exception that failed an asynchronous task.
+    private static String causeMessage(Throwable failure) {
+        return (failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure).getMessage();
+    }
+
+    // Appends the selected filter's extension to a file name that has none.
+    private static Path withExtension(Path file, FileChooser.ExtensionFilter filter) {
+        String name = file.getFileName().toString();
+        if (name.lastIndexOf('.') > 0 || filter == null) {
+            return file;
+        }
+        return file.resolveSibling(name + filter.getExtensions().get(0).substring(1));
     }
 
     // Sets up the combo boxes for selecting interpolation and filters
-    private void setupComboBoxes(Image originalImage) {
+    private void setupComboBoxes() {
         // Populate and set default values for interpolation methods
         interpolationComboBox.getItems().addAll(InterpolatorFactory.getInterpolatorNames());
         interpolationComboBox.setValue("Bilinear");
         interpolationComboBox.valueProperty().addListener((observable, oldValue, newValue) -> {
             currentInterpolationMethod = newValue;
-            updateImageAsync(originalImage);
+            updateImageAsync();
         });
 
         // Populate and set default values for image filters
-        filterComboBox.getItems().addAll("None");
-        filterComboBox.setValue("None");
+        filterComboBox.getItems().addAll(PipelineSpec.NO_FILTER);
+        filterComboBox.setValue(PipelineSpec.NO_FILTER);
         filterComboBox.getItems().addAll(FilterFactory.getFilterNames());
         filterComboBox.valueProperty().addListener((observable, oldValue, newValue) -> {
             currentFilter = newValue;
-            updateImageAsync(originalImage);
+            updateImageAsync();
         });
     }
     // Sets up mouse event handlers for the ImageView.
@@ -142,6 +276,11 @@ public class Photoshop extends Application {
         // Applies the new translation to the image, clamped within bounds.
         imageView.setTranslateX(clampTranslation(imageView.getTranslateX() + offsetX, imageView.getBoundsInParent().getWidth(), imageView.getFitWidth()));
         imageView.setTranslateY(clampTranslation(imageView.getTranslateY() + offsetY, imageView.getBoundsInParent().getHeight(), imageView.getFitHeight()));
+
+        // Fill in the tiles the pan exposed once the full-resolution view is in use.
+        if (viewportMode && refineTimer.getStatus() != Animation.Status.RUNNING) {
+            submitViewportRender();
+        }
     }
 
     // Clamps the translation of the image to keep it within the ImageView bounds.
@@ -157,13 +296,8 @@ public class Photoshop extends Application {
         zoomLevel = clampScale(zoomLevel);
 
         double newResizeValue = zoomLevel;
+        // The slider listener schedules the render from the already decoded image.
         resizeSlider.setValue(newResizeValue);
-
-        try {
-            updateImageAsync(loadImage());
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
     }
 
     // Clamps the scale of the image to predefined min and max values.
@@ -174,7 +308,7 @@ public class Photoshop extends Application {
     }
 
     // Sets up the root VBox with all UI controls and the ImageView.
-    private VBox setupRoot(Image originalImage) {
+    private VBox setupRoot() {
         HBox dropdownMenus = new HBox(10);
         dropdownMenus.getChildren().addAll(
                 new Label("Interpolation Method"), interpolationComboBox,
@@ -183,8 +317,8 @@ public class Photoshop extends Application {
 
         Label gammaValueLabel = new Label("Gamma: 1.00");
         Label resizeValueLabel = new Label("Resize: 1.00x");
-        setupSliderWithDebounce(gammaSlider, gammaValueLabel, originalImage);
-        setupSliderWithDebounce(resizeSlider, resizeValueLabel, originalImage);
+        setupSliderWithDebounce(gammaSlider, gammaValueLabel);
+        setupSliderWithDebounce(resizeSlider, resizeValueLabel);
 
         HBox gammaControls = new HBox(5);
         gammaControls.getChildren().addAll(new Label("Gamma Correction"), gammaSlider, gammaValueLabel);
@@ -201,7 +335,8 @@ public class Photoshop extends Application {
         statusContainer.getChildren().addAll(statusLabel, progressIndicator);
 
         HBox combinedControls = new HBox(10);
-        combinedControls.getChildren().addAll(dropdownMenus, resetButton);
+        combinedControls.getChildren().addAll(dropdownMenus, resetButton, autoGammaButton, previousButton,
+                nextButton, exportButton, metricsCheckBox);
         combinedControls.setPadding(new Insets(10));
 
         VBox root = new VBox(10);
@@ -212,13 +347,39 @@ public class Photoshop extends Application {
                 resizeControls,
                 combinedControls,
                 statusContainer,
-                imageView
+                setupMetricsOverlay()
         );
         return root;
     }
 
+    // Stacks the metrics overlay over the top-left corner of the ImageView, toggled by the metrics check box.
+    private StackPane setupMetricsOverlay() {
+        metricsOverlay.getStyleClass().add("metrics-overlay");
+        metricsOverlay.setMouseTransparent(true);
+        metricsOverlay.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+        metricsOverlay.visibleProperty().bind(metricsCheckBox.selectedProperty());
+        metricsCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> refreshMetricsOverlay());
+        metricsCheckBox.setSelected(Boolean.getBoolean("photoshop.metricsOverlay"));
+
+        StackPane imagePane = new StackPane(imageView, metricsOverlay);
+        imagePane.setAlignment(Pos.TOP_LEFT);
+        return imagePane;
+    }
+
+    // Shows the current per-stage metrics in the overlay, if it is visible. Called on the FX thread.
+    private void refreshMetricsOverlay() {
+        if (!metricsOverlay.isVisible()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (StageMetrics stage : PipelineMetrics.getDefault().getStages()) {
+            text.append(stage).append('\n');
+        }
+        metricsOverlay.setText(text.length() == 0 ? "No stages recorded yet" : text.toString().trim());
+    }
+
     // Sets up a slider with a listener to update the label and image based on the slider's value.
-    private void setupSliderWithDebounce(Slider slider, Label valueLabel, Image originalImage) {
+    private void setupSliderWithDebounce(Slider slider, Label valueLabel) {
         slider.setShowTickLabels(true);
         slider.setShowTickMarks(true);
         // Add a listener to respond to slider value changes.
@@ -229,7 +390,7 @@ public class Photoshop extends Application {
             // Update the value label to reflect the current state.
             valueLabel.setText(String.format("%s: %.4f (%s)", label, newValue.doubleValue(), effect));
             // Initiate an asynchronous update of the image.
-            updateImageAsync(originalImage);
+            updateImageAsync();
         });
     }
 
@@ -238,80 +399,175 @@ public class Photoshop extends Application {
         Platform.runLater(() -> {
             statusLabel.setText(text);
             progressIndicator.setVisible(isProcessing);
+            if (!isProcessing) {
+                refreshMetricsOverlay();
+            }
         });
     }
 
-    // Cancels the previous task if it's still running.
-    private void cancelPreviousTask() {
-        // Check if the last task is still active and cancel it if necessary.
-        if (lastTask != null && !lastTask.isDone()) {
-            lastTask.cancel(true);
+    // Sets the gamma slider from the mean luminance of the open image, measured on a pyramid level on the render
+    // thread. The measurement replaces any waiting render, so one is started even if the slider does not move.
+    private void autoGamma() {
+        ArgbRaster source = originalRaster;
+        if (source == null) {
+            return;
         }
+        renderScheduler.submit(token -> {
+            double gamma = AutoGammaFilter.estimateGamma(ImageStatistics.of(getPyramid(source), STATISTICS_PIXELS));
+            Platform.runLater(() -> {
+                if (source != originalRaster) {
+                    return; // Another image was opened meanwhile.
+                }
+                double clamped = clamp(gamma, gammaSlider.getMin(), gammaSlider.getMax());
+                if (clamped == gammaSlider.getValue()) {
+                    updateImageAsync();
+                } else {
+                    gammaSlider.setValue(clamped);
+                }
+            });
+        }, false);
     }
 
-    // Updates the image asynchronously using the current slider values.
-    private void updateImageAsync(Image originalImage) {
-        // Cancel any ongoing task to avoid conflicts.
-        cancelPreviousTask();
-        double currentScale = resizeSlider.getValue();
-        double currentGamma = gammaSlider.getValue();
-
-        // Update the status indicating the start of processing.
-        updateStatusLabel("Starting processing...", true);
+    // Drops the waiting render and stops the running one at its next tile boundary.
+    private void cancelPreviousTask() {
+        renderScheduler.cancel();
+    }
 
-        // Submit a new task for image processing.
-        lastTask = executorService.submit(() -> {
-            updateStatusLabel("Processing image...", true);
-            // Process the image with current parameters.
-            Image processedImage = processImage(originalImage, currentScale, currentGamma);
-            Platform.runLater(() -> {
-                imageView.setImage(processedImage);
-                updateStatusLabel("Processing complete", false);
-            });
-        });
+    // Updates the image for the current slider values: a quick preview from the pyramid now when the
+    // output is larger than the screen, and the full-resolution render once the input has settled.
+    private void updateImageAsync() {
+        if (originalImage == null) {
+            return; // Still loading; the edit applies once the image is shown.
+        }
+        double scale = resizeSlider.getValue();
+        double outputWidth = originalImage.getWidth() * scale;
+        double outputHeight = originalImage.getHeight() * scale;
+        double viewport = Math.max(imageView.getScene() == null ? 0 : imageView.getScene().getWidth(),
+                imageView.getScene() == null ? 0 : imageView.getScene().getHeight());
+        double previewFraction = viewport > 0 ? viewport / Math.max(outputWidth, outputHeight) : 1.0;
+
+        viewportMode = previewFraction < 1.0;
+        if (viewportMode) {
+            submitRender(previewFraction);
+            refineTimer.setOnFinished(event -> submitViewportRender());
+            refineTimer.playFromStart();
+        } else {
+            refineTimer.stop();
+            submitRender(1.0);
+        }
     }
 
-    // Processes the image by applying gamma correction and resizing.
-    private Image processImage(Image originalImage, double scale, double gamma) {        // Apply gamma correction filter.
-        Image filteredImage = applyFilters(originalImage, gamma);
-        // Calculate new dimensions for resizing.
-        int newWidth = (int) (filteredImage.getWidth() * scale);
-        int newHeight = (int) (filteredImage.getHeight() * scale);
-
-        // Prepare for writing the resized image.
-        WritableImage resizedImage = new WritableImage(newWidth, newHeight);
-        PixelReader reader = filteredImage.getPixelReader();
-        PixelWriter writer = resizedImage.getPixelWriter();
-
-        // Create an interpolator for resizing.
-        Interpolator interpolator = InterpolatorFactory.createInterpolator(currentInterpolationMethod);
-
-        // Resize the image using the interpolator.
-        for (int y = 0; y < newHeight; y++) {
-            for (int x = 0; x < newWidth; x++) {
-                double scaleX = (x / scale);
-                double scaleY = (y / scale);
-
-                Color color = interpolator.interpolate(reader, scaleX, scaleY, (int) filteredImage.getWidth(), (int) filteredImage.getHeight());
-                writer.setColor(x, y, color);
+    // Renders the visible part of the current edit at full resolution, skipping tiles already on screen.
+    private void submitViewportRender() {
+        ArgbRaster source = originalRaster;
+        PipelineSpec spec = new PipelineSpec(gammaSlider.getValue(), currentFilter, currentInterpolationMethod,
+                resizeSlider.getValue());
+        Rectangle2D visible = visibleRegion();
+        updateStatusLabel("Rendering visible region...", true);
+
+        renderScheduler.submit(token -> {
+            ImagePyramid levels = getPyramid(source);
+            int tiles = TileScheduler.withCancellation(token,
+                    () -> viewportRenderer.render(levels.level(0), spec, visible));
+            if (!token.isCancelled()) {
+                updateStatusLabel(String.format("Visible region complete (%d new tiles, cache: %d hits, %d misses)",
+                        tiles, renderCache.getHits(), renderCache.getMisses()), false);
             }
-        }
+        }, true);
+    }
 
-        return resizedImage;
+    // Returns the part of the image view inside the window, in the view's local coordinates, which are output
+    // pixels both for a full-resolution image and for a preview stretched to the output size.
+    private Rectangle2D visibleRegion() {
+        Scene scene = imageView.getScene();
+        Bounds local = imageView.sceneToLocal(new BoundingBox(0, 0, scene.getWidth(), scene.getHeight()));
+        return new Rectangle2D(local.getMinX(), local.getMinY(), local.getWidth(), local.getHeight());
     }
 
-    // Applies gamma correction and other filters to the image.
-    private Image applyFilters(Image image, double currentGamma) {
-        if (currentGamma != 1.0) {
-            image = new GammaCorrectionFilter(currentGamma).applyFilter(image);
+    // Renders the current edit at a fraction of the output resolution; a fraction of 1 is the final render.
+    // Previews are left to finish when superseded so a drag keeps updating; a final render is preempted.
+    private void submitRender(double fraction) {
+        ArgbRaster source = originalRaster;
+        boolean preview = fraction < 1.0;
+        PipelineSpec spec = new PipelineSpec(gammaSlider.getValue(), currentFilter, currentInterpolationMethod,
+                resizeSlider.getValue());
+
+        // Update the status indicating the start of processing.
+        updateStatusLabel(preview ? "Rendering preview..." : "Starting processing...", true);
+
+        // Request a render; it replaces any render still waiting to start.
+        renderScheduler.submit(token -> {
+            ProgressiveImageSink sink = new ProgressiveImageSink(imageView, token, frames);
+            ImagePyramid levels = getPyramid(source);
+            int outputWidth = (int) (levels.level(0).width() * spec.getScale());
+            int outputHeight = (int) (levels.level(0).height() * spec.getScale());
+            if (preview) {
+                ArgbRaster processed = TileScheduler.withCancellation(token,
+                        () -> renderPreview(levels, spec, fraction));
+                Platform.runLater(() -> {
+                    if (!token.isCancelled()) {
+                        // Stretch the preview over the area the final image will cover.
+                        imageView.setFitWidth(outputWidth);
+                        imageView.setFitHeight(outputHeight);
+                        imageView.setImage(frames.show(processed));
+                        updateStatusLabel("Preview ready, refining...", true);
+                    }
+                });
+            } else {
+                updateStatusLabel("Processing image...", true);
+                // An edit rendered before, such as one toggled back to, is taken from the cache. Otherwise the
+                // edit graph recomputes the stages the edit changed, showing output tiles as they complete.
+                ArgbRaster image = levels.level(0);
+                ArgbRaster cached = renderCache.getResult(image, spec);
+                EditGraph graph = getEditGraph(image);
+                ArgbRaster processed = cached != null ? cached : TileScheduler.withCancellation(token, () -> {
+                    graph.setSpec(spec);
+                    return graph.render(sink);
+                });
+                if (cached == null) {
+                    // The app makes no local edits, so later renders replace this output rather than update it.
+                    renderCache.putResult(image, spec, processed);
+                }
+                String status = cached != null ? "Processing complete (cached)"
+                        : String.format("Processing complete (%d of %d stages recomputed)",
+                                graph.getRecomputedNodes(), graph.getNodeCount());
+                Platform.runLater(() -> {
+                    if (!token.isCancelled()) {
+                        imageView.setFitWidth(0);
+                        imageView.setFitHeight(0);
+                        imageView.setImage(sink.finish(processed));
+                        updateStatusLabel(status, false);
+                    }
+                });
+            }
+        }, !preview);
+    }
+
+    // Returns the pyramid of the given image, building it on first use. Only called on the render thread.
+    private ImagePyramid getPyramid(ArgbRaster image) {
+        if (pyramidSource != image) {
+            pyramid = ImagePyramid.build(image);
+            pyramidSource = image;
         }
+        return pyramid;
+    }
 
-        // Apply additional filters if selected.
-        if (!"None".equals(currentFilter)) {
-            Filters filter = FilterFactory.createFilter(currentFilter, currentGamma);
-            image = filter.applyFilter(image);
+    // Returns the edit graph of the given image, creating it on first use. Only called on the render thread.
+    private EditGraph getEditGraph(ArgbRaster image) {
+        if (editGraphSource != image) {
+            editGraph = new EditGraph(image);
+            editGraphSource = image;
         }
-        return image;
+        return editGraph;
+    }
+
+    // Runs the edit on the smallest pyramid level covering the requested fraction of the output resolution.
+    private ArgbRaster renderPreview(ImagePyramid levels, PipelineSpec spec, double fraction) {
+        ArgbRaster level = levels.level(levels.levelFor(fraction));
+        double levelScale = levels.level(0).width() * spec.getScale() * fraction / level.width();
+        PipelineSpec previewSpec = new PipelineSpec(spec.getGamma(), spec.getFilterName(),
+                spec.getInterpolatorName(), levelScale);
+        return renderCache.render(level, previewSpec);
     }
 
     /**
@@ -321,7 +577,9 @@ public class Photoshop extends Application {
      */
     @Override
     public void stop() throws Exception {
-        executorService.shutdown();
+        renderScheduler.close();
+        imageStore.close();
+        TileScheduler.getDefault().close();
         super.stop();
     }
 }
\ No newline at end of file
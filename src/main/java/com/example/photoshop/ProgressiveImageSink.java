@@ -0,0 +1,86 @@
+package com.example.photoshop;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.CancellationToken;
+import com.example.photoshop.raster.TileSink;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies completed output tiles into an image shown by an ImageView, so a render fills in on screen
+ * tile by tile instead of appearing only when the whole frame is done.
+ * Tiles arriving from worker threads are queued and copied in batches on the FX thread.
+ */
+class ProgressiveImageSink implements TileSink {
+    private final ImageView imageView;
+    private final CancellationToken token;
+    private final FrameImages frames;
+    // Completed tiles waiting to be copied, as {x0, y0, x1, y1}. Guarded by this.
+    private final List<int[]> pendingTiles = new ArrayList<>();
+    private ArgbRaster pendingRaster;
+    private boolean drainScheduled;
+    // Only touched on the FX thread.
+    private WritableImage image;
+    private ArgbRaster imageRaster;
+
+    ProgressiveImageSink(ImageView imageView, CancellationToken token, FrameImages frames) {
+        this.imageView = imageView;
+        this.token = token;
+        this.frames = frames;
+    }
+
+    @Override
+    public synchronized void tileCompleted(ArgbRaster raster, int x0, int y0, int x1, int y1) {
+        pendingRaster = raster;
+        pendingTiles.add(new int[]{x0, y0, x1, y1});
+        if (!drainScheduled) {
+            drainScheduled = true;
+            Platform.runLater(this::drain);
+        }
+    }
+
+    /**
+     * Returns the image to show for a finished render, copying any tiles not shown yet.
+     * Must be called on the FX thread.
+     *
+     * @param result The finished raster.
+     * @return The progressively filled image if it holds this raster, otherwise a reused image the raster is
+     * copied into.
+     */
+    Image finish(ArgbRaster result) {
+        drain();
+        return imageRaster == result ? image : frames.show(result);
+    }
+
+    // Copies all queued tiles into the displayed image. Runs on the FX thread.
+    private void drain() {
+        List<int[]> tiles;
+        ArgbRaster raster;
+        synchronized (this) {
+            tiles = new ArrayList<>(pendingTiles);
+            pendingTiles.clear();
+            raster = pendingRaster;
+            drainScheduled = false;
+        }
+        if (token.isCancelled() || tiles.isEmpty()) {
+            return;
+        }
+        // The first tile of a render switches the view to an image of the output size, which still shows the
+        // previous frame of that size until the tiles cover it.
+        if (imageRaster != raster) {
+            image = frames.obtain(raster.width(), raster.height());
+            imageRaster = raster;
+            imageView.setImage(image);
+        }
+        for (int[] tile : tiles) {
+            image.getPixelWriter().setPixels(tile[0], tile[1], tile[2] - tile[0], tile[3] - tile[1],
+                    PixelFormat.getIntArgbInstance(), raster.pixels(), raster.rowOffset(tile[1]) + tile[0], raster.stride());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.photoshop;
+
+import com.example.photoshop.metrics.PipelineMetrics;
+import com.example.photoshop.raster.CancellationToken;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces bursts of render requests into latest-wins jobs on a single worker thread.
+ * <p>
+ * At most one job runs and at most one waits. A new request replaces the waiting job, so a slider drag
+ * that fires hundreds of changes only ever renders the most recent values. Consecutive jobs start at
+ * least a minimum interval apart, and a running job marked preemptible is cancelled through its token
+ * as soon as a newer request arrives, while other jobs are left to finish so drags still show feedback.
+ * The time each job waits before it starts is recorded in {@link PipelineMetrics} as {@value #QUEUE_STAGE}.
+ */
+final class RenderScheduler implements AutoCloseable {
+    // Stage name under which the waiting time of jobs is recorded.
+    static final String QUEUE_STAGE = "Render queue";
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "render-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long minIntervalNanos;
+
+    // Scheduling state, guarded by this.
+    private Job pending;
+    private Job running;
+    private boolean dispatchScheduled;
+    private long lastStartNanos;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param minIntervalMillis Minimum time between the starts of two jobs. Must not be negative.
+     * @throws IllegalArgumentException if the interval is negative.
+     */
+    RenderScheduler(long minIntervalMillis) {
+        if (minIntervalMillis < 0) {
+            throw new IllegalArgumentException("Interval must not be negative");
+        }
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMillis);
+        this.lastStartNanos = System.nanoTime() - minIntervalNanos;
+    }
+
+    /**
+     * Requests a job, replacing any job still waiting to start.
+     *
+     * @param work Work to run on the worker thread; it should stop early once the given token is cancelled.
+     * @param preemptible Whether a newer request should cancel this job while it runs.
+     */
+    synchronized void submit(Consumer<CancellationToken> work, boolean preemptible) {
+        pending = new Job(work, preemptible);
+        if (running != null && running.preemptible) {
+            running.token.cancel();
+        }
+        scheduleDispatch();
+    }
+
+    /**
+     * Drops the waiting job and cancels the running one.
+     */
+    synchronized void cancel() {
+        pending = null;
+        if (running != null) {
+            running.token.cancel();
+        }
+    }
+
+    /**
+     * Stops the worker thread. Waiting jobs are dropped and the running job is cancelled.
+     */
+    @Override
+    public void close() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    // Arranges for the waiting job to start once nothing runs and the interval has passed. Caller holds the lock.
+    private void scheduleDispatch() {
+        if (running != null || dispatchScheduled || pending == null || worker.isShutdown()) {
+            return;
+        }
+        long delay = Math.max(0, lastStartNanos + minIntervalNanos - System.nanoTime());
+        dispatchScheduled = true;
+        worker.schedule(this::dispatch, delay, TimeUnit.NANOSECONDS);
+    }
+
+    // Runs the latest waiting job on the worker thread, then schedules the next one if any arrived meanwhile.
+    private void dispatch() {
+        Job job;
+        synchronized (this) {
+            dispatchScheduled = false;
+            job = pending;
+            pending = null;
+            if (job == null) {
+                return;
+            }
+            running = job;
+            lastStartNanos = System.nanoTime();
+        }
+        PipelineMetrics.getDefault().recordQueueWait(QUEUE_STAGE, lastStartNanos - job.submittedNanos);
+        try {
+            job.work.accept(job.token);
+        } catch (CancellationException e) {
+            // Superseded by a newer request, which reports its own result.
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                running = null;
+                scheduleDispatch();
+            }
+        }
+    }
+
+    // A requested job with its own cancellation token.
+    private static final class Job {
+        final Consumer<CancellationToken> work;
+        final boolean preemptible;
+        final CancellationToken token = new CancellationToken();
+        final long submittedNanos = System.nanoTime();
+
+        Job(Consumer<CancellationToken> work, boolean preemptible) {
+            this.work = work;
+            this.preemptible = preemptible;
+        }
+    }
+}
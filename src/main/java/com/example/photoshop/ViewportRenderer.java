@@ -0,0 +1,109 @@
+package com.example.photoshop;
+
+import com.example.photoshop.pipeline.PipelineSpec;
+import com.example.photoshop.pipeline.RenderCache;
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.TileScheduler;
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders only the part of an edit's output that is on screen, plus a prefetch margin around it.
+ * <p>
+ * The output is divided into the default scheduler's tile grid. Tiles intersecting the expanded viewport
+ * are rendered through the {@link RenderCache} and copied into an output-sized image; tiles already in the
+ * image are skipped, so panning only renders the tiles it newly exposes. Tiles never rendered stay
+ * transparent. A different edit or source starts a new image.
+ */
+class ViewportRenderer {
+    private final ImageView imageView;
+    private final RenderCache renderCache;
+    private final int margin;
+    // The edit shown by the current image and the tiles it already holds. Only replaced on the render thread.
+    private ArgbRaster imageSource;
+    private PipelineSpec imageSpec;
+    private volatile WritableImage image;
+    private Set<Integer> drawnTiles = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a renderer.
+     *
+     * @param imageView View that shows the rendered image.
+     * @param renderCache Cache the tiles are rendered through.
+     * @param margin Width in output pixels of the band around the viewport that is rendered ahead of panning.
+     */
+    ViewportRenderer(ImageView imageView, RenderCache renderCache, int margin) {
+        this.imageView = imageView;
+        this.renderCache = renderCache;
+        this.margin = margin;
+    }
+
+    /**
+     * Renders the missing tiles of the visible region and its margin and shows them as they complete.
+     * Must be called on the render thread, with the job's cancellation token bound.
+     *
+     * @param source Raster the edit applies to.
+     * @param spec Edit to render.
+     * @param visible Visible region in output pixels.
+     * @return Number of tiles rendered.
+     */
+    int render(ArgbRaster source, PipelineSpec spec, Rectangle2D visible) {
+        PipelineSpec normalized = spec.normalized();
+        int outputWidth = (int) (source.width() * normalized.getScale());
+        int outputHeight = (int) (source.height() * normalized.getScale());
+        if (source != imageSource || !normalized.equals(imageSpec)) {
+            imageSource = source;
+            imageSpec = normalized;
+            image = new WritableImage(Math.max(outputWidth, 1), Math.max(outputHeight, 1));
+            drawnTiles = ConcurrentHashMap.newKeySet();
+        }
+        WritableImage target = image;
+        Set<Integer> drawn = drawnTiles;
+
+        int left = (int) Math.max(visible.getMinX() - margin, 0);
+        int top = (int) Math.max(visible.getMinY() - margin, 0);
+        int right = (int) Math.min(Math.ceil(visible.getMaxX()) + margin, outputWidth);
+        int bottom = (int) Math.min(Math.ceil(visible.getMaxY()) + margin, outputHeight);
+        if (right <= left || bottom <= top) {
+            return 0;
+        }
+
+        TileScheduler scheduler = TileScheduler.getDefault();
+        int tileWidth = scheduler.tileWidth();
+        int tileHeight = scheduler.tileHeight();
+        int columns = (outputWidth + tileWidth - 1) / tileWidth;
+        TileScheduler.TileFunction<Integer> renderTile = (x0, y0, x1, y1) -> {
+            int tile = (y0 / tileHeight) * columns + x0 / tileWidth;
+            if (x1 <= left || x0 >= right || y1 <= top || y0 >= bottom || drawn.contains(tile)) {
+                return 0;
+            }
+            ArgbRaster pixels = renderCache.renderRegion(source, normalized, x0, y0, x1, y1);
+            drawn.add(tile);
+            Platform.runLater(() -> show(target, pixels, x0, y0));
+            return 1;
+        };
+
+        // The top-left tile runs alone first, so the filter intermediate it caches is shared by the others.
+        int firstX = left / tileWidth * tileWidth;
+        int firstY = top / tileHeight * tileHeight;
+        int rendered = renderTile.process(firstX, firstY, Math.min(firstX + tileWidth, outputWidth),
+                Math.min(firstY + tileHeight, outputHeight));
+        Integer others = scheduler.reduceTiles(outputWidth, outputHeight, renderTile, Integer::sum);
+        return rendered + (others == null ? 0 : others);
+    }
+
+    // Copies a rendered tile into the image and makes sure the view shows the image at full size. Runs on the FX thread.
+    private void show(WritableImage target, ArgbRaster pixels, int x, int y) {
+        pixels.writeTo(target, x, y);
+        if (imageView.getImage() != target && target == image) {
+            imageView.setFitWidth(0);
+            imageView.setFitHeight(0);
+            imageView.setImage(target);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.photoshop.batch;
+
+import com.example.photoshop.metrics.PipelineMetrics;
+import com.example.photoshop.metrics.StageMetrics;
+import com.example.photoshop.metrics.StageTimer;
+import com.example.photoshop.pipeline.PipelineSpec;
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.StripSource;
+import com.example.photoshop.raster.TileScheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Headless entry point that runs the edit pipeline over every image in a directory.
+ * <p>
+ * Each file moves through three stages on separate thread pools: decode, process and encode, so
+ * reading one file overlaps with processing and writing others. A semaphore caps the number of
+ * files in flight; the directory listing blocks until an earlier file finishes encoding, so memory
+ * stays flat however many files the batch contains.
+ * <p>
+ * With {@code --strip-rows N}, images are instead streamed through the pipeline N rows at a time, decoding,
+ * processing and encoding each strip in turn on a process thread. Memory then grows with the image width
+ * rather than its area, so images larger than the heap can be processed. Decoding a large image once to the
+ * memory-mapped {@code argb} format ({@code --format argb}) lets later batches, and several processes at once,
+ * stream it without decoding it again and without holding its pixels on the heap.
+ * <p>
+ * Decoding, encoding and every pipeline stage are timed in {@link PipelineMetrics}, together with how long files
+ * wait for a thread of each pool; {@code --metrics true} prints the figures after the batch.
+ * <p>
+ * Usage: {@code BatchProcessor --input DIR --output DIR [--gamma G] [--filter NAME]
+ * [--interpolator NAME] [--scale S] [--format png] [--in-flight N]
+ * [--decode-threads N] [--process-threads N] [--encode-threads N] [--strip-rows N]
+ * [--metrics true]}
+ */
+public final class BatchProcessor {
+    // Extensions of the input files picked up from the input directory.
+    // Names under which the steps of a file are recorded in the metrics.
+    private static final String DECODE_STAGE = "Decode";
+    private static final String PROCESS_STAGE = "Process";
+    private static final String ENCODE_STAGE = "Encode";
+    private static final String[] INPUT_EXTENSIONS = {".png", ".jpg", ".jpeg", ".bmp", ".gif", ".tif", ".tiff", "." + RasterImageIO.RASTER_FORMAT};
+
+    private final PipelineSpec spec;
+    private final Path outputDirectory;
+    private final String format;
+    private final int maxInFlight;
+    private final int stripRows;
+    private final ExecutorService decodePool;
+    private final ExecutorService processPool;
+    private final ExecutorService encodePool;
+
+    /**
+     * Creates a batch processor with its own decode, process and encode pools.
+     *
+     * @param spec Edit applied to every image.
+     * @param outputDirectory Directory the processed images are written to.
+     * @param format ImageIO format name of the output files.
+     * @param maxInFlight Maximum number of images decoded but not yet written.
+     * @param decodeThreads Number of decoding threads.
+     * @param processThreads Number of processing threads; each run also fans out over the tile scheduler.
+     * @param encodeThreads Number of encoding threads.
+     * @param stripRows Rows per strip when streaming images, or 0 to decode every image whole.
+     * @throws IllegalArgumentException if any count is not positive, or the strip height is negative.
+     */
+    public BatchProcessor(PipelineSpec spec, Path outputDirectory, String format, int maxInFlight,
+                          int decodeThreads, int processThreads, int encodeThreads, int stripRows) {
+        if (maxInFlight <= 0 || decodeThreads <= 0 || processThreads <= 0 || encodeThreads <= 0) {
+            throw new IllegalArgumentException("Thread and in-flight counts must be positive");
+        }
+        if (stripRows < 0) {
+            throw new IllegalArgumentException("Strip height must not be negative");
+        }
+        this.spec = spec;
+        this.outputDirectory = outputDirectory;
+        this.format = format;
+        this.maxInFlight = maxInFlight;
+        this.stripRows = stripRows;
+        this.decodePool = Executors.newFixedThreadPool(decodeThreads);
+        this.processPool = Executors.newFixedThreadPool(processThreads);
+        this.encodePool = Executors.newFixedThreadPool(encodeThreads);
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        Map<String, String> options = parseOptions(args);
+        if (!options.containsKey("input") || !options.containsKey("output")) {
+            System.err.println("Usage: BatchProcessor --input DIR --output DIR [--gamma G] [--filter NAME]"
+                    + " [--interpolator NAME] [--scale S] [--format png] [--in-flight N]"
+                    + " [--decode-threads N] [--process-threads N] [--encode-threads N] [--strip-rows N]"
+                    + " [--metrics true]");
+            System.exit(2);
+        }
+
+        PipelineSpec spec = new PipelineSpec(
+                Double.parseDouble(options.getOrDefault("gamma", "1.0")),
+                options.getOrDefault("filter", PipelineSpec.NO_FILTER),
+                options.getOrDefault("interpolator", "Bilinear"),
+                Double.parseDouble(options.getOrDefault("scale", "1.0")));
+        Path output = Paths.get(options.get("output"));
+        Files.createDirectories(output);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        BatchProcessor processor = new BatchProcessor(spec, output,
+                options.getOrDefault("format", "png"),
+                Integer.parseInt(options.getOrDefault("in-flight", Integer.toString(cores + 2))),
+                Integer.parseInt(options.getOrDefault("decode-threads", "2")),
+                Integer.parseInt(options.getOrDefault("process-threads", "1")),
+                Integer.parseInt(options.getOrDefault("encode-threads", "2")),
+                Integer.parseInt(options.getOrDefault("strip-rows", "0")));
+        int failures;
+        try {
+            failures = processor.processDirectory(Paths.get(options.get("input")));
+            if (Boolean.parseBoolean(options.getOrDefault("metrics", "false"))) {
+                for (StageMetrics stage : PipelineMetrics.getDefault().getStages()) {
+                    System.out.println(stage);
+                }
+            }
+        } finally {
+            processor.shutdown();
+            TileScheduler.getDefault().close();
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Processes every supported image in a directory and waits until all of them are written.
+     * Files that fail are reported on standard error and do not stop the batch.
+     *
+     * @param inputDirectory Directory to read images from.
+     * @return Number of files that failed.
+     * @throws IOException if the directory cannot be listed.
+     * @throws InterruptedException if interrupted while waiting for a free in-flight slot.
+     */
+    public int processDirectory(Path inputDirectory) throws IOException, InterruptedException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        // The directory stream is lazy, so huge directories are never listed into memory either.
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDirectory, BatchProcessor::isSupported)) {
+            for (Path file : files) {
+                // Back-pressure: wait here until an earlier image has left the pipeline.
+                inFlight.acquire();
+                // When the file's previous step finished, or it was submitted; read by the step waiting for a thread.
+                long[] ready = {System.nanoTime()};
+                CompletableFuture<Void> done = stripRows > 0
+                        ? CompletableFuture.runAsync(() -> step(PROCESS_STAGE, ready, () -> stream(file)), processPool)
+                        : CompletableFuture
+                                .supplyAsync(() -> step(DECODE_STAGE, ready, () -> decode(file)), decodePool)
+                                .thenApplyAsync(raster -> step(PROCESS_STAGE, ready, () -> spec.apply(raster)), processPool)
+                                .thenAcceptAsync(raster -> step(ENCODE_STAGE, ready, () -> encode(raster, file)), encodePool);
+                done.whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        processed.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                        System.err.println("Failed to process " + file + ": " + error.getCause());
+                    }
+                    inFlight.release();
+                });
+            }
+        }
+        // Drain: all permits come back once the last image is written.
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+
+        System.out.printf("Processed %d images (%d failed) with %s in %.1f s%n",
+                processed.get(), failed.get(), spec, (System.nanoTime() - start) / 1e9);
+        return failed.get();
+    }
+
+    /**
+     * Shuts down the stage pools.
+     */
+    public void shutdown() {
+        decodePool.shutdown();
+        processPool.shutdown();
+        encodePool.shutdown();
+    }
+
+    // Runs a step of a file on a pool thread, recording how long the file waited since its previous step finished.
+    private static <T> T step(String stage, long[] ready, Supplier<T> work) {
+        PipelineMetrics.getDefault().recordQueueWait(stage, System.nanoTime() - ready[0]);
+        T result = work.get();
+        ready[0] = System.nanoTime();
+        return result;
+    }
+
+    // Runs a step without a result; see step above.
+    private static Void step(String stage, long[] ready, Runnable work) {
+        return step(stage, ready, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Decodes a file, rethrowing I/O errors unchecked so they propagate through the futures.
+    private ArgbRaster decode(Path file) {
+        try (StageTimer timer = PipelineMetrics.getDefault().start(DECODE_STAGE)) {
+            ArgbRaster raster = RasterImageIO.read(file);
+            timer.record((long) raster.width() * raster.height());
+            return raster;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Encodes a processed raster next to its siblings in the output directory.
+    private void encode(ArgbRaster raster, Path source) {
+        try (StageTimer timer = PipelineMetrics.getDefault().start(ENCODE_STAGE)) {
+            RasterImageIO.write(raster, target(source), format);
+            timer.record((long) raster.width() * raster.height());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Decodes, processes and encodes a file strip by strip, as the encoder pulls the strips. Strips are charged to
+    // decoding, to the stage computing them and to encoding in turn.
+    private void stream(Path file) {
+        PipelineMetrics metrics = PipelineMetrics.getDefault();
+        try (StripSource strips = metrics.measure(DECODE_STAGE, RasterImageIO.openStrips(file));
+             StageTimer timer = metrics.start(ENCODE_STAGE)) {
+            StripSource output = spec.toPipeline().stream(strips);
+            RasterImageIO.write(output, stripRows, target(file), format);
+            timer.record((long) output.width() * output.height());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Returns the output file of an input file: the same name with the output format's extension.
+    private Path target(Path source) {
+        String name = source.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return outputDirectory.resolve((dot > 0 ? name.substring(0, dot) : name) + "." + format);
+    }
+
+    // Returns whether a directory entry is a regular file with a supported image extension.
+    static boolean isSupported(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        for (String extension : INPUT_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Parses "--name value" pairs into a map keyed by name.
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option but found: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.photoshop.batch;
+
+import com.example.photoshop.raster.ArgbRaster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Decodes and encodes images off the caller's thread, so an interactive application never waits on the disk.
+ * <p>
+ * Images are decoded through {@link RasterImageIO} on a dedicated pool of daemon threads and kept in a cache of
+ * decoded rasters bounded by their size in bytes; loading an image that is cached, or still being decoded,
+ * returns the same raster. {@link #prefetch} decodes the images that follow one in its folder ahead of time, so
+ * stepping through a folder finds them ready. Encoding runs on a single thread of its own, so files are written
+ * in the order they were saved and a slow encoder never delays a decode. Saving to a {@value RasterImageIO#RASTER_FORMAT}
+ * file writes the raw pixels without compression, the fastest way to keep intermediate results.
+ */
+public final class ImageStore implements AutoCloseable {
+    private final ExecutorService decoder;
+    private final ExecutorService encoder = Executors.newSingleThreadExecutor(daemonThreads("image-encode"));
+    private final long maxBytes;
+    private final int prefetchCount;
+
+    // Decoded and decoding images by absolute path, least recently used first, guarded by this.
+    private final LinkedHashMap<Path, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    // Prefetches requested by the latest call to prefetch, guarded by this.
+    private final Map<Path, CompletableFuture<ArgbRaster>> prefetches = new LinkedHashMap<>();
+
+    /**
+     * Creates a store.
+     *
+     * @param maxBytes Upper bound on the pixel bytes of cached rasters. An image larger than the bound is
+     *                 still returned, but not kept.
+     * @param prefetchCount Number of following images in a folder that {@link #prefetch} decodes.
+     * @param decodeThreads Threads decoding images in parallel.
+     * @throws IllegalArgumentException if a count is negative, or there are no decode threads.
+     */
+    public ImageStore(long maxBytes, int prefetchCount, int decodeThreads) {
+        if (maxBytes < 0 || prefetchCount < 0 || decodeThreads < 1) {
+            throw new IllegalArgumentException("Invalid store size: " + maxBytes + " bytes, "
+                    + prefetchCount + " prefetches, " + decodeThreads + " threads");
+        }
+        this.maxBytes = maxBytes;
+        this.prefetchCount = prefetchCount;
+        this.decoder = Executors.newFixedThreadPool(decodeThreads, daemonThreads("image-decode"));
+    }
+
+    /**
+     * Returns a decoded image, from the cache if the file has not changed since it was decoded.
+     *
+     * @param file Image file, in any format {@link RasterImageIO#read} accepts.
+     * @return Future raster, completed exceptionally with an {@link UncheckedIOException} if decoding fails.
+     */
+    public CompletableFuture<ArgbRaster> load(Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        long modified = lastModified(key);
+        synchronized (this) {
+            prefetches.remove(key);
+            Entry entry = cache.get(key);
+            if (entry != null && entry.modified == modified && !entry.raster.isCompletedExceptionally()) {
+                return entry.raster;
+            }
+            return decode(key, modified);
+        }
+    }
+
+    /**
+     * Starts decoding the images that follow a file in its folder, in name order, and cancels the prefetches
+     * of an earlier call that are no longer among them and have not started.
+     *
+     * @param file Image the user is working on.
+     */
+    public void prefetch(Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        List<Path> images;
+        try {
+            images = folderImages(key);
+        } catch (IOException e) {
+            return; // Prefetching is only an optimization; an unreadable folder just loads on demand.
+        }
+        int index = images.indexOf(key);
+        Set<Path> wanted = new HashSet<>();
+        for (int i = 1; i <= prefetchCount && index + i < images.size(); i++) {
+            wanted.add(images.get(index + i));
+        }
+        synchronized (this) {
+            for (Iterator<Map.Entry<Path, CompletableFuture<ArgbRaster>>> it = prefetches.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Path, CompletableFuture<ArgbRaster>> prefetch = it.next();
+                if (!wanted.contains(prefetch.getKey())) {
+                    // A cancelled decode that has not started never runs; remove it so a later load retries.
+                    if (prefetch.getValue().cancel(false)) {
+                        remove(prefetch.getKey(), prefetch.getValue());
+                    }
+                    it.remove();
+                }
+            }
+            for (Path image : wanted) {
+                if (!cache.containsKey(image)) {
+                    prefetches.put(image, decode(image, lastModified(image)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the images in the folder of a file that the store can decode, in name order.
+     *
+     * @param file Any file in the folder.
+     * @return Absolute paths of the folder's images.
+     * @throws IOException if the folder cannot be listed.
+     */
+    public List<Path> folderImages(Path file) throws IOException {
+        Path folder = file.toAbsolutePath().normalize().getParent();
+        try (Stream<Path> entries = Files.list(folder)) {
+            return entries.filter(BatchProcessor::isSupported).sorted().toList();
+        }
+    }
+
+    /**
+     * Encodes a raster on the encoding thread. The raster is computed there too, so expensive results such as a
+     * full-resolution render do not hold up the caller.
+     *
+     * @param raster Computes the raster to save; called on the encoding thread.
+     * @param file File to write; its extension gives the format, for example "png" or
+     *             {@value RasterImageIO#RASTER_FORMAT}.
+     * @return Future completed with the file once it is written, or exceptionally with an
+     * {@link UncheckedIOException} if writing fails.
+     * @throws IllegalArgumentException if the file name has no extension.
+     */
+    public CompletableFuture<Path> save(Supplier<ArgbRaster> raster, Path file) {
+        String format = formatOf(file);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                RasterImageIO.write(raster.get(), file, format);
+                return file;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, encoder);
+    }
+
+    /**
+     * Stops the decoding and encoding threads once the work already submitted has finished.
+     */
+    @Override
+    public void close() {
+        decoder.shutdown();
+        encoder.shutdown();
+    }
+
+    // Starts decoding a file and caches the future raster. Called while holding the lock.
+    private CompletableFuture<ArgbRaster> decode(Path file, long modified) {
+        CompletableFuture<ArgbRaster> raster = CompletableFuture.supplyAsync(() -> {
+            try {
+                return RasterImageIO.read(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, decoder);
+        Entry previous = cache.put(file, new Entry(raster, modified));
+        if (previous != null) {
+            cachedBytes -= previous.bytes;
+        }
+        raster.whenComplete((result, failure) -> {
+            if (failure != null) {
+                remove(file, raster);
+            } else {
+                added(file, raster, (long) result.width() * result.height() * Integer.BYTES);
+            }
+        });
+        return raster;
+    }
+
+    // Counts a finished decode against the cache bound and evicts the least recently used rasters above it.
+    private synchronized void added(Path file, CompletableFuture<ArgbRaster> raster, long bytes) {
+        Entry entry = cache.get(file);
+        if (entry == null || entry.raster != raster) {
+            return;
+        }
+        entry.bytes = bytes;
+        cachedBytes += bytes;
+        for (Iterator<Entry> it = cache.values().iterator(); cachedBytes > maxBytes && it.hasNext(); ) {
+            Entry eldest = it.next();
+            // Decodes still running are never evicted; they hold no bytes yet.
+            if (eldest.raster.isDone()) {
+                cachedBytes -= eldest.bytes;
+                it.remove();
+            }
+        }
+    }
+
+    // Drops a cache entry if it still holds the given decode.
+    private synchronized void remove(Path file, CompletableFuture<ArgbRaster> raster) {
+        Entry entry = cache.get(file);
+        if (entry != null && entry.raster == raster) {
+            cachedBytes -= entry.bytes;
+            cache.remove(file);
+        }
+    }
+
+    // Returns the modification time of a file, or 0 if it cannot be read, which the decode then reports.
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Returns the format a file is written in: its extension in lower case.
+    private static String formatOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || dot == name.length() - 1) {
+            throw new IllegalArgumentException("No file extension: " + file);
+        }
+        return name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    // Creates daemon threads named after their pool, so a pending decode never keeps the JVM alive.
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // A cached image: its decode, the file's modification time when it started, and its pixel bytes once done.
+    private static final class Entry {
+        final CompletableFuture<ArgbRaster> raster;
+        final long modified;
+        long bytes;
+
+        Entry(CompletableFuture<ArgbRaster> raster, long modified) {
+            this.raster = raster;
+            this.modified = modified;
+        }
+    }
+}
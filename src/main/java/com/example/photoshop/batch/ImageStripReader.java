@@ -0,0 +1,99 @@
+package com.example.photoshop.batch;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.StripSource;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Decodes an image file strip by strip through javax.imageio, so no more than one strip of it is decoded
+ * into memory at a time.
+ * <p>
+ * Each strip is read as a source region of the image. Formats laid out in independent strips or tiles, such
+ * as TIFF and BMP, decode just the requested rows. Decoders of compressed streams, such as PNG and JPEG,
+ * have to decode from the top of the image up to the strip each time, so for those taller strips are faster.
+ */
+public final class ImageStripReader implements StripSource {
+    private final ImageInputStream input;
+    private final ImageReader reader;
+    private final int width;
+    private final int height;
+
+    private ImageStripReader(ImageInputStream input, ImageReader reader) throws IOException {
+        this.input = input;
+        this.reader = reader;
+        this.width = reader.getWidth(0);
+        this.height = reader.getHeight(0);
+    }
+
+    /**
+     * Opens an image file and reads its dimensions, without decoding any pixels.
+     *
+     * @param file File to read.
+     * @return The reader, which must be closed.
+     * @throws IOException if the file cannot be opened or is not a supported image.
+     */
+    public static ImageStripReader open(Path file) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(file.toFile());
+        if (input == null) {
+            throw new IOException("Cannot open " + file);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("Unsupported image format: " + file);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input);
+        try {
+            return new ImageStripReader(input, reader);
+        } catch (IOException e) {
+            reader.dispose();
+            input.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public ArgbRaster readRows(int y0, int y1) {
+        ArgbRaster strip = new ArgbRaster(width, y1 - y0);
+        if (y1 <= y0) {
+            return strip;
+        }
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(0, y0, width, y1 - y0));
+        try {
+            BufferedImage image = reader.read(0, param);
+            // getRGB converts any source layout to non-premultiplied ARGB, which is the raster's own layout.
+            image.getRGB(0, 0, width, y1 - y0, strip.pixels(), 0, width);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return strip;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        input.close();
+    }
+}
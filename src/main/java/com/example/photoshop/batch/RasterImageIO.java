@@ -0,0 +1,149 @@
+package com.example.photoshop.batch;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.MappedRaster;
+import com.example.photoshop.raster.StripSource;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reads and writes rasters through javax.imageio so files can be processed without a JavaFX toolkit or display.
+ * The {@value #RASTER_FORMAT} format is instead the uncompressed, memory-mapped file of {@link MappedRaster},
+ * which decodes once and can then be shared by any number of processes.
+ */
+public final class RasterImageIO {
+    /**
+     * Format name and file extension of memory-mapped raster files.
+     */
+    public static final String RASTER_FORMAT = "argb";
+    // Rows copied at a time when a whole raster is written as a raster file.
+    private static final int COPY_STRIP_ROWS = 256;
+
+    private RasterImageIO() {
+    }
+
+    /**
+     * Decodes an image file into a raster.
+     *
+     * @param file File to decode.
+     * @return Raster holding the decoded pixels.
+     * @throws IOException if the file cannot be read or is not a supported image.
+     */
+    public static ArgbRaster read(Path file) throws IOException {
+        if (isRasterFile(file)) {
+            try (MappedRaster raster = MappedRaster.open(file, false)) {
+                return raster.readRows(0, raster.height());
+            }
+        }
+        // The whole file is read in one channel transfer and decoded from memory, so the disk is not
+        // touched again by the decoder's many small reads and no temporary cache file is created.
+        // ImageIO closes the stream, which holds nothing but the bytes.
+        BufferedImage image = ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(readFile(file))));
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        ArgbRaster raster = new ArgbRaster(width, height);
+        // getRGB converts any source layout to non-premultiplied ARGB, which is the raster's own layout.
+        image.getRGB(0, 0, width, height, raster.pixels(), 0, width);
+        return raster;
+    }
+
+    /**
+     * Opens an image file for reading strip by strip: raster files are mapped, other images decoded per strip.
+     *
+     * @param file File to open.
+     * @return The strips of the image, which must be closed.
+     * @throws IOException if the file cannot be opened or is not a supported image.
+     */
+    public static StripSource openStrips(Path file) throws IOException {
+        return isRasterFile(file) ? MappedRaster.open(file, false) : ImageStripReader.open(file);
+    }
+
+    /**
+     * Encodes a raster into an image file.
+     * Formats without an alpha channel, such as JPEG, drop the raster's alpha.
+     *
+     * @param raster Raster to encode.
+     * @param file File to write.
+     * @param format ImageIO format name, for example "png" or "jpg".
+     * @throws IOException if the file cannot be written or no writer exists for the format.
+     */
+    public static void write(ArgbRaster raster, Path file, String format) throws IOException {
+        if (isRasterFormat(format)) {
+            MappedRaster.copyOf(StripSource.of(raster), COPY_STRIP_ROWS, file);
+            return;
+        }
+        boolean hasAlpha = !isOpaqueFormat(format);
+        BufferedImage image = new BufferedImage(Math.max(raster.width(), 1), Math.max(raster.height(), 1),
+                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, raster.width(), raster.height(), raster.pixels(), raster.offset(), raster.stride());
+        if (!ImageIO.write(image, format, file.toFile())) {
+            throw new IOException("No image writer for format: " + format);
+        }
+    }
+
+    /**
+     * Encodes an image delivered in strips, computing each strip only when the encoder reaches it. Encoders
+     * that write rows in order, such as PNG and TIFF, then hold one strip at a time; others, such as JPEG,
+     * still gather the whole image first.
+     *
+     * @param strips Image to encode.
+     * @param stripRows Rows requested from the source at a time.
+     * @param file File to write.
+     * @param format ImageIO format name, for example "png" or "tiff".
+     * @throws IOException if the file cannot be written or no writer exists for the format.
+     * @throws java.io.UncheckedIOException if reading the strips fails.
+     */
+    public static void write(StripSource strips, int stripRows, Path file, String format) throws IOException {
+        if (isRasterFormat(format)) {
+            MappedRaster.copyOf(strips, stripRows, file);
+            return;
+        }
+        if (!ImageIO.write(new StripImage(strips, stripRows, !isOpaqueFormat(format)), format, file.toFile())) {
+            throw new IOException("No image writer for format: " + format);
+        }
+    }
+
+    // Reads a whole file through a file channel.
+    private static byte[] readFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("File too large to decode: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends early.
+            }
+            return buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+        }
+    }
+
+    // Returns whether a file name has the extension of raster files.
+    private static boolean isRasterFile(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith("." + RASTER_FORMAT);
+    }
+
+    // Returns whether a format name denotes raster files.
+    private static boolean isRasterFormat(String format) {
+        return format.equalsIgnoreCase(RASTER_FORMAT);
+    }
+
+    // Returns whether the format cannot store an alpha channel.
+    private static boolean isOpaqueFormat(String format) {
+        String name = format.toLowerCase(Locale.ROOT);
+        return name.equals("jpg") || name.equals("jpeg") || name.equals("bmp");
+    }
+}
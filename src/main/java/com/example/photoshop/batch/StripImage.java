@@ -0,0 +1,191 @@
+package com.example.photoshop.batch;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.StripSource;
+
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Vector;
+
+/**
+ * Presents a {@link StripSource} to javax.imageio writers as an image tiled in full-width strips, computing a
+ * strip only when the writer asks for its pixels and keeping just the most recent one. Writers that fetch
+ * rows in order, such as PNG and TIFF, therefore encode the image while holding a single strip.
+ */
+final class StripImage implements RenderedImage {
+    private static final int[] ARGB_MASKS = {0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000};
+    private static final int[] RGB_MASKS = {0x00FF0000, 0x0000FF00, 0x000000FF};
+
+    private final StripSource source;
+    private final int stripRows;
+    private final int[] masks;
+    private final ColorModel colorModel;
+    private final SampleModel sampleModel;
+    // Most recently computed strip and its index.
+    private Raster strip;
+    private int stripIndex = -1;
+
+    /**
+     * Wraps a strip source.
+     *
+     * @param source Rows of the image.
+     * @param stripRows Rows per strip; also the tile height reported to writers.
+     * @param alpha Whether the image has an alpha channel; without one, alpha is dropped.
+     */
+    StripImage(StripSource source, int stripRows, boolean alpha) {
+        this.source = source;
+        this.stripRows = stripRows;
+        this.masks = alpha ? ARGB_MASKS : RGB_MASKS;
+        this.colorModel = alpha
+                ? new DirectColorModel(32, masks[0], masks[1], masks[2], masks[3])
+                : new DirectColorModel(24, masks[0], masks[1], masks[2]);
+        this.sampleModel = new SinglePixelPackedSampleModel(DataBufferInt.TYPE_INT, source.width(), stripRows, masks);
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        if (tileY != stripIndex) {
+            int y0 = tileY * stripRows;
+            int y1 = Math.min(y0 + stripRows, source.height());
+            ArgbRaster rows = source.readRows(y0, y1);
+            int[] pixels = new int[source.width() * (y1 - y0)];
+            for (int y = 0; y < y1 - y0; y++) {
+                System.arraycopy(rows.pixels(), rows.rowOffset(y), pixels, y * source.width(), source.width());
+            }
+            strip = Raster.createPackedRaster(new DataBufferInt(pixels, pixels.length), source.width(), y1 - y0,
+                    source.width(), masks, new Point(0, y0));
+            stripIndex = tileY;
+        }
+        return strip;
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+        Rectangle bounds = rect.intersection(new Rectangle(0, 0, getWidth(), getHeight()));
+        int first = bounds.y / stripRows;
+        int last = (bounds.y + bounds.height - 1) / stripRows;
+        if (first == last) {
+            // Writers only read the raster they get, so a view of the strip serves as the copy.
+            return getTile(0, first).createChild(bounds.x, bounds.y, bounds.width, bounds.height,
+                    bounds.x, bounds.y, null);
+        }
+        WritableRaster copy = colorModel.createCompatibleWritableRaster(bounds.width, bounds.height)
+                .createWritableTranslatedChild(bounds.x, bounds.y);
+        for (int tileY = first; tileY <= last; tileY++) {
+            copy.setRect(getTile(0, tileY));
+        }
+        return copy;
+    }
+
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(0, 0, getWidth(), getHeight()));
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        WritableRaster target = raster != null ? raster : colorModel.createCompatibleWritableRaster(getWidth(), getHeight());
+        Rectangle bounds = target.getBounds().intersection(new Rectangle(0, 0, getWidth(), getHeight()));
+        if (bounds.isEmpty()) {
+            return target;
+        }
+        for (int tileY = bounds.y / stripRows; tileY <= (bounds.y + bounds.height - 1) / stripRows; tileY++) {
+            target.setRect(getTile(0, tileY));
+        }
+        return target;
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return colorModel;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return sampleModel;
+    }
+
+    @Override
+    public int getWidth() {
+        return source.width();
+    }
+
+    @Override
+    public int getHeight() {
+        return source.height();
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return (source.height() + stripRows - 1) / stripRows;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return source.width();
+    }
+
+    @Override
+    public int getTileHeight() {
+        return stripRows;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+
+/**
+ * Adaptive threshold: each pixel turns white if its luminance is above the mean luminance of a window around it
+ * less an offset, and black otherwise, so text and edges separate cleanly under uneven lighting. Luminance is a
+ * weighted sum of the channels, so the window's mean luminance is the same weighted sum of the channel sums in a
+ * {@link SummedAreaTable}, and the comparison is done in exact integer arithmetic.
+ */
+public class AdaptiveThresholdFilter extends SummedAreaFilter {
+    // Radius and offset used when the filter is created without them.
+    private static final int DEFAULT_RADIUS = 15;
+    private static final int DEFAULT_OFFSET = 8;
+    // Rec. 601 luminance weights in 1/256ths.
+    private static final int RED_WEIGHT = 77;
+    private static final int GREEN_WEIGHT = 150;
+    private static final int BLUE_WEIGHT = 29;
+
+    private final int offset;
+
+    public AdaptiveThresholdFilter() {
+        this(DEFAULT_RADIUS, DEFAULT_OFFSET);
+    }
+
+    /**
+     * Creates an adaptive threshold filter.
+     *
+     * @param radius Radius of the window; the window is (2 * radius + 1) pixels wide.
+     * @param offset Levels subtracted from the window's mean luminance before comparing; larger offsets leave
+     *               more of a flat area white.
+     * @throws IllegalArgumentException if the radius is negative or above {@link #MAX_RADIUS}, or the offset is
+     *                                  not in [-255, 255].
+     */
+    public AdaptiveThresholdFilter(int radius, int offset) {
+        super(radius, false);
+        if (offset < -255 || offset > 255) {
+            throw new IllegalArgumentException("Offset must be in [-255, 255]");
+        }
+        this.offset = offset;
+    }
+
+    @Override
+    protected void filterTile(SummedAreaTable table, ArgbRaster source, int[] inputLut, ChannelLut outputLut,
+                              ArgbRaster result, int x0, int y0, int x1, int y1) {
+        int radius = getRadius();
+        int width = source.width();
+        int height = source.height();
+        int[] in = source.pixels();
+        int[] out = result.pixels();
+        int[] sums = new int[3];
+        int black = outputLut.map(0);
+        int white = outputLut.map(255);
+        for (int y = y0; y < y1; y++) {
+            int top = Math.max(y - radius, 0);
+            int bottom = Math.min(y + radius + 1, height);
+            int inIndex = source.rowOffset(y);
+            int outIndex = result.rowOffset(y);
+            for (int x = x0; x < x1; x++) {
+                int left = Math.max(x - radius, 0);
+                int right = Math.min(x + radius + 1, width);
+                long area = (long) (right - left) * (bottom - top);
+                table.sums(left, top, right, bottom, sums);
+                int argb = in[inIndex + x];
+                // Both sides scaled by 256 * area: luminance > mean luminance - offset.
+                long luminance = (long) RED_WEIGHT * inputLut[ArgbRaster.red(argb)]
+                        + (long) GREEN_WEIGHT * inputLut[ArgbRaster.green(argb)]
+                        + (long) BLUE_WEIGHT * inputLut[ArgbRaster.blue(argb)];
+                long windowLuminance = (long) RED_WEIGHT * sums[0] + (long) GREEN_WEIGHT * sums[1]
+                        + (long) BLUE_WEIGHT * sums[2];
+                int level = luminance * area > windowLuminance - 256L * offset * area ? white : black;
+                out[outIndex + x] = ArgbRaster.pack(ArgbRaster.alpha(argb), level, level, level);
+            }
+        }
+    }
+}
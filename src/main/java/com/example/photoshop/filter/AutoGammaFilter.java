@@ -0,0 +1,36 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ChannelLut;
+
+/**
+ * Applies the gamma correction that maps the mean luminance level of an image to mid-gray, brightening dark images
+ * and darkening bright ones without clipping either end. The curve bends the levels around the mean unevenly, so
+ * the mean of the result lands near mid-gray rather than exactly on it.
+ */
+public class AutoGammaFilter extends StatisticsLutFilter {
+    // Range of the estimated gamma, so nearly black or white images are not pushed to extremes.
+    private static final double MIN_GAMMA = 0.1;
+    private static final double MAX_GAMMA = 10;
+
+    /**
+     * Estimates the gamma value that maps the mean luminance of an image to mid-gray under
+     * {@link ChannelLut#gamma}.
+     *
+     * @param statistics Statistics of the image.
+     * @return Gamma value in [0.1, 10]; 1 if no pixels were counted.
+     */
+    public static double estimateGamma(ImageStatistics statistics) {
+        if (statistics.count() == 0) {
+            return 1;
+        }
+        double mean = Math.max(1, Math.min(254, statistics.mean(ImageStatistics.Channel.LUMINANCE)));
+        // Solves (mean / 255)^(1 / gamma) = 1 / 2.
+        double gamma = Math.log(mean / 255) / Math.log(0.5);
+        return Math.max(MIN_GAMMA, Math.min(MAX_GAMMA, gamma));
+    }
+
+    @Override
+    public ChannelLut lutFor(ImageStatistics statistics) {
+        return ChannelLut.gamma(estimateGamma(statistics));
+    }
+}
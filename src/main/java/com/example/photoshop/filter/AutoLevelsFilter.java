@@ -0,0 +1,51 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ChannelLut;
+
+/**
+ * Stretches the levels of an image so that its darkest samples become black and its brightest white. A small
+ * percentage of samples is clipped at each end, so a few stray pixels do not hold the range open. One table is
+ * applied to all three channels, stretching the range they span together, so colors do not shift.
+ */
+public class AutoLevelsFilter extends StatisticsLutFilter {
+    // Percentage clipped at each end when the filter is created without one.
+    private static final double DEFAULT_CLIP_PERCENT = 0.5;
+
+    private final double clipPercent;
+
+    public AutoLevelsFilter() {
+        this(DEFAULT_CLIP_PERCENT);
+    }
+
+    /**
+     * Creates an auto levels filter.
+     *
+     * @param clipPercent Percentage of each channel's darkest and brightest samples clipped.
+     * @throws IllegalArgumentException if the percentage is not in [0, 50).
+     */
+    public AutoLevelsFilter(double clipPercent) {
+        if (!(clipPercent >= 0 && clipPercent < 50)) {
+            throw new IllegalArgumentException("Clip percentage must be in [0, 50)");
+        }
+        this.clipPercent = clipPercent;
+    }
+
+    @Override
+    public ChannelLut lutFor(ImageStatistics statistics) {
+        int low = 255;
+        int high = 0;
+        for (ImageStatistics.Channel channel : new ImageStatistics.Channel[]{
+                ImageStatistics.Channel.RED, ImageStatistics.Channel.GREEN, ImageStatistics.Channel.BLUE}) {
+            low = Math.min(low, statistics.percentile(channel, clipPercent));
+            high = Math.max(high, statistics.percentile(channel, 100 - clipPercent));
+        }
+        if (high <= low) {
+            return ChannelLut.identity(); // A flat image has no range to stretch.
+        }
+        int[] table = new int[256];
+        for (int level = 0; level < table.length; level++) {
+            table[level] = Math.max(0, Math.min(255, (int) Math.round((level - low) * 255.0 / (high - low))));
+        }
+        return ChannelLut.of(table);
+    }
+}
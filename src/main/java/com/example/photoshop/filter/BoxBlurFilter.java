@@ -0,0 +1,24 @@
+package com.example.photoshop.filter;
+
+/**
+ * Replaces each pixel with the mean of a square window around it.
+ * The kernel is uniform, so it runs as running sums whose cost does not depend on the radius.
+ */
+public class BoxBlurFilter extends ConvolutionFilter {
+    // Radius used when the filter is created without one.
+    private static final int DEFAULT_RADIUS = 5;
+
+    public BoxBlurFilter() {
+        this(DEFAULT_RADIUS);
+    }
+
+    /**
+     * Creates a box blur filter.
+     *
+     * @param radius Radius of the window; the window is (2 * radius + 1) pixels wide.
+     * @throws IllegalArgumentException if the radius is negative.
+     */
+    public BoxBlurFilter(int radius) {
+        super(Kernel.box(radius), OutputMode.CLAMP);
+    }
+}
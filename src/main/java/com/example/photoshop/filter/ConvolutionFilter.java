@@ -0,0 +1,753 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.BufferPool;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.FixedPoint;
+import com.example.photoshop.raster.Simd;
+import com.example.photoshop.raster.TileScheduler;
+import com.example.photoshop.raster.VectorKernels;
+
+/**
+ * Convolves the red, green and blue channels of a raster with an arbitrary {@link Kernel}.
+ * Edges are handled by replicating the border pixels. The strategy depends on the kernel:
+ * uniform kernels use running sums so their cost does not grow with the radius, separable
+ * kernels run as a horizontal and a vertical 1D pass, and all other kernels run as a direct
+ * 2D convolution. In every strategy interior pixels take a loop without bounds checks and
+ * only the pixels within a kernel radius of the border clamp their coordinates.
+ * Every sample is read through a per-channel table, so a preceding point operation costs a table
+ * lookup instead of an extra pass over the image.
+ * When {@link Simd#isEnabled()} the direct strategy, and the separable one for kernels of five or more taps,
+ * unpack the channels into planes and run their interior loops through {@link VectorKernels}, with
+ * identical results. When {@link FixedPoint#isEnabled()} the direct strategy of an integer kernel, such as the
+ * Laplacian, accumulates in ints instead; its sums are exact either way, so the results are identical too.
+ * <p>
+ * Raw responses are kept in one compact float buffer, three floats per pixel. Of the output modes, only
+ * {@link OutputMode#NORMALIZE} and {@link OutputMode#PERCENTILE_CLIP} need a statistic of the whole image, gathered
+ * by a parallel reduction over the buffer; the other modes map each response on its own, so any strip or region of
+ * the output can be computed from the source rows within the kernel's reach.
+ */
+public class ConvolutionFilter implements NeighborhoodFilter {
+
+    /**
+     * How raw convolution responses are mapped back to 8-bit channels.
+     */
+    public enum OutputMode {
+        // Round and clamp to [0, 255], keeping the source alpha. Suits blurs and sharpening.
+        CLAMP,
+        // Stretch each channel's response range to [0, 255] with opaque alpha. Suits edge detectors.
+        NORMALIZE,
+        // Stretch the kernel's full response range, which bounds the responses of any image, to [0, 255] with
+        // opaque alpha. Needs no statistics, so the output does not depend on the rest of the image.
+        FIXED_RANGE,
+        // Like NORMALIZE, but stretch the range left after clipping a percentage of each channel's lowest and
+        // highest responses, so a few extreme responses do not flatten the rest.
+        PERCENTILE_CLIP
+    }
+
+    /**
+     * Percentage of responses clipped at each end by {@link OutputMode#PERCENTILE_CLIP} unless given.
+     */
+    public static final double DEFAULT_CLIP_PERCENT = 0.5;
+
+    // Shorter separable kernels spend more time unpacking channel planes for the vector kernels than they save.
+    private static final int MIN_VECTOR_SEPARABLE_TAPS = 5;
+
+    private final Kernel kernel;
+    private final OutputMode outputMode;
+    private final double clipPercent;
+    // Lowest and highest response the kernel can produce from samples in [0, 255].
+    private final float lowestResponse;
+    private final float highestResponse;
+
+    /**
+     * Creates a convolution filter, clipping {@link #DEFAULT_CLIP_PERCENT} in {@link OutputMode#PERCENTILE_CLIP}.
+     *
+     * @param kernel Kernel to convolve with.
+     * @param outputMode How responses are mapped to the output range.
+     */
+    public ConvolutionFilter(Kernel kernel, OutputMode outputMode) {
+        this(kernel, outputMode, DEFAULT_CLIP_PERCENT);
+    }
+
+    /**
+     * Creates a convolution filter.
+     *
+     * @param kernel Kernel to convolve with.
+     * @param outputMode How responses are mapped to the output range.
+     * @param clipPercent Percentage of each channel's lowest and highest responses that
+     *                    {@link OutputMode#PERCENTILE_CLIP} clips; ignored by the other modes.
+     * @throws IllegalArgumentException if the percentage is not in [0, 50).
+     */
+    public ConvolutionFilter(Kernel kernel, OutputMode outputMode, double clipPercent) {
+        if (!(clipPercent >= 0 && clipPercent < 50)) {
+            throw new IllegalArgumentException("Clip percentage must be in [0, 50)");
+        }
+        this.kernel = kernel;
+        this.outputMode = outputMode;
+        this.clipPercent = clipPercent;
+        float negative = 0, positive = 0;
+        for (float weight : kernel.weights()) {
+            if (weight < 0) {
+                negative += weight;
+            } else {
+                positive += weight;
+            }
+        }
+        this.lowestResponse = 255 * negative;
+        this.highestResponse = 255 * positive;
+    }
+
+    public Kernel getKernel() {
+        return kernel;
+    }
+
+    public OutputMode getOutputMode() {
+        return outputMode;
+    }
+
+    public double getClipPercent() {
+        return clipPercent;
+    }
+
+    @Override
+    public ArgbRaster applyFilter(ArgbRaster source, ChannelLut inputLut, ChannelLut outputLut) {
+        float[] response = convolve(source, kernel, inputLut);
+        ArgbRaster result;
+        switch (outputMode) {
+            case CLAMP:
+                result = clampResponse(source, response, outputLut);
+                break;
+            case FIXED_RANGE:
+                result = normalizeResponse(source, response, outputLut, kernelRange());
+                break;
+            default:
+                float[] range = responseRange(statistics(response, source.width(), 0, source.height()));
+                result = range == null ? new ArgbRaster(source.width(), source.height())
+                        : normalizeResponse(source, response, outputLut, range);
+        }
+        BufferPool.getDefault().release(response);
+        return result;
+    }
+
+    /**
+     * Applies the filter, stretching responses from a given range rather than the one its mode derives. This lets
+     * {@link OutputMode#NORMALIZE} and {@link OutputMode#PERCENTILE_CLIP} run on the strips of an image too large to
+     * filter at once, with the range of the whole image derived from merged {@link #responseStatistics}. In
+     * {@link OutputMode#CLAMP} the range is ignored.
+     *
+     * @param source Raster to which the filter is to be applied. It is not modified.
+     * @param inputLut Table applied to each source sample before filtering.
+     * @param outputLut Table applied to each result pixel after filtering.
+     * @param range Response range {minRed, maxRed, minGreen, maxGreen, minBlue, maxBlue} mapped to [0, 255].
+     * @return New raster after applying the filter.
+     */
+    public ArgbRaster applyFilter(ArgbRaster source, ChannelLut inputLut, ChannelLut outputLut, float[] range) {
+        float[] response = convolve(source, kernel, inputLut);
+        ArgbRaster result = outputMode == OutputMode.CLAMP
+                ? clampResponse(source, response, outputLut)
+                : normalizeResponse(source, response, outputLut, range);
+        BufferPool.getDefault().release(response);
+        return result;
+    }
+
+    /**
+     * Returns whether the output mode stretches a range measured over the whole image, so that a strip or region
+     * of the output also needs {@link #responseStatistics} of every strip of the image.
+     *
+     * @return True in {@link OutputMode#NORMALIZE} and {@link OutputMode#PERCENTILE_CLIP}.
+     */
+    public boolean measuresResponses() {
+        return outputMode == OutputMode.NORMALIZE || outputMode == OutputMode.PERCENTILE_CLIP;
+    }
+
+    /**
+     * Gathers statistics of the filter's responses over some rows of a raster. Statistics of consecutive strips
+     * of an image, each measured with {@link #haloRows()} rows of context on either side, merge into those of
+     * the whole image.
+     *
+     * @param source Raster holding the measured rows and their context.
+     * @param inputLut Table applied to each source sample before filtering.
+     * @param y0 First measured row, inclusive.
+     * @param y1 Last measured row, exclusive.
+     * @return Statistics of the rows' responses.
+     */
+    public ResponseStatistics responseStatistics(ArgbRaster source, ChannelLut inputLut, int y0, int y1) {
+        float[] response = convolve(source, kernel, inputLut);
+        ResponseStatistics statistics = statistics(response, source.width(), y0, y1);
+        BufferPool.getDefault().release(response);
+        return statistics;
+    }
+
+    /**
+     * Derives the range the output mode stretches to [0, 255] from statistics of the responses.
+     *
+     * @param statistics Statistics of the whole image's responses.
+     * @return {minRed, maxRed, minGreen, maxGreen, minBlue, maxBlue}, or null if the statistics are empty.
+     */
+    public float[] responseRange(ResponseStatistics statistics) {
+        return statistics.range(outputMode == OutputMode.PERCENTILE_CLIP ? clipPercent : 0);
+    }
+
+    /**
+     * Returns how far the kernel reaches above and below a pixel. In {@link OutputMode#NORMALIZE} and
+     * {@link OutputMode#PERCENTILE_CLIP} a strip also needs the response range of the whole image; see
+     * {@link #measuresResponses}.
+     *
+     * @return Vertical radius of the kernel.
+     */
+    @Override
+    public int haloRows() {
+        return kernel.radiusY();
+    }
+
+    @Override
+    public int haloColumns() {
+        return kernel.radiusX();
+    }
+
+    /**
+     * Convolves a raster and returns the raw responses, three floats (red, green, blue) per pixel in row-major order.
+     * The array is borrowed from the {@link BufferPool} and may be longer than the responses; callers return it
+     * once done.
+     *
+     * @param source Raster to convolve.
+     * @param kernel Kernel to convolve with.
+     * @param inputLut Table applied to every channel sample as it is read.
+     * @return Interleaved per-channel responses.
+     */
+    static float[] convolve(ArgbRaster source, Kernel kernel, ChannelLut inputLut) {
+        float[] response = BufferPool.getDefault().floats(source.width() * source.height() * 3);
+        float[] table = inputLut.toFloatTable();
+        if (kernel.isUniform()) {
+            convolveBox(source, kernel, table, response);
+        } else if (kernel.isSeparable()) {
+            if (Simd.isEnabled() && Math.max(kernel.width(), kernel.height()) >= MIN_VECTOR_SEPARABLE_TAPS) {
+                convolveSeparableVector(source, kernel, table, response);
+            } else {
+                convolveSeparable(source, kernel, table, response);
+            }
+        } else if (FixedPoint.isEnabled() && kernel.isInteger()) {
+            convolveDirectInteger(source, kernel, inputLut.toIntTable(), table, response);
+        } else if (Simd.isEnabled()) {
+            convolveDirectVector(source, kernel, table, response);
+        } else {
+            convolveDirect(source, kernel, table, response);
+        }
+        return response;
+    }
+
+    // Maps responses to [0, 255] by rounding and clamping, keeping the source alpha, then applies the output table.
+    private static ArgbRaster clampResponse(ArgbRaster source, float[] response, ChannelLut outputLut) {
+        int width = source.width();
+        ArgbRaster result = BufferPool.getDefault().raster(width, source.height());
+        int[] in = source.pixels();
+        int[] out = result.pixels();
+        TileScheduler.getDefault().forEachTile(result, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int inIndex = source.rowOffset(y);
+                int outIndex = result.rowOffset(y);
+                for (int x = x0; x < x1; x++) {
+                    int base = (y * width + x) * 3;
+                    out[outIndex + x] = ArgbRaster.pack(ArgbRaster.alpha(in[inIndex + x]),
+                            outputLut.map(clampChannel(response[base])),
+                            outputLut.map(clampChannel(response[base + 1])),
+                            outputLut.map(clampChannel(response[base + 2])));
+                }
+            }
+        });
+        return result;
+    }
+
+    // Gathers statistics of the responses over rows [y0, y1) in parallel: each tile gathers its own, then the
+    // tiles are merged.
+    private ResponseStatistics statistics(float[] response, int width, int y0, int y1) {
+        boolean histogram = outputMode == OutputMode.PERCENTILE_CLIP;
+        ResponseStatistics statistics = TileScheduler.getDefault().reduceTiles(width, y1 - y0, (x0, tileY0, x1, tileY1) -> {
+            ResponseStatistics partial = new ResponseStatistics(lowestResponse, highestResponse, histogram);
+            for (int y = y0 + tileY0; y < y0 + tileY1; y++) {
+                partial.add(response, y * width + x0, y * width + x1);
+            }
+            return partial;
+        }, ResponseStatistics::merge);
+        return statistics != null ? statistics : new ResponseStatistics(lowestResponse, highestResponse, histogram);
+    }
+
+    // Returns the kernel's response bounds as the range of every channel.
+    private float[] kernelRange() {
+        return new float[]{
+                lowestResponse, highestResponse,
+                lowestResponse, highestResponse,
+                lowestResponse, highestResponse
+        };
+    }
+
+    // Stretches each channel's response range to [0, 255], applies the output table and writes opaque pixels.
+    private static ArgbRaster normalizeResponse(ArgbRaster source, float[] response, ChannelLut outputLut, float[] minMax) {
+        int width = source.width();
+        ArgbRaster result = BufferPool.getDefault().raster(width, source.height());
+        int[] out = result.pixels();
+        TileScheduler.getDefault().forEachTile(result, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int outIndex = result.rowOffset(y);
+                for (int x = x0; x < x1; x++) {
+                    int base = (y * width + x) * 3;
+                    out[outIndex + x] = ArgbRaster.pack(255,
+                            outputLut.map(normalizeChannel(response[base], minMax[0], minMax[1])),
+                            outputLut.map(normalizeChannel(response[base + 1], minMax[2], minMax[3])),
+                            outputLut.map(normalizeChannel(response[base + 2], minMax[4], minMax[5])));
+                }
+            }
+        });
+        return result;
+    }
+
+    // Direct 2D convolution: every output pixel visits every kernel tap.
+    private static void convolveDirect(ArgbRaster source, Kernel kernel, float[] table, float[] response) {
+        int width = source.width();
+        int height = source.height();
+        int radiusX = kernel.radiusX();
+        int radiusY = kernel.radiusY();
+        int kernelWidth = kernel.width();
+        int kernelHeight = kernel.height();
+        float[] weights = kernel.weights();
+        int[] pixels = source.pixels();
+
+        TileScheduler.getDefault().forEachTile(width, height, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                boolean interiorRow = y >= radiusY && y < height - radiusY;
+                int interiorStart = interiorRow ? Math.min(Math.max(x0, radiusX), x1) : x1;
+                int interiorEnd = interiorRow ? Math.max(interiorStart, Math.min(x1, width - radiusX)) : x1;
+
+                for (int x = x0; x < interiorStart; x++) {
+                    convolveBorderPixel(source, kernel, table, x, y, response);
+                }
+                // Interior pixels: the whole kernel footprint lies inside the raster, so no clamping is needed.
+                for (int x = interiorStart; x < interiorEnd; x++) {
+                    float r = 0, g = 0, b = 0;
+                    int k = 0;
+                    for (int ky = 0; ky < kernelHeight; ky++) {
+                        int index = source.rowOffset(y - radiusY + ky) + x - radiusX;
+                        for (int kx = 0; kx < kernelWidth; kx++) {
+                            int argb = pixels[index + kx];
+                            float weight = weights[k++];
+                            r += weight * table[(argb >> 16) & 0xFF];
+                            g += weight * table[(argb >> 8) & 0xFF];
+                            b += weight * table[argb & 0xFF];
+                        }
+                    }
+                    int base = (y * width + x) * 3;
+                    response[base] = r;
+                    response[base + 1] = g;
+                    response[base + 2] = b;
+                }
+                for (int x = interiorEnd; x < x1; x++) {
+                    convolveBorderPixel(source, kernel, table, x, y, response);
+                }
+            }
+        });
+    }
+
+    // Direct 2D convolution of an integer kernel, accumulating interior pixels in ints. The border pixels take the
+    // float path, whose sums are just as exact for integer kernels.
+    private static void convolveDirectInteger(ArgbRaster source, Kernel kernel, int[] intTable, float[] table,
+                                              float[] response) {
+        int width = source.width();
+        int height = source.height();
+        int radiusX = kernel.radiusX();
+        int radiusY = kernel.radiusY();
+        int kernelWidth = kernel.width();
+        int kernelHeight = kernel.height();
+        int[] weights = kernel.integerWeights();
+        int[] pixels = source.pixels();
+
+        TileScheduler.getDefault().forEachTile(width, height, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                boolean interiorRow = y >= radiusY && y < height - radiusY;
+                int interiorStart = interiorRow ? Math.min(Math.max(x0, radiusX), x1) : x1;
+                int interiorEnd = interiorRow ? Math.max(interiorStart, Math.min(x1, width - radiusX)) : x1;
+
+                for (int x = x0; x < interiorStart; x++) {
+                    convolveBorderPixel(source, kernel, table, x, y, response);
+                }
+                for (int x = interiorStart; x < interiorEnd; x++) {
+                    int r = 0, g = 0, b = 0;
+                    int k = 0;
+                    for (int ky = 0; ky < kernelHeight; ky++) {
+                        int index = source.rowOffset(y - radiusY + ky) + x - radiusX;
+                        for (int kx = 0; kx < kernelWidth; kx++) {
+                            int argb = pixels[index + kx];
+                            int weight = weights[k++];
+                            r += weight * intTable[(argb >> 16) & 0xFF];
+                            g += weight * intTable[(argb >> 8) & 0xFF];
+                            b += weight * intTable[argb & 0xFF];
+                        }
+                    }
+                    int base = (y * width + x) * 3;
+                    response[base] = r;
+                    response[base + 1] = g;
+                    response[base + 2] = b;
+                }
+                for (int x = interiorEnd; x < x1; x++) {
+                    convolveBorderPixel(source, kernel, table, x, y, response);
+                }
+            }
+        });
+    }
+
+    // Direct 2D convolution with vectorized interior rows, reading the channels from planes.
+    private static void convolveDirectVector(ArgbRaster source, Kernel kernel, float[] table, float[] response) {
+        int width = source.width();
+        int height = source.height();
+        int radiusX = kernel.radiusX();
+        int radiusY = kernel.radiusY();
+        float[][] planes = toPlanes(source, table);
+        float[] weights = kernel.weights();
+        // Offset of every tap from the anchor within a plane, in the order of the weights.
+        int[] offsets = new int[weights.length];
+        for (int ky = 0, k = 0; ky < kernel.height(); ky++) {
+            for (int kx = 0; kx < kernel.width(); kx++) {
+                offsets[k++] = (ky - radiusY) * width + kx - radiusX;
+            }
+        }
+
+        TileScheduler.getDefault().forEachTile(width, height, (x0, y0, x1, y1) -> {
+            float[] row = new float[x1 - x0];
+            for (int y = y0; y < y1; y++) {
+                boolean interiorRow = y >= radiusY && y < height - radiusY;
+                int interiorStart = interiorRow ? Math.min(Math.max(x0, radiusX), x1) : x1;
+                int interiorEnd = interiorRow ? Math.max(interiorStart, Math.min(x1, width - radiusX)) : x1;
+
+                for (int x = x0; x < interiorStart; x++) {
+                    convolveBorderPixel(source, kernel, table, x, y, response);
+                }
+                for (int c = 0; c < 3; c++) {
+                    VectorKernels.convolveRow(planes[c], y * width + interiorStart, offsets, weights,
+                            row, 0, interiorEnd - interiorStart);
+                    interleave(row, interiorEnd - interiorStart, response, y * width + interiorStart, c);
+                }
+                for (int x = interiorEnd; x < x1; x++) {
+                    convolveBorderPixel(source, kernel, table, x, y, response);
+                }
+            }
+        });
+        releaseAll(planes);
+    }
+
+    // Convolves a single pixel near the border, replicating edge pixels for taps outside the raster.
+    private static void convolveBorderPixel(ArgbRaster source, Kernel kernel, float[] table, int x, int y, float[] response) {
+        int width = source.width();
+        int height = source.height();
+        float r = 0, g = 0, b = 0;
+        for (int ky = 0; ky < kernel.height(); ky++) {
+            int sourceY = clamp(y - kernel.radiusY() + ky, 0, height - 1);
+            for (int kx = 0; kx < kernel.width(); kx++) {
+                int argb = source.getArgb(clamp(x - kernel.radiusX() + kx, 0, width - 1), sourceY);
+                float weight = kernel.weight(kx, ky);
+                r += weight * table[(argb >> 16) & 0xFF];
+                g += weight * table[(argb >> 8) & 0xFF];
+                b += weight * table[argb & 0xFF];
+            }
+        }
+        int base = (y * width + x) * 3;
+        response[base] = r;
+        response[base + 1] = g;
+        response[base + 2] = b;
+    }
+
+    // Separable convolution: a horizontal 1D pass into a temporary buffer, then a vertical 1D pass.
+    private static void convolveSeparable(ArgbRaster source, Kernel kernel, float[] table, float[] response) {
+        int width = source.width();
+        int height = source.height();
+        float[] horizontal = kernel.horizontal();
+        float[] vertical = kernel.vertical();
+        int radiusX = kernel.radiusX();
+        int radiusY = kernel.radiusY();
+        int[] pixels = source.pixels();
+        float[] temp = BufferPool.getDefault().floats(width * height * 3);
+        TileScheduler scheduler = TileScheduler.getDefault();
+
+        scheduler.forEachTile(width, height, (x0, y0, x1, y1) -> {
+            int interiorStart = Math.min(Math.max(x0, radiusX), x1);
+            int interiorEnd = Math.max(interiorStart, Math.min(x1, width - radiusX));
+            for (int y = y0; y < y1; y++) {
+                int row = source.rowOffset(y);
+                for (int x = x0; x < interiorStart; x++) {
+                    convolveRowBorderPixel(pixels, row, width, x, y, horizontal, table, temp);
+                }
+                // Interior columns: every horizontal tap lies inside the row, so no clamping is needed.
+                for (int x = interiorStart; x < interiorEnd; x++) {
+                    float r = 0, g = 0, b = 0;
+                    int index = row + x - radiusX;
+                    for (int k = 0; k < horizontal.length; k++) {
+                        int argb = pixels[index + k];
+                        r += horizontal[k] * table[(argb >> 16) & 0xFF];
+                        g += horizontal[k] * table[(argb >> 8) & 0xFF];
+                        b += horizontal[k] * table[argb & 0xFF];
+                    }
+                    int base = (y * width + x) * 3;
+                    temp[base] = r;
+                    temp[base + 1] = g;
+                    temp[base + 2] = b;
+                }
+                for (int x = interiorEnd; x < x1; x++) {
+                    convolveRowBorderPixel(pixels, row, width, x, y, horizontal, table, temp);
+                }
+            }
+        });
+
+        scheduler.forEachTile(width, height, (x0, y0, x1, y1) -> {
+            int interiorStart = Math.min(Math.max(y0, radiusY), y1);
+            int interiorEnd = Math.max(interiorStart, Math.min(y1, height - radiusY));
+            for (int y = y0; y < interiorStart; y++) {
+                convolveColumnBorderRow(temp, width, height, x0, x1, y, vertical, response);
+            }
+            // Interior rows: every vertical tap lies inside the column, so no clamping is needed.
+            int stride = width * 3;
+            for (int y = interiorStart; y < interiorEnd; y++) {
+                int top = ((y - radiusY) * width) * 3;
+                for (int x = x0; x < x1; x++) {
+                    float r = 0, g = 0, b = 0;
+                    int index = top + x * 3;
+                    for (int k = 0; k < vertical.length; k++) {
+                        r += vertical[k] * temp[index];
+                        g += vertical[k] * temp[index + 1];
+                        b += vertical[k] * temp[index + 2];
+                        index += stride;
+                    }
+                    int base = (y * width + x) * 3;
+                    response[base] = r;
+                    response[base + 1] = g;
+                    response[base + 2] = b;
+                }
+            }
+            for (int y = interiorEnd; y < y1; y++) {
+                convolveColumnBorderRow(temp, width, height, x0, x1, y, vertical, response);
+            }
+        });
+        BufferPool.getDefault().release(temp);
+    }
+
+    // Horizontally convolves one pixel near the left or right border, replicating edge pixels.
+    private static void convolveRowBorderPixel(int[] pixels, int row, int width, int x, int y, float[] horizontal,
+                                               float[] table, float[] temp) {
+        int radiusX = horizontal.length / 2;
+        float r = 0, g = 0, b = 0;
+        for (int k = 0; k < horizontal.length; k++) {
+            int argb = pixels[row + clamp(x - radiusX + k, 0, width - 1)];
+            r += horizontal[k] * table[(argb >> 16) & 0xFF];
+            g += horizontal[k] * table[(argb >> 8) & 0xFF];
+            b += horizontal[k] * table[argb & 0xFF];
+        }
+        int base = (y * width + x) * 3;
+        temp[base] = r;
+        temp[base + 1] = g;
+        temp[base + 2] = b;
+    }
+
+    // Vertically convolves a row span near the top or bottom border, replicating edge rows.
+    private static void convolveColumnBorderRow(float[] temp, int width, int height, int x0, int x1, int y,
+                                                float[] vertical, float[] response) {
+        int radiusY = vertical.length / 2;
+        for (int x = x0; x < x1; x++) {
+            float r = 0, g = 0, b = 0;
+            for (int k = 0; k < vertical.length; k++) {
+                int base = (clamp(y - radiusY + k, 0, height - 1) * width + x) * 3;
+                r += vertical[k] * temp[base];
+                g += vertical[k] * temp[base + 1];
+                b += vertical[k] * temp[base + 2];
+            }
+            int base = (y * width + x) * 3;
+            response[base] = r;
+            response[base + 1] = g;
+            response[base + 2] = b;
+        }
+    }
+
+    // Separable convolution over channel planes, with vectorized interior runs in both passes.
+    private static void convolveSeparableVector(ArgbRaster source, Kernel kernel, float[] table, float[] response) {
+        int width = source.width();
+        int height = source.height();
+        float[] horizontal = kernel.horizontal();
+        float[] vertical = kernel.vertical();
+        int radiusX = kernel.radiusX();
+        int radiusY = kernel.radiusY();
+        BufferPool pool = BufferPool.getDefault();
+        float[][] planes = toPlanes(source, table);
+        float[][] temp = {pool.floats(width * height), pool.floats(width * height), pool.floats(width * height)};
+        int[] horizontalOffsets = new int[horizontal.length];
+        for (int k = 0; k < horizontal.length; k++) {
+            horizontalOffsets[k] = k - radiusX;
+        }
+        int[] verticalOffsets = new int[vertical.length];
+        for (int k = 0; k < vertical.length; k++) {
+            verticalOffsets[k] = (k - radiusY) * width;
+        }
+        TileScheduler scheduler = TileScheduler.getDefault();
+
+        scheduler.forEachTile(width, height, (x0, y0, x1, y1) -> {
+            int interiorStart = Math.min(Math.max(x0, radiusX), x1);
+            int interiorEnd = Math.max(interiorStart, Math.min(x1, width - radiusX));
+            for (int y = y0; y < y1; y++) {
+                int row = y * width;
+                for (int c = 0; c < 3; c++) {
+                    float[] plane = planes[c];
+                    VectorKernels.convolveRow(plane, row + interiorStart, horizontalOffsets, horizontal,
+                            temp[c], row + interiorStart, interiorEnd - interiorStart);
+                    for (int x = x0; x < interiorStart; x++) {
+                        temp[c][row + x] = convolveBorderSample(plane, row, width, x, horizontal);
+                    }
+                    for (int x = interiorEnd; x < x1; x++) {
+                        temp[c][row + x] = convolveBorderSample(plane, row, width, x, horizontal);
+                    }
+                }
+            }
+        });
+
+        scheduler.forEachTile(width, height, (x0, y0, x1, y1) -> {
+            float[] values = new float[x1 - x0];
+            for (int y = y0; y < y1; y++) {
+                boolean interiorRow = y >= radiusY && y < height - radiusY;
+                for (int c = 0; c < 3; c++) {
+                    if (interiorRow) {
+                        VectorKernels.convolveRow(temp[c], y * width + x0, verticalOffsets, vertical, values, 0, x1 - x0);
+                    } else {
+                        for (int x = x0; x < x1; x++) {
+                            float sum = 0;
+                            for (int k = 0; k < vertical.length; k++) {
+                                sum += vertical[k] * temp[c][clamp(y - radiusY + k, 0, height - 1) * width + x];
+                            }
+                            values[x - x0] = sum;
+                        }
+                    }
+                    interleave(values, x1 - x0, response, y * width + x0, c);
+                }
+            }
+        });
+        releaseAll(planes);
+        releaseAll(temp);
+    }
+
+    // Horizontally convolves one plane sample near the border, replicating edge samples.
+    private static float convolveBorderSample(float[] plane, int row, int width, int x, float[] horizontal) {
+        int radiusX = horizontal.length / 2;
+        float sum = 0;
+        for (int k = 0; k < horizontal.length; k++) {
+            sum += horizontal[k] * plane[row + clamp(x - radiusX + k, 0, width - 1)];
+        }
+        return sum;
+    }
+
+    // Unpacks the red, green and blue channels, mapped through the table, into three row-major planes.
+    private static float[][] toPlanes(ArgbRaster source, float[] table) {
+        int width = source.width();
+        int[] pixels = source.pixels();
+        BufferPool pool = BufferPool.getDefault();
+        int length = width * source.height();
+        float[][] planes = {pool.floats(length), pool.floats(length), pool.floats(length)};
+        TileScheduler.getDefault().forEachTile(width, source.height(), (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int inIndex = source.rowOffset(y);
+                for (int x = x0; x < x1; x++) {
+                    int argb = pixels[inIndex + x];
+                    planes[0][y * width + x] = table[(argb >> 16) & 0xFF];
+                    planes[1][y * width + x] = table[(argb >> 8) & 0xFF];
+                    planes[2][y * width + x] = table[argb & 0xFF];
+                }
+            }
+        });
+        return planes;
+    }
+
+    // Returns channel planes or temporary buffers to the pool.
+    private static void releaseAll(float[][] arrays) {
+        for (float[] array : arrays) {
+            BufferPool.getDefault().release(array);
+        }
+    }
+
+    // Writes a run of one channel's responses into the interleaved response array, starting at a pixel index.
+    private static void interleave(float[] values, int length, float[] response, int pixel, int channel) {
+        for (int i = 0; i < length; i++) {
+            response[(pixel + i) * 3 + channel] = values[i];
+        }
+    }
+
+    // Box convolution with running sums: each output costs one add and one subtract per pass, whatever the radius.
+    private static void convolveBox(ArgbRaster source, Kernel kernel, float[] table, float[] response) {
+        int width = source.width();
+        int height = source.height();
+        int radiusX = kernel.radiusX();
+        int radiusY = kernel.radiusY();
+        float weight = kernel.weight(0, 0);
+        int[] pixels = source.pixels();
+        float[] temp = BufferPool.getDefault().floats(width * height * 3);
+        TileScheduler scheduler = TileScheduler.getDefault();
+
+        // Horizontal pass: slide a window of 2 * radiusX + 1 pixels along each row of the tile.
+        scheduler.forEachTile(width, height, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int row = source.rowOffset(y);
+                double r = 0, g = 0, b = 0;
+                for (int k = x0 - radiusX; k <= x0 + radiusX; k++) {
+                    int argb = pixels[row + clamp(k, 0, width - 1)];
+                    r += table[(argb >> 16) & 0xFF];
+                    g += table[(argb >> 8) & 0xFF];
+                    b += table[argb & 0xFF];
+                }
+                for (int x = x0; x < x1; x++) {
+                    int base = (y * width + x) * 3;
+                    temp[base] = (float) r;
+                    temp[base + 1] = (float) g;
+                    temp[base + 2] = (float) b;
+                    int entering = pixels[row + Math.min(x + radiusX + 1, width - 1)];
+                    int leaving = pixels[row + Math.max(x - radiusX, 0)];
+                    r += table[(entering >> 16) & 0xFF] - table[(leaving >> 16) & 0xFF];
+                    g += table[(entering >> 8) & 0xFF] - table[(leaving >> 8) & 0xFF];
+                    b += table[entering & 0xFF] - table[leaving & 0xFF];
+                }
+            }
+        });
+
+        // Vertical pass: keep one running column sum per channel for every column of the tile.
+        scheduler.forEachTile(width, height, (x0, y0, x1, y1) -> {
+            int tileWidth = x1 - x0;
+            double[] sums = new double[tileWidth * 3];
+            for (int k = y0 - radiusY; k <= y0 + radiusY; k++) {
+                int rowBase = (clamp(k, 0, height - 1) * width + x0) * 3;
+                for (int i = 0; i < sums.length; i++) {
+                    sums[i] += temp[rowBase + i];
+                }
+            }
+            for (int y = y0; y < y1; y++) {
+                int outBase = (y * width + x0) * 3;
+                int enteringBase = (Math.min(y + radiusY + 1, height - 1) * width + x0) * 3;
+                int leavingBase = (Math.max(y - radiusY, 0) * width + x0) * 3;
+                for (int i = 0; i < sums.length; i++) {
+                    response[outBase + i] = (float) (sums[i] * weight);
+                    sums[i] += temp[enteringBase + i] - temp[leavingBase + i];
+                }
+            }
+        });
+        BufferPool.getDefault().release(temp);
+    }
+
+    // Rounds a response to the nearest 8-bit value, clamping to [0, 255].
+    private static int clampChannel(float value) {
+        return clamp(Math.round(value), 0, 255);
+    }
+
+    // Maps a response from [min, max] to [0, 255]. A flat channel maps to black. Responses outside a given
+    // range, such as those of the halo rows around a strip, are clamped.
+    private static int normalizeChannel(float value, float min, float max) {
+        if (max == min) {
+            return 0;
+        }
+        return clamp((int) Math.round((value - min) * 255.0 / (max - min)), 0, 255);
+    }
+
+    // Utility method to ensure a value is within a specified range.
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ChannelLut;
+
+/**
+ * Histogram equalization: maps each level to its rank among the image's samples, so the levels end up spread
+ * evenly over [0, 255] and crowded tones gain contrast. One table is applied to all three channels, built from
+ * their combined histogram, so colors keep their order.
+ */
+public class EqualizeHistogramFilter extends StatisticsLutFilter {
+
+    @Override
+    public ChannelLut lutFor(ImageStatistics statistics) {
+        long[] counts = new long[256];
+        for (ImageStatistics.Channel channel : new ImageStatistics.Channel[]{
+                ImageStatistics.Channel.RED, ImageStatistics.Channel.GREEN, ImageStatistics.Channel.BLUE}) {
+            long[] histogram = statistics.histogram(channel);
+            for (int level = 0; level < counts.length; level++) {
+                counts[level] += histogram[level];
+            }
+        }
+        // The darkest level present maps to black, so the cumulative count starts from its samples.
+        long total = 0;
+        long darkest = -1;
+        long[] cumulative = new long[256];
+        for (int level = 0; level < counts.length; level++) {
+            total += counts[level];
+            cumulative[level] = total;
+            if (darkest < 0 && counts[level] > 0) {
+                darkest = counts[level];
+            }
+        }
+        if (total == darkest || darkest < 0) {
+            return ChannelLut.identity(); // A flat image has nothing to spread.
+        }
+        int[] table = new int[256];
+        for (int level = 0; level < table.length; level++) {
+            long rank = Math.max(0, cumulative[level] - darkest);
+            table[level] = (int) Math.round(rank * 255.0 / (total - darkest));
+        }
+        return ChannelLut.of(table);
+    }
+}
@@ -1,45 +1,90 @@
 package com.example.photoshop.filter;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * Creates filters by display name. Every filter is immutable, so it is created on first use and shared from then
+ * on; a render costs a map lookup rather than a reflective constructor call. Gamma correction is not a named filter:
+ * it is the point stage every edit applies before its filter. Besides the built-in filters, the factory registers
+ * those of every {@link FilterProvider} found by {@link ServiceLoader} when it is first used.
+ */
 public class FilterFactory {
-    // Map of filter names to their corresponding classes
-    private static final Map<String, Class<? extends Filters>> filterMap = new HashMap<>();
+    // Filters by name, in the order they are offered.
+    private static final Map<String, Supplier<? extends Filters>> suppliers = new LinkedHashMap<>();
+    // Filters already created from the suppliers.
+    private static final Map<String, Filters> instances = new ConcurrentHashMap<>();
+    private static final Set<String> names;
+    // Provider errors tolerated before the rest are skipped, since the iterator may not get past a broken entry.
+    private static final int MAX_PROVIDER_ERRORS = 16;
 
-    // Static initializer block to populate the filter map
+    // Static initializer block to register the built-in filters and those of the providers
     static {
-        filterMap.put("Laplacian", LaplacianFilter.class);
+        suppliers.put("Laplacian", LaplacianFilter::new);
+        suppliers.put("Laplacian (Fixed Range)", () -> new LaplacianFilter(ConvolutionFilter.OutputMode.FIXED_RANGE));
+        suppliers.put("Laplacian (Percentile Clip)",
+                () -> new LaplacianFilter(ConvolutionFilter.OutputMode.PERCENTILE_CLIP));
+        suppliers.put("Gaussian Blur", GaussianBlurFilter::new);
+        suppliers.put("Box Blur", BoxBlurFilter::new);
+        suppliers.put("Sharpen", SharpenFilter::new);
+        suppliers.put("Sobel", SobelFilter::new);
+        suppliers.put("Box Blur (Wide)", IntegralBoxBlurFilter::new);
+        suppliers.put("Local Contrast", LocalContrastFilter::new);
+        suppliers.put("Adaptive Threshold", AdaptiveThresholdFilter::new);
+        suppliers.put("Auto Levels", AutoLevelsFilter::new);
+        suppliers.put("Auto Gamma", AutoGammaFilter::new);
+        suppliers.put("Equalize Histogram", EqualizeHistogramFilter::new);
+        loadProviders();
+        names = Collections.unmodifiableSet(suppliers.keySet());
     }
 
     /**
-     * Creates an instance of the specified filter.
-     * If the filter is a Gamma filter, it uses the provided gamma value.
+     * Returns the filter registered under a name, shared between calls.
      *
-     * @param filterName The name of the filter to create an instance of.
-     * @param gammaValue The gamma value for the Gamma filter.
-     * @return An instance of the specified filter.
-     * @throws RuntimeException if there is an error creating the filter instance.
+     * @param filterName The name of the filter, one of {@link #getFilterNames}.
+     * @return The filter.
+     * @throws IllegalArgumentException if no filter is registered under the name.
      */
-    public static Filters createFilter(String filterName, double gammaValue) {
-        try {
-            if ("Gamma".equals(filterName)) {
-                return filterMap.get(filterName).getDeclaredConstructor(double.class).newInstance(gammaValue);
-            } else {
-                return filterMap.get(filterName).getDeclaredConstructor().newInstance();
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Error creating filter", e);
+    public static Filters createFilter(String filterName) {
+        Supplier<? extends Filters> supplier = suppliers.get(filterName);
+        if (supplier == null) {
+            throw new IllegalArgumentException("Unknown filter: " + filterName);
         }
+        return instances.computeIfAbsent(filterName, name -> supplier.get());
     }
 
     /**
-     * Returns the names of all available filters.
+     * Returns the names of the filters offered for an edit, which are exactly those {@link #createFilter} accepts.
      *
-     * @return A set of names of all available filters.
+     * @return A set of names of the offered filters, built-in ones first.
      */
     public static Set<String> getFilterNames() {
-        return filterMap.keySet();
+        return names;
+    }
+
+    // Registers the filters of every provider on the module or class path. A provider that cannot be loaded is
+    // reported and skipped, so one broken plugin does not take the built-in filters with it.
+    private static void loadProviders() {
+        Iterator<FilterProvider> providers = ServiceLoader.load(FilterProvider.class).iterator();
+        int errors = 0;
+        while (errors < MAX_PROVIDER_ERRORS) {
+            try {
+                if (!providers.hasNext()) {
+                    return;
+                }
+                providers.next().filters().forEach(suppliers::putIfAbsent);
+            } catch (ServiceConfigurationError e) {
+                errors++;
+                System.err.println("Cannot load filter provider: " + e.getMessage());
+            }
+        }
+        System.err.println("Skipping the remaining filter providers after " + errors + " errors");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package com.example.photoshop.filter;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Service through which other modules contribute filters to {@link FilterFactory}. Implementations are found with
+ * {@link java.util.ServiceLoader}, declared with {@code provides} in a module or listed in
+ * {@code META-INF/services} on the class path, and are asked for their filters once, when the factory is first used.
+ */
+public interface FilterProvider {
+
+    /**
+     * Returns the filters this provider contributes. Each supplier is called at most once and its filter is then
+     * shared by every render on every thread, so filters must be immutable. A name already registered, by the
+     * built-in filters or by an earlier provider, is ignored.
+     *
+     * @return Suppliers of filters by display name.
+     */
+    Map<String, Supplier<? extends Filters>> filters();
+}
@@ -1,18 +1,30 @@
 package com.example.photoshop.filter;
 
+import com.example.photoshop.raster.ArgbRaster;
 import javafx.scene.image.Image;
 
 /**
  * Interface for filters.
- * Provides a method to apply a filter to an image.
+ * Provides methods to apply a filter to an image or directly to a packed ARGB raster.
  */
 public interface Filters {
 
     /**
      * Applies a filter to an image.
+     * The image is read into a raster in one bulk copy, filtered, and written back out.
      *
      * @param image Image to which the filter is to be applied.
      * @return Image after applying the filter.
      */
-    Image applyFilter(Image image);
-}
\ No newline at end of file
+    default Image applyFilter(Image image) {
+        return applyFilter(ArgbRaster.fromImage(image)).toImage();
+    }
+
+    /**
+     * Applies a filter to a raster.
+     *
+     * @param source Raster to which the filter is to be applied. It is not modified.
+     * @return New raster after applying the filter.
+     */
+    ArgbRaster applyFilter(ArgbRaster source);
+}
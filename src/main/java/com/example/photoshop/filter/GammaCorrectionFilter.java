@@ -1,14 +1,11 @@
 package com.example.photoshop.filter;
 
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
 
-public class GammaCorrectionFilter implements Filters {
-    // Lookup table for gamma correction.
-    private final double[] gammaLUT;
+public class GammaCorrectionFilter implements PointFilter {
+    // Lookup table mapping each 8-bit channel value to its gamma-corrected 8-bit value.
+    private final ChannelLut gammaLUT;
 
     /**
      * Constructor to initialize the gamma correction filter.
@@ -21,55 +18,22 @@ public class GammaCorrectionFilter implements Filters {
         if (gamma <= 0) {
             throw new IllegalArgumentException("Gamma value must be positive");
         }
-        this.gammaLUT = createGammaLUT(gamma);
+        this.gammaLUT = ChannelLut.gamma(gamma);
     }
 
     /**
-     * Applies gamma correction to an entire image.
+     * Applies gamma correction to an entire raster, one tile per task.
      *
-     * @param image The image to which the gamma correction is applied.
-     * @return A new image with gamma correction applied.
+     * @param source The raster to which the gamma correction is applied.
+     * @return A new raster with gamma correction applied.
      */
     @Override
-    public Image applyFilter(Image image) {
-        int width = (int) image.getWidth();
-        int height = (int) image.getHeight();
-        WritableImage correctedImage = new WritableImage(width, height);
-        PixelReader reader = image.getPixelReader();
-        PixelWriter writer = correctedImage.getPixelWriter();
-
-        // Iterate over all pixels and apply gamma correction.
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                writer.setColor(x, y, applyGammaCorrection(reader.getColor(x, y)));
-            }
-        }
-
-        return correctedImage;
-    }
-
-    /**
-     * Creates a lookup table (LUT) for gamma correction.
-     *
-     * @param gamma The gamma correction value.
-     * @return An array representing the LUT for gamma correction.
-     */
-    private double[] createGammaLUT(double gamma) {
-        double[] lut = new double[256];
-        double inverseGamma = 1.0 / gamma;
-        for (int i = 0; i < lut.length; i++) {
-            lut[i] = Math.pow(i / 255.0, inverseGamma);
-        }
-        return lut;
+    public ArgbRaster applyFilter(ArgbRaster source) {
+        return gammaLUT.apply(source);
     }
 
-    // Applies gamma correction to a single color using the precomputed LUT.
-    private Color applyGammaCorrection(Color color) {
-        return new Color(
-                gammaLUT[(int) (color.getRed() * 255)],
-                gammaLUT[(int) (color.getGreen() * 255)],
-                gammaLUT[(int) (color.getBlue() * 255)],
-                color.getOpacity()
-        );
+    @Override
+    public ChannelLut getLut() {
+        return gammaLUT;
     }
 }
@@ -0,0 +1,23 @@
+package com.example.photoshop.filter;
+
+/**
+ * Blurs an image with a Gaussian kernel. The kernel is separable, so it runs as two 1D passes.
+ */
+public class GaussianBlurFilter extends ConvolutionFilter {
+    // Standard deviation used when the filter is created without one.
+    private static final double DEFAULT_SIGMA = 2.0;
+
+    public GaussianBlurFilter() {
+        this(DEFAULT_SIGMA);
+    }
+
+    /**
+     * Creates a Gaussian blur filter.
+     *
+     * @param sigma Standard deviation of the Gaussian in pixels. Must be positive.
+     * @throws IllegalArgumentException if sigma is not positive.
+     */
+    public GaussianBlurFilter(double sigma) {
+        super(Kernel.gaussian(sigma), OutputMode.CLAMP);
+    }
+}
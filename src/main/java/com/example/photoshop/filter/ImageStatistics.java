@@ -0,0 +1,185 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.interploators.ImagePyramid;
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.TileScheduler;
+
+/**
+ * Histograms of the red, green, blue and luminance values of a raster, with the percentiles and means derived from
+ * them. They are gathered by a parallel reduction: every tile counts into histograms of its own, with no sharing
+ * between threads, and the partial histograms are merged at the end. For interactive use the statistics of a
+ * downsampled {@link ImagePyramid} level stand in for those of the full image at a fraction of the cost, since
+ * halving averages pixels without shifting the distribution much.
+ */
+public final class ImageStatistics {
+
+    /**
+     * The values a histogram counts.
+     */
+    public enum Channel {
+        RED, GREEN, BLUE,
+        // Rec. 601 weighted sum of the three channels, rounded to a level.
+        LUMINANCE
+    }
+
+    private static final int LEVELS = 256;
+    private static final int CHANNELS = Channel.values().length;
+
+    // Counts per level, channel by channel in Channel order.
+    private final long[] histogram = new long[CHANNELS * LEVELS];
+    private long count;
+
+    private ImageStatistics() {
+    }
+
+    /**
+     * Gathers the statistics of a raster.
+     *
+     * @param source Raster to measure.
+     * @return Statistics of its pixels.
+     */
+    public static ImageStatistics of(ArgbRaster source) {
+        return of(source, ChannelLut.identity());
+    }
+
+    /**
+     * Gathers the statistics of a raster as it looks after a lookup table.
+     *
+     * @param source Raster to measure.
+     * @param inputLut Table applied to each sample before it is counted.
+     * @return Statistics of the mapped pixels.
+     */
+    public static ImageStatistics of(ArgbRaster source, ChannelLut inputLut) {
+        int[] lut = inputLut.toIntTable();
+        int[] pixels = source.pixels();
+        ImageStatistics statistics = TileScheduler.getDefault().reduceTiles(source.width(), source.height(),
+                (x0, y0, x1, y1) -> {
+                    ImageStatistics part = new ImageStatistics();
+                    long[] counts = part.histogram;
+                    for (int y = y0; y < y1; y++) {
+                        int index = source.rowOffset(y);
+                        for (int x = x0; x < x1; x++) {
+                            int argb = pixels[index + x];
+                            int r = lut[ArgbRaster.red(argb)];
+                            int g = lut[ArgbRaster.green(argb)];
+                            int b = lut[ArgbRaster.blue(argb)];
+                            counts[r]++;
+                            counts[LEVELS + g]++;
+                            counts[2 * LEVELS + b]++;
+                            counts[3 * LEVELS + luminance(r, g, b)]++;
+                        }
+                    }
+                    part.count = (long) (x1 - x0) * (y1 - y0);
+                    return part;
+                }, ImageStatistics::merge);
+        return statistics == null ? new ImageStatistics() : statistics;
+    }
+
+    /**
+     * Gathers the statistics of the largest pyramid level within a pixel budget, or of the smallest level if
+     * none is.
+     *
+     * @param pyramid Pyramid of the image to measure.
+     * @param maxPixels Most pixels to visit.
+     * @return Statistics of the chosen level.
+     */
+    public static ImageStatistics of(ImagePyramid pyramid, long maxPixels) {
+        int index = 0;
+        while (index + 1 < pyramid.levelCount()
+                && (long) pyramid.level(index).width() * pyramid.level(index).height() > maxPixels) {
+            index++;
+        }
+        return of(pyramid.level(index));
+    }
+
+    /**
+     * Returns the luminance level of a color.
+     *
+     * @param red Red level in [0, 255].
+     * @param green Green level in [0, 255].
+     * @param blue Blue level in [0, 255].
+     * @return Rec. 601 luminance rounded to a level in [0, 255].
+     */
+    public static int luminance(int red, int green, int blue) {
+        return (77 * red + 150 * green + 29 * blue + 128) >> 8;
+    }
+
+    /**
+     * Returns the number of pixels counted.
+     *
+     * @return Pixels in every histogram.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the histogram of a channel.
+     *
+     * @param channel Channel to return.
+     * @return New array of 256 counts, indexed by level.
+     */
+    public long[] histogram(Channel channel) {
+        long[] counts = new long[LEVELS];
+        System.arraycopy(histogram, channel.ordinal() * LEVELS, counts, 0, LEVELS);
+        return counts;
+    }
+
+    /**
+     * Returns the mean level of a channel.
+     *
+     * @param channel Channel to average.
+     * @return Mean level, or 0 if no pixels were counted.
+     */
+    public double mean(Channel channel) {
+        if (count == 0) {
+            return 0;
+        }
+        int base = channel.ordinal() * LEVELS;
+        long sum = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            sum += level * histogram[base + level];
+        }
+        return (double) sum / count;
+    }
+
+    /**
+     * Returns the lowest level at or below which a percentage of a channel's samples lie. A percentage of 0 gives
+     * the darkest level present and 100 the brightest.
+     *
+     * @param channel Channel to measure.
+     * @param percent Percentage in [0, 100].
+     * @return Level in [0, 255], or 0 if no pixels were counted.
+     * @throws IllegalArgumentException if the percentage is not in [0, 100].
+     */
+    public int percentile(Channel channel, double percent) {
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("Percentage must be in [0, 100]");
+        }
+        long target = Math.max(1, (long) Math.ceil(count * percent / 100));
+        int base = channel.ordinal() * LEVELS;
+        long cumulative = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            cumulative += histogram[base + level];
+            if (cumulative >= target) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Merges other statistics into these.
+     *
+     * @param other Statistics to merge.
+     * @return These statistics.
+     */
+    public ImageStatistics merge(ImageStatistics other) {
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+        count += other.count;
+        return this;
+    }
+}
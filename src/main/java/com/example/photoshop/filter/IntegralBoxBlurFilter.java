@@ -0,0 +1,57 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+
+/**
+ * Replaces each pixel with the mean of a square window around it, read from a {@link SummedAreaTable}, so radii of
+ * hundreds of pixels cost no more than small ones. Unlike {@link BoxBlurFilter}, which replicates the border, a
+ * window reaching past the border averages only the pixels inside the image.
+ */
+public class IntegralBoxBlurFilter extends SummedAreaFilter {
+    // Radius used when the filter is created without one.
+    private static final int DEFAULT_RADIUS = 20;
+
+    public IntegralBoxBlurFilter() {
+        this(DEFAULT_RADIUS);
+    }
+
+    /**
+     * Creates a box blur filter.
+     *
+     * @param radius Radius of the window; the window is (2 * radius + 1) pixels wide.
+     * @throws IllegalArgumentException if the radius is negative or above {@link #MAX_RADIUS}.
+     */
+    public IntegralBoxBlurFilter(int radius) {
+        super(radius, false);
+    }
+
+    @Override
+    protected void filterTile(SummedAreaTable table, ArgbRaster source, int[] inputLut, ChannelLut outputLut,
+                              ArgbRaster result, int x0, int y0, int x1, int y1) {
+        int radius = getRadius();
+        int width = source.width();
+        int height = source.height();
+        int[] in = source.pixels();
+        int[] out = result.pixels();
+        int[] sums = new int[3];
+        for (int y = y0; y < y1; y++) {
+            int top = Math.max(y - radius, 0);
+            int bottom = Math.min(y + radius + 1, height);
+            int inIndex = source.rowOffset(y);
+            int outIndex = result.rowOffset(y);
+            for (int x = x0; x < x1; x++) {
+                int left = Math.max(x - radius, 0);
+                int right = Math.min(x + radius + 1, width);
+                int area = (right - left) * (bottom - top);
+                table.sums(left, top, right, bottom, sums);
+                // Rounded to nearest; sums stay below 256 * area, so adding half the area cannot overflow.
+                int half = area >> 1;
+                out[outIndex + x] = ArgbRaster.pack(ArgbRaster.alpha(in[inIndex + x]),
+                        outputLut.map((sums[0] + half) / area),
+                        outputLut.map((sums[1] + half) / area),
+                        outputLut.map((sums[2] + half) / area));
+            }
+        }
+    }
+}
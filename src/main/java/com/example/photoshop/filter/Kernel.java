@@ -0,0 +1,286 @@
+package com.example.photoshop.filter;
+
+import java.util.Arrays;
+
+/**
+ * Immutable convolution kernel with odd width and height, anchored at its center.
+ * On construction the kernel is analysed once so the convolution engine can pick the cheapest
+ * strategy: uniform kernels (box/mean) run as running sums, rank-1 kernels run as two 1D passes,
+ * and everything else runs as a direct 2D convolution.
+ */
+public final class Kernel {
+    // Relative tolerance used when checking whether a kernel factors into a column and a row vector.
+    private static final double SEPARABLE_TOLERANCE = 1e-6;
+
+    private final int width;
+    private final int height;
+    private final float[] weights;
+    private final boolean uniform;
+    // Weights as ints when all of them are whole numbers, otherwise null.
+    private final int[] integerWeights;
+    // Row and column factors of a separable kernel, or null when the kernel is not separable.
+    private final float[] horizontal;
+    private final float[] vertical;
+
+    /**
+     * Creates a kernel from row-major weights.
+     *
+     * @param width Width of the kernel. Must be odd and positive.
+     * @param height Height of the kernel. Must be odd and positive.
+     * @param weights Row-major weights; copied.
+     * @throws IllegalArgumentException if the dimensions are not odd or do not match the weights.
+     */
+    public Kernel(int width, int height, float[] weights) {
+        if (width <= 0 || height <= 0 || width % 2 == 0 || height % 2 == 0) {
+            throw new IllegalArgumentException("Kernel dimensions must be odd and positive");
+        }
+        if (weights.length != width * height) {
+            throw new IllegalArgumentException("Kernel needs exactly width * height weights");
+        }
+        this.width = width;
+        this.height = height;
+        this.weights = weights.clone();
+        this.uniform = detectUniform(this.weights);
+        this.integerWeights = toIntegers(this.weights);
+        float[][] factors = decompose(width, height, this.weights);
+        this.vertical = factors == null ? null : factors[0];
+        this.horizontal = factors == null ? null : factors[1];
+    }
+
+    /**
+     * Creates a kernel from a rectangular integer matrix.
+     *
+     * @param matrix Kernel weights indexed as matrix[y][x].
+     * @return The kernel.
+     */
+    public static Kernel of(int[][] matrix) {
+        int height = matrix.length;
+        int width = matrix[0].length;
+        float[] weights = new float[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                weights[y * width + x] = matrix[y][x];
+            }
+        }
+        return new Kernel(width, height, weights);
+    }
+
+    /**
+     * Creates a normalized square box (mean) kernel.
+     *
+     * @param radius Radius of the box; the kernel is (2 * radius + 1) pixels wide.
+     * @return The kernel.
+     */
+    public static Kernel box(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius must not be negative");
+        }
+        int size = 2 * radius + 1;
+        float[] weights = new float[size * size];
+        Arrays.fill(weights, 1.0f / (size * size));
+        return new Kernel(size, size, weights);
+    }
+
+    /**
+     * Creates a normalized Gaussian kernel truncated at three standard deviations.
+     *
+     * @param sigma Standard deviation in pixels. Must be positive.
+     * @return The kernel.
+     */
+    public static Kernel gaussian(double sigma) {
+        if (sigma <= 0) {
+            throw new IllegalArgumentException("Sigma must be positive");
+        }
+        int radius = (int) Math.ceil(3 * sigma);
+        int size = 2 * radius + 1;
+        double[] profile = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            double d = i - radius;
+            profile[i] = Math.exp(-(d * d) / (2 * sigma * sigma));
+            sum += profile[i];
+        }
+        float[] weights = new float[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                weights[y * size + x] = (float) (profile[y] * profile[x] / (sum * sum));
+            }
+        }
+        return new Kernel(size, size, weights);
+    }
+
+    /**
+     * Creates the 3x3 sharpening kernel (identity plus a 4-neighbour Laplacian).
+     *
+     * @return The kernel.
+     */
+    public static Kernel sharpen() {
+        return of(new int[][]{
+                {0, -1, 0},
+                {-1, 5, -1},
+                {0, -1, 0}
+        });
+    }
+
+    /**
+     * Creates the horizontal-gradient Sobel kernel.
+     *
+     * @return The kernel.
+     */
+    public static Kernel sobelX() {
+        return of(new int[][]{
+                {-1, 0, 1},
+                {-2, 0, 2},
+                {-1, 0, 1}
+        });
+    }
+
+    /**
+     * Creates the vertical-gradient Sobel kernel.
+     *
+     * @return The kernel.
+     */
+    public static Kernel sobelY() {
+        return of(new int[][]{
+                {-1, -2, -1},
+                {0, 0, 0},
+                {1, 2, 1}
+        });
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int radiusX() {
+        return width / 2;
+    }
+
+    public int radiusY() {
+        return height / 2;
+    }
+
+    /**
+     * Returns the weight at a kernel position.
+     *
+     * @param x Column within the kernel.
+     * @param y Row within the kernel.
+     * @return The weight.
+     */
+    public float weight(int x, int y) {
+        return weights[y * width + x];
+    }
+
+    /**
+     * Returns whether every weight is the same, so the kernel is a scaled box.
+     *
+     * @return True for box/mean kernels.
+     */
+    public boolean isUniform() {
+        return uniform;
+    }
+
+    /**
+     * Returns whether the kernel is the outer product of a column and a row vector.
+     *
+     * @return True if the kernel can run as two 1D passes.
+     */
+    public boolean isSeparable() {
+        return horizontal != null;
+    }
+
+    /**
+     * Returns whether every weight is a whole number, small enough that the kernel can accumulate 8-bit samples
+     * exactly in integer arithmetic.
+     *
+     * @return True for integer kernels such as the Laplacian and Sobel kernels.
+     */
+    public boolean isInteger() {
+        return integerWeights != null;
+    }
+
+    // Row-major weights as ints for an integer kernel, otherwise null; never modified.
+    int[] integerWeights() {
+        return integerWeights;
+    }
+
+    // Row-major weights shared with the engine; never modified.
+    float[] weights() {
+        return weights;
+    }
+
+    // Row factor of a separable kernel; never modified.
+    float[] horizontal() {
+        return horizontal;
+    }
+
+    // Column factor of a separable kernel; never modified.
+    float[] vertical() {
+        return vertical;
+    }
+
+    // Checks whether all weights are equal.
+    private static boolean detectUniform(float[] weights) {
+        for (float weight : weights) {
+            if (weight != weights[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Converts whole-number weights to ints. Returns null if any weight has a fraction, or if a sum of 8-bit
+    // samples could exceed 2^24, beyond which float sums are no longer exact and the two paths would differ.
+    private static int[] toIntegers(float[] weights) {
+        int[] integers = new int[weights.length];
+        double magnitude = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] != Math.rint(weights[i])) {
+                return null;
+            }
+            magnitude += Math.abs(weights[i]);
+            integers[i] = (int) weights[i];
+        }
+        return 255 * magnitude <= 1 << 24 ? integers : null;
+    }
+
+    // Attempts a rank-1 decomposition around the largest weight. Returns {column, row} or null.
+    private static float[][] decompose(int width, int height, float[] weights) {
+        int pivot = 0;
+        for (int i = 1; i < weights.length; i++) {
+            if (Math.abs(weights[i]) > Math.abs(weights[pivot])) {
+                pivot = i;
+            }
+        }
+        double pivotValue = weights[pivot];
+        if (pivotValue == 0) {
+            return null;
+        }
+        int pivotX = pivot % width;
+        int pivotY = pivot / width;
+
+        // The pivot column becomes the vertical factor and the pivot row, divided by the pivot, the horizontal one.
+        float[] column = new float[height];
+        float[] row = new float[width];
+        for (int y = 0; y < height; y++) {
+            column[y] = weights[y * width + pivotX];
+        }
+        for (int x = 0; x < width; x++) {
+            row[x] = (float) (weights[pivotY * width + x] / pivotValue);
+        }
+
+        double tolerance = SEPARABLE_TOLERANCE * Math.abs(pivotValue);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (Math.abs(weights[y * width + x] - (double) column[y] * row[x]) > tolerance) {
+                    return null;
+                }
+            }
+        }
+        return new float[][]{column, row};
+    }
+}
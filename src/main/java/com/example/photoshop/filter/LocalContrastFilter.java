@@ -0,0 +1,78 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+
+/**
+ * Local contrast normalization: each channel sample is replaced by its distance from the mean of a window around
+ * it, in units of the window's standard deviation, mapped around mid-gray. Detail in flat shadows and bright
+ * highlights is stretched to the same contrast. The means and variances come from a {@link SummedAreaTable}, so
+ * the cost does not depend on the radius.
+ */
+public class LocalContrastFilter extends SummedAreaFilter {
+    // Radius and gain used when the filter is created without them.
+    private static final int DEFAULT_RADIUS = 15;
+    private static final double DEFAULT_GAIN = 48;
+    // Standard deviation added in quadrature, so nearly flat windows do not amplify noise to full contrast.
+    private static final double NOISE_DEVIATION = 4;
+
+    private final double gain;
+
+    public LocalContrastFilter() {
+        this(DEFAULT_RADIUS, DEFAULT_GAIN);
+    }
+
+    /**
+     * Creates a local contrast normalization filter.
+     *
+     * @param radius Radius of the window; the window is (2 * radius + 1) pixels wide.
+     * @param gain Output levels per standard deviation from the window's mean. Must be positive.
+     * @throws IllegalArgumentException if the radius is negative or above {@link #MAX_RADIUS}, or the gain is not
+     *                                  positive.
+     */
+    public LocalContrastFilter(int radius, double gain) {
+        super(radius, true);
+        if (!(gain > 0)) {
+            throw new IllegalArgumentException("Gain must be positive");
+        }
+        this.gain = gain;
+    }
+
+    @Override
+    protected void filterTile(SummedAreaTable table, ArgbRaster source, int[] inputLut, ChannelLut outputLut,
+                              ArgbRaster result, int x0, int y0, int x1, int y1) {
+        int radius = getRadius();
+        int width = source.width();
+        int height = source.height();
+        int[] in = source.pixels();
+        int[] out = result.pixels();
+        int[] sums = new int[3];
+        long[] squareSums = new long[3];
+        for (int y = y0; y < y1; y++) {
+            int top = Math.max(y - radius, 0);
+            int bottom = Math.min(y + radius + 1, height);
+            int inIndex = source.rowOffset(y);
+            int outIndex = result.rowOffset(y);
+            for (int x = x0; x < x1; x++) {
+                int left = Math.max(x - radius, 0);
+                int right = Math.min(x + radius + 1, width);
+                long area = (long) (right - left) * (bottom - top);
+                table.sums(left, top, right, bottom, sums);
+                table.squareSums(left, top, right, bottom, squareSums);
+                int argb = in[inIndex + x];
+                out[outIndex + x] = ArgbRaster.pack(ArgbRaster.alpha(argb),
+                        outputLut.map(normalize(inputLut[ArgbRaster.red(argb)], sums[0], squareSums[0], area)),
+                        outputLut.map(normalize(inputLut[ArgbRaster.green(argb)], sums[1], squareSums[1], area)),
+                        outputLut.map(normalize(inputLut[ArgbRaster.blue(argb)], sums[2], squareSums[2], area)));
+            }
+        }
+    }
+
+    // Maps a sample's deviation from its window's mean to [0, 255] around mid-gray.
+    private int normalize(int sample, int sum, long squareSum, long area) {
+        double mean = (double) sum / area;
+        double variance = Math.max(0, (double) (squareSum * area - (long) sum * sum) / ((double) area * area));
+        double value = 128 + gain * (sample - mean) / Math.sqrt(variance + NOISE_DEVIATION * NOISE_DEVIATION);
+        return (int) Math.max(0, Math.min(255, Math.round(value)));
+    }
+}
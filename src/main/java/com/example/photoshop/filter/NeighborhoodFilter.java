@@ -0,0 +1,48 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+
+/**
+ * A filter that reads a window of input pixels for every output pixel and can fold point operations
+ * into its own loops: a table applied to every input sample as it is read, and a table applied to
+ * every output pixel as it is written. Fusing them this way avoids a separate pass over memory.
+ */
+public interface NeighborhoodFilter extends Filters {
+
+    @Override
+    default ArgbRaster applyFilter(ArgbRaster source) {
+        return applyFilter(source, ChannelLut.identity(), ChannelLut.identity());
+    }
+
+    /**
+     * Applies the filter with fused input and output lookup tables.
+     *
+     * @param source Raster to which the filter is to be applied. It is not modified.
+     * @param inputLut Table applied to each source sample before filtering.
+     * @param outputLut Table applied to each result pixel after filtering.
+     * @return New raster after applying the filter.
+     */
+    ArgbRaster applyFilter(ArgbRaster source, ChannelLut inputLut, ChannelLut outputLut);
+
+    /**
+     * Returns how many rows above and below an output row the filter reads. A filter that knows this can run
+     * on a strip of a larger image, given that many extra rows on either side where the image has them, and
+     * produce the same rows as filtering the whole image.
+     *
+     * @return Rows read on either side, or -1 if an output row may depend on any row of the image.
+     */
+    default int haloRows() {
+        return -1;
+    }
+
+    /**
+     * Returns how many columns left and right of an output pixel the filter reads, so that a change to a
+     * rectangle of the input is known to change only that rectangle grown by this many columns.
+     *
+     * @return Columns read on either side, or -1 if an output pixel may depend on any column of the image.
+     */
+    default int haloColumns() {
+        return haloRows();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ChannelLut;
+
+/**
+ * A filter whose output pixel depends only on the same input pixel, expressed as a lookup table.
+ * Pipelines compose consecutive point filters into one table and fuse it into a neighboring stage.
+ */
+public interface PointFilter extends Filters {
+
+    /**
+     * Returns the lookup table this filter applies.
+     *
+     * @return The lookup table.
+     */
+    ChannelLut getLut();
+}
@@ -0,0 +1,126 @@
+package com.example.photoshop.filter;
+
+/**
+ * Statistics of a convolution's raw responses from which {@link ConvolutionFilter} derives the range it stretches
+ * to [0, 255]: the minimum and maximum of each channel and, for percentile clipping, a histogram of each channel
+ * over the kernel's response bounds. Statistics are gathered per tile or per strip and merged, so their size does
+ * not grow with the image.
+ */
+public final class ResponseStatistics {
+    // Histogram bins per channel. Percentiles interpolate within a bin, so a few thousand bins resolve them to well
+    // below one output level.
+    private static final int BINS = 2048;
+
+    // {minRed, maxRed, minGreen, maxGreen, minBlue, maxBlue}
+    private final float[] minMax = {
+            Float.MAX_VALUE, -Float.MAX_VALUE,
+            Float.MAX_VALUE, -Float.MAX_VALUE,
+            Float.MAX_VALUE, -Float.MAX_VALUE
+    };
+    // Counts of each channel's responses per bin, channel by channel, or null when only the extremes are kept.
+    private final long[] histogram;
+    private final float low;
+    private final float binScale;
+    private long count;
+
+    /**
+     * Creates empty statistics.
+     *
+     * @param low Lowest response the histogram covers.
+     * @param high Highest response the histogram covers.
+     * @param histogram Whether to keep a histogram for percentiles, rather than just the extremes.
+     */
+    ResponseStatistics(float low, float high, boolean histogram) {
+        this.histogram = histogram ? new long[3 * BINS] : null;
+        this.low = low;
+        this.binScale = high > low ? BINS / (high - low) : 0;
+    }
+
+    /**
+     * Returns whether no responses have been gathered.
+     *
+     * @return True if the statistics are empty.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Merges other statistics, gathered with the same bounds, into these.
+     *
+     * @param other Statistics to merge.
+     * @return These statistics.
+     */
+    public ResponseStatistics merge(ResponseStatistics other) {
+        for (int i = 0; i < minMax.length; i += 2) {
+            minMax[i] = Math.min(minMax[i], other.minMax[i]);
+            minMax[i + 1] = Math.max(minMax[i + 1], other.minMax[i + 1]);
+        }
+        if (histogram != null) {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+        }
+        count += other.count;
+        return this;
+    }
+
+    // Adds the responses of a run of pixels, three interleaved floats per pixel.
+    void add(float[] response, int fromPixel, int toPixel) {
+        for (int base = fromPixel * 3; base < toPixel * 3; base += 3) {
+            for (int c = 0; c < 3; c++) {
+                float value = response[base + c];
+                minMax[2 * c] = Math.min(minMax[2 * c], value);
+                minMax[2 * c + 1] = Math.max(minMax[2 * c + 1], value);
+                if (histogram != null) {
+                    int bin = Math.max(0, Math.min((int) ((value - low) * binScale), BINS - 1));
+                    histogram[c * BINS + bin]++;
+                }
+            }
+        }
+        count += toPixel - fromPixel;
+    }
+
+    /**
+     * Returns the range of each channel's responses, leaving out a share of the lowest and highest.
+     *
+     * @param clipPercent Percentage of responses left out at each end; ignored without a histogram.
+     * @return {minRed, maxRed, minGreen, maxGreen, minBlue, maxBlue}, or null if the statistics are empty.
+     */
+    public float[] range(double clipPercent) {
+        if (isEmpty()) {
+            return null;
+        }
+        float[] range = minMax.clone();
+        if (histogram == null || clipPercent <= 0 || binScale == 0) {
+            return range;
+        }
+        double clipped = count * clipPercent / 100;
+        for (int c = 0; c < 3; c++) {
+            float lower = percentile(c, clipped, false);
+            float upper = percentile(c, clipped, true);
+            if (lower < upper) {
+                range[2 * c] = Math.max(range[2 * c], lower);
+                range[2 * c + 1] = Math.min(range[2 * c + 1], upper);
+            }
+        }
+        return range;
+    }
+
+    // Returns the response below which (or, from the top, above which) a number of responses of a channel lie,
+    // assuming the responses of a bin are spread evenly over it.
+    private float percentile(int channel, double clipped, boolean fromTop) {
+        long cumulative = 0;
+        for (int i = 0; i < BINS; i++) {
+            int bin = fromTop ? BINS - 1 - i : i;
+            long binCount = histogram[channel * BINS + bin];
+            if (cumulative + binCount > clipped) {
+                double fraction = (clipped - cumulative) / binCount;
+                double position = fromTop ? bin + 1 - fraction : bin + fraction;
+                return (float) (low + position / binScale);
+            }
+            cumulative += binCount;
+        }
+        return fromTop ? low : low + BINS / binScale;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.photoshop.filter;
+
+/**
+ * Sharpens an image by adding a 4-neighbour Laplacian to each pixel.
+ */
+public class SharpenFilter extends ConvolutionFilter {
+
+    public SharpenFilter() {
+        super(Kernel.sharpen(), OutputMode.CLAMP);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.BufferPool;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.TileScheduler;
+
+/**
+ * Edge-detection filter computing the Sobel gradient magnitude of each color channel.
+ * Both Sobel kernels are separable, so each gradient runs as two 1D passes.
+ */
+public class SobelFilter implements NeighborhoodFilter {
+    private static final Kernel SOBEL_X = Kernel.sobelX();
+    private static final Kernel SOBEL_Y = Kernel.sobelY();
+
+    @Override
+    public ArgbRaster applyFilter(ArgbRaster source, ChannelLut inputLut, ChannelLut outputLut) {
+        int width = source.width();
+        float[] gradientX = ConvolutionFilter.convolve(source, SOBEL_X, inputLut);
+        float[] gradientY = ConvolutionFilter.convolve(source, SOBEL_Y, inputLut);
+        ArgbRaster result = BufferPool.getDefault().raster(width, source.height());
+        int[] in = source.pixels();
+        int[] out = result.pixels();
+
+        // Combine the two gradients into a magnitude per channel, clamped to the 8-bit range.
+        TileScheduler.getDefault().forEachTile(result, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int inIndex = source.rowOffset(y);
+                int outIndex = result.rowOffset(y);
+                for (int x = x0; x < x1; x++) {
+                    int base = (y * width + x) * 3;
+                    out[outIndex + x] = ArgbRaster.pack(ArgbRaster.alpha(in[inIndex + x]),
+                            outputLut.map(magnitude(gradientX[base], gradientY[base])),
+                            outputLut.map(magnitude(gradientX[base + 1], gradientY[base + 1])),
+                            outputLut.map(magnitude(gradientX[base + 2], gradientY[base + 2])));
+                }
+            }
+        });
+        BufferPool.getDefault().release(gradientX);
+        BufferPool.getDefault().release(gradientY);
+        return result;
+    }
+
+    @Override
+    public int haloRows() {
+        return Math.max(SOBEL_X.radiusY(), SOBEL_Y.radiusY());
+    }
+
+    @Override
+    public int haloColumns() {
+        return Math.max(SOBEL_X.radiusX(), SOBEL_Y.radiusX());
+    }
+
+    // Computes the gradient magnitude clamped to [0, 255].
+    private int magnitude(float gx, float gy) {
+        return (int) Math.min(255, Math.round(Math.sqrt(gx * gx + gy * gy)));
+    }
+}
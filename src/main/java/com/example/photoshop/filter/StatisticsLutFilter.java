@@ -0,0 +1,28 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+
+/**
+ * Base of the filters that apply a lookup table derived from {@link ImageStatistics} of the whole image, such as
+ * auto levels. Filtering takes one parallel reduction to gather the statistics and one pass to apply the table,
+ * with the fused input and output tables composed into it. The table depends on every pixel, so a strip or region
+ * of the output needs the whole image; callers that already have statistics, for example of a pyramid level, can
+ * get the table from {@link #lutFor} and apply it themselves.
+ */
+public abstract class StatisticsLutFilter implements NeighborhoodFilter {
+
+    @Override
+    public ArgbRaster applyFilter(ArgbRaster source, ChannelLut inputLut, ChannelLut outputLut) {
+        ImageStatistics statistics = ImageStatistics.of(source, inputLut);
+        return inputLut.andThen(lutFor(statistics)).andThen(outputLut).apply(source);
+    }
+
+    /**
+     * Derives the table the filter applies to an image with the given statistics.
+     *
+     * @param statistics Statistics of the image.
+     * @return Table applied to every channel.
+     */
+    public abstract ChannelLut lutFor(ImageStatistics statistics);
+}
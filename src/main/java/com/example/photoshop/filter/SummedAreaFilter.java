@@ -0,0 +1,81 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.BufferPool;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.TileScheduler;
+
+/**
+ * Base of the filters that compute each output pixel from statistics of a square window around it, read from a
+ * {@link SummedAreaTable}. Building the table is one pass over the image and every window then costs four lookups
+ * per channel, so the filters run in the same time whatever their radius. Windows are clipped to the image, so a
+ * pixel near the border takes the statistics of the pixels that exist rather than of replicated ones. Every output
+ * pixel depends only on the rows within the radius, so any strip or region of the output can be computed from them.
+ */
+public abstract class SummedAreaFilter implements NeighborhoodFilter {
+
+    /**
+     * Largest radius a window may have. Its window stays below {@link SummedAreaTable#MAX_EXACT_AREA}, so its sums
+     * are exact.
+     */
+    public static final int MAX_RADIUS = 1000;
+
+    private final int radius;
+    private final boolean squares;
+
+    /**
+     * Creates a filter over square windows.
+     *
+     * @param radius Radius of the window; the window is (2 * radius + 1) pixels wide.
+     * @param squares Whether the filter needs squared sums, for variances.
+     * @throws IllegalArgumentException if the radius is negative or above {@link #MAX_RADIUS}.
+     */
+    protected SummedAreaFilter(int radius, boolean squares) {
+        if (radius < 0 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("Radius must be in [0, " + MAX_RADIUS + "]");
+        }
+        this.radius = radius;
+        this.squares = squares;
+    }
+
+    @Override
+    public ArgbRaster applyFilter(ArgbRaster source, ChannelLut inputLut, ChannelLut outputLut) {
+        SummedAreaTable table = new SummedAreaTable(source, inputLut, squares);
+        ArgbRaster result = BufferPool.getDefault().raster(source.width(), source.height());
+        int[] lut = inputLut.toIntTable();
+        TileScheduler.getDefault().forEachTile(result, (x0, y0, x1, y1) ->
+                filterTile(table, source, lut, outputLut, result, x0, y0, x1, y1));
+        table.release();
+        return result;
+    }
+
+    @Override
+    public int haloRows() {
+        return radius;
+    }
+
+    @Override
+    public int haloColumns() {
+        return radius;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Writes one tile of the output. Coordinates are half-open: [x0, x1) by [y0, y1).
+     *
+     * @param table Table of the source's samples, after the input table.
+     * @param source Raster being filtered.
+     * @param inputLut Input table as ints, for reading a pixel's own samples as the table summed them.
+     * @param outputLut Table applied to each result pixel.
+     * @param result Raster to write the tile to.
+     * @param x0 Left edge of the tile, inclusive.
+     * @param y0 Top edge of the tile, inclusive.
+     * @param x1 Right edge of the tile, exclusive.
+     * @param y1 Bottom edge of the tile, exclusive.
+     */
+    protected abstract void filterTile(SummedAreaTable table, ArgbRaster source, int[] inputLut, ChannelLut outputLut,
+                                       ArgbRaster result, int x0, int y0, int x1, int y1);
+}
@@ -0,0 +1,256 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.BufferPool;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.TileScheduler;
+
+import java.util.Arrays;
+
+/**
+ * Summed-area table of the red, green and blue channels of a raster: for every corner (x, y) the sum of each
+ * channel over all pixels above and left of it. Once built, the sum, mean and variance of any rectangle take four
+ * lookups per channel, so filters built on the table cost the same whatever their window size.
+ * <p>
+ * The table is built in two parallel passes: prefix sums along each row, split into bands of rows, then along
+ * each column, split into bands of columns. Sums are kept in ints and may wrap around, but a rectangle's sum is a
+ * difference of corners, so it is exact as long as the true sum fits in an int: for any rectangle of up to
+ * {@link #MAX_EXACT_AREA} pixels. Sums of squared samples, needed for variances, are kept in longs and only built
+ * on request.
+ * <p>
+ * The int sums are borrowed from the {@link BufferPool}; {@link #release} returns them once the table is done with.
+ */
+public final class SummedAreaTable {
+
+    /**
+     * Largest rectangle, in pixels, whose sums are exact.
+     */
+    public static final int MAX_EXACT_AREA = Integer.MAX_VALUE / 255;
+
+    private final int width;
+    private final int height;
+    // Entries per row of corners: three channels for each of width + 1 corners.
+    private final int stride;
+    // Channel sums per corner, interleaved red, green, blue, row by row over height + 1 rows.
+    private final int[] sums;
+    // Sums of squared samples in the same layout, or null when not built.
+    private final long[] squares;
+
+    /**
+     * Builds the table of a raster's channels, without squared sums.
+     *
+     * @param source Raster to sum. It is not modified.
+     */
+    public SummedAreaTable(ArgbRaster source) {
+        this(source, ChannelLut.identity(), false);
+    }
+
+    /**
+     * Builds the table of a raster's channels.
+     *
+     * @param source Raster to sum. It is not modified.
+     * @param inputLut Table applied to each sample before it is summed.
+     * @param squares Whether to also sum the squared samples, so that {@link #variance} can be queried.
+     */
+    public SummedAreaTable(ArgbRaster source, ChannelLut inputLut, boolean squares) {
+        this.width = source.width();
+        this.height = source.height();
+        this.stride = 3 * (width + 1);
+        int entries = Math.multiplyExact(stride, height + 1);
+        this.sums = BufferPool.getDefault().ints(entries);
+        this.squares = squares ? new long[entries] : null;
+        Arrays.fill(sums, 0, stride, 0);
+        sumRows(source, inputLut.toIntTable());
+        sumColumns();
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns whether the table holds squared sums, so that {@link #variance} can be queried.
+     *
+     * @return True if the table was built with squared sums.
+     */
+    public boolean hasSquares() {
+        return squares != null;
+    }
+
+    /**
+     * Returns the sum of one channel over a rectangle. Coordinates are half-open: [x0, x1) by [y0, y1).
+     *
+     * @param channel 0 for red, 1 for green, 2 for blue.
+     * @param x0 Left edge, inclusive.
+     * @param y0 Top edge, inclusive.
+     * @param x1 Right edge, exclusive.
+     * @param y1 Bottom edge, exclusive.
+     * @return Sum of the channel's samples in the rectangle.
+     * @throws IllegalArgumentException if the rectangle lies outside the table or has more than
+     *                                  {@link #MAX_EXACT_AREA} pixels.
+     */
+    public long sum(int channel, int x0, int y0, int x1, int y1) {
+        checkRectangle(channel, x0, y0, x1, y1);
+        int a = index(x0, y0) + channel, b = index(x1, y0) + channel;
+        int c = index(x0, y1) + channel, d = index(x1, y1) + channel;
+        // The corners may have wrapped around, but the rectangle's sum fits in an int, so the difference is exact.
+        return sums[d] - sums[b] - sums[c] + sums[a];
+    }
+
+    /**
+     * Returns the mean of one channel over a rectangle.
+     *
+     * @param channel 0 for red, 1 for green, 2 for blue.
+     * @param x0 Left edge, inclusive.
+     * @param y0 Top edge, inclusive.
+     * @param x1 Right edge, exclusive.
+     * @param y1 Bottom edge, exclusive.
+     * @return Mean of the channel's samples in the rectangle, or 0 if it is empty.
+     * @throws IllegalArgumentException if the rectangle lies outside the table or has more than
+     *                                  {@link #MAX_EXACT_AREA} pixels.
+     */
+    public double mean(int channel, int x0, int y0, int x1, int y1) {
+        long sum = sum(channel, x0, y0, x1, y1);
+        long area = (long) (x1 - x0) * (y1 - y0);
+        return area == 0 ? 0 : (double) sum / area;
+    }
+
+    /**
+     * Returns the population variance of one channel over a rectangle.
+     *
+     * @param channel 0 for red, 1 for green, 2 for blue.
+     * @param x0 Left edge, inclusive.
+     * @param y0 Top edge, inclusive.
+     * @param x1 Right edge, exclusive.
+     * @param y1 Bottom edge, exclusive.
+     * @return Variance of the channel's samples in the rectangle, or 0 if it is empty.
+     * @throws IllegalArgumentException if the rectangle lies outside the table or has more than
+     *                                  {@link #MAX_EXACT_AREA} pixels.
+     * @throws IllegalStateException if the table was built without squared sums.
+     */
+    public double variance(int channel, int x0, int y0, int x1, int y1) {
+        if (squares == null) {
+            throw new IllegalStateException("Table was built without squared sums");
+        }
+        long sum = sum(channel, x0, y0, x1, y1);
+        long area = (long) (x1 - x0) * (y1 - y0);
+        if (area == 0) {
+            return 0;
+        }
+        int a = index(x0, y0) + channel, b = index(x1, y0) + channel;
+        int c = index(x0, y1) + channel, d = index(x1, y1) + channel;
+        long squareSum = squares[d] - squares[b] - squares[c] + squares[a];
+        // Computed from exact integer sums, so there is no cancellation error beyond the final division.
+        return Math.max(0, (double) (squareSum * area - sum * sum) / ((double) area * area));
+    }
+
+    /**
+     * Returns the int sums to the {@link BufferPool}. The table must not be used again.
+     */
+    public void release() {
+        BufferPool.getDefault().release(sums);
+    }
+
+    /**
+     * Writes the sums of the three channels over a rectangle, without checking its bounds, for filters that query
+     * every pixel's window.
+     *
+     * @param x0 Left edge, inclusive.
+     * @param y0 Top edge, inclusive.
+     * @param x1 Right edge, exclusive.
+     * @param y1 Bottom edge, exclusive.
+     * @param out Receives the red, green and blue sums.
+     */
+    void sums(int x0, int y0, int x1, int y1, int[] out) {
+        int a = index(x0, y0), b = index(x1, y0), c = index(x0, y1), d = index(x1, y1);
+        for (int channel = 0; channel < 3; channel++) {
+            out[channel] = sums[d + channel] - sums[b + channel] - sums[c + channel] + sums[a + channel];
+        }
+    }
+
+    /**
+     * Writes the sums of the squared samples of the three channels over a rectangle, without checking its bounds.
+     *
+     * @param x0 Left edge, inclusive.
+     * @param y0 Top edge, inclusive.
+     * @param x1 Right edge, exclusive.
+     * @param y1 Bottom edge, exclusive.
+     * @param out Receives the red, green and blue sums of squares.
+     */
+    void squareSums(int x0, int y0, int x1, int y1, long[] out) {
+        int a = index(x0, y0), b = index(x1, y0), c = index(x0, y1), d = index(x1, y1);
+        for (int channel = 0; channel < 3; channel++) {
+            out[channel] = squares[d + channel] - squares[b + channel] - squares[c + channel] + squares[a + channel];
+        }
+    }
+
+    // Index of the red sum of corner (x, y).
+    private int index(int x, int y) {
+        return y * stride + 3 * x;
+    }
+
+    // Fills every row of corners below the first with the prefix sums of its source row, in parallel bands of rows.
+    private void sumRows(ArgbRaster source, int[] lut) {
+        int[] in = source.pixels();
+        TileScheduler.getDefault().forEachTile(1, height, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int inIndex = source.rowOffset(y);
+                int outIndex = index(0, y + 1);
+                int red = 0, green = 0, blue = 0;
+                long redSquares = 0, greenSquares = 0, blueSquares = 0;
+                sums[outIndex] = sums[outIndex + 1] = sums[outIndex + 2] = 0;
+                for (int x = 0; x < width; x++) {
+                    int argb = in[inIndex + x];
+                    int r = lut[ArgbRaster.red(argb)];
+                    int g = lut[ArgbRaster.green(argb)];
+                    int b = lut[ArgbRaster.blue(argb)];
+                    int i = outIndex + 3 * (x + 1);
+                    sums[i] = red += r;
+                    sums[i + 1] = green += g;
+                    sums[i + 2] = blue += b;
+                    if (squares != null) {
+                        squares[i] = redSquares += r * r;
+                        squares[i + 1] = greenSquares += g * g;
+                        squares[i + 2] = blueSquares += b * b;
+                    }
+                }
+            }
+        });
+    }
+
+    // Accumulates the row prefix sums down each column, in parallel bands of columns. Int sums may wrap around.
+    private void sumColumns() {
+        TileScheduler.getDefault().forEachTile(stride, 1, (x0, y0, x1, y1) -> {
+            for (int y = 2; y <= height; y++) {
+                int row = y * stride;
+                int above = row - stride;
+                for (int i = x0; i < x1; i++) {
+                    sums[row + i] += sums[above + i];
+                }
+                if (squares != null) {
+                    for (int i = x0; i < x1; i++) {
+                        squares[row + i] += squares[above + i];
+                    }
+                }
+            }
+        });
+    }
+
+    // Checks that a channel and rectangle can be queried exactly.
+    private void checkRectangle(int channel, int x0, int y0, int x1, int y1) {
+        if (channel < 0 || channel > 2) {
+            throw new IllegalArgumentException("Channel must be 0, 1 or 2");
+        }
+        if (x0 < 0 || y0 < 0 || x1 > width || y1 > height || x0 > x1 || y0 > y1) {
+            throw new IllegalArgumentException("Rectangle outside the table: [" + x0 + ", " + x1 + ") x ["
+                    + y0 + ", " + y1 + ")");
+        }
+        if ((long) (x1 - x0) * (y1 - y0) > MAX_EXACT_AREA) {
+            throw new IllegalArgumentException("Rectangle larger than " + MAX_EXACT_AREA + " pixels");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.photoshop.interploators;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import javafx.scene.image.PixelReader;
+import javafx.scene.paint.Color;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Downscaling interpolator that averages every source pixel an output pixel covers, weighted by the
+ * fraction of it that is covered. Unlike point samplers it uses every source pixel, so shrinking by
+ * large factors does not alias. {@link InterpolatorFactory} picks it automatically for scales below 1.
+ * <p>
+ * It is bound to the scale it was created for: output pixel x covers source columns [x / scale, (x + 1) / scale),
+ * and likewise for rows. {@link ImageResizer} resizes with it in linear time over the source, without
+ * calling the per-pixel methods.
+ */
+public class AreaAveragingInterpolator implements Interpolator {
+    private final double scale;
+
+    /**
+     * Creates the interpolator for one scale factor.
+     *
+     * @param scale Scale factor of the resize, in (0, 1].
+     * @throws IllegalArgumentException if the scale is not in (0, 1].
+     */
+    public AreaAveragingInterpolator(double scale) {
+        if (!(scale > 0 && scale <= 1)) {
+            throw new IllegalArgumentException("Area averaging needs a scale in (0, 1]");
+        }
+        this.scale = scale;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Averages the source area of the output pixel whose footprint starts at (x, y).
+     *
+     * @param reader PixelReader of the image.
+     * @param x Left edge of the footprint in source pixels.
+     * @param y Top edge of the footprint in source pixels.
+     * @param maxWidth Maximum width of the image.
+     * @param maxHeight Maximum height of the image.
+     * @return Average color of the footprint.
+     */
+    @Override
+    public Color interpolate(PixelReader reader, double x, double y, int maxWidth, int maxHeight) {
+        int argb = average(reader::getArgb, x, y, maxWidth, maxHeight);
+        return Color.rgb(ArgbRaster.red(argb), ArgbRaster.green(argb), ArgbRaster.blue(argb), ArgbRaster.alpha(argb) / 255.0);
+    }
+
+    /**
+     * Averages the source area of the output pixel whose footprint starts at (x, y) in a raster.
+     *
+     * @param source Raster to sample from.
+     * @param x Left edge of the footprint in source pixels.
+     * @param y Top edge of the footprint in source pixels.
+     * @param sampleLut Table applied to the color channels of each source pixel before averaging.
+     * @return Packed ARGB average of the footprint.
+     */
+    @Override
+    public int interpolate(ArgbRaster source, double x, double y, ChannelLut sampleLut) {
+        return average((sampleX, sampleY) -> sampleLut.apply(source.getArgb(sampleX, sampleY)),
+                x, y, source.width(), source.height());
+    }
+
+    // Averages the footprint [x, x + 1 / scale) x [y, y + 1 / scale), clipped to the source, by coverage.
+    private int average(IntBinaryOperator sampler, double x, double y, int width, int height) {
+        double right = Math.min(x + 1 / scale, width);
+        double bottom = Math.min(y + 1 / scale, height);
+        double[] sums = new double[4];
+        double area = 0;
+        for (int sampleY = (int) y; sampleY < bottom; sampleY++) {
+            double coverY = Math.min(sampleY + 1, bottom) - Math.max(sampleY, y);
+            for (int sampleX = (int) x; sampleX < right; sampleX++) {
+                double cover = coverY * (Math.min(sampleX + 1, right) - Math.max(sampleX, x));
+                int argb = sampler.applyAsInt(sampleX, sampleY);
+                for (int c = 0; c < 4; c++) {
+                    sums[c] += cover * ((argb >>> (8 * c)) & 0xFF);
+                }
+                area += cover;
+            }
+        }
+        return ResamplingTable.pack(sums[0] / area, sums[1] / area, sums[2] / area, sums[3] / area);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.photoshop.interploators;
+
+/**
+ * Bicubic interpolation with the Keys cubic convolution kernel (a = -0.5, also known as Catmull-Rom),
+ * which passes through the source samples and keeps edges sharper than bilinear interpolation.
+ * Its negative lobes can overshoot, so results are clamped to the channel range.
+ */
+public class BicubicInterpolator implements SeparableInterpolator {
+    // Keys' free parameter; -0.5 makes the kernel reproduce quadratic signals.
+    private static final double A = -0.5;
+
+    @Override
+    public int taps() {
+        return 4;
+    }
+
+    /**
+     * Evaluates the cubic convolution kernel.
+     *
+     * @param distance Distance from the sample position in source pixels.
+     * @return Weight of a tap at that distance.
+     */
+    @Override
+    public double weight(double distance) {
+        double d = Math.abs(distance);
+        if (d <= 1) {
+            return ((A + 2) * d - (A + 3)) * d * d + 1;
+        }
+        if (d < 2) {
+            return ((A * d - 5 * A) * d + 8 * A) * d - 4 * A;
+        }
+        return 0;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.photoshop.interploators;
 
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
 import javafx.scene.image.PixelReader;
 import javafx.scene.paint.Color;
 
@@ -33,6 +35,40 @@ public class BilinearInterpolator implements Interpolator {
         return interpolateColors(topLeft, topRight, bottomLeft, bottomRight, xFraction, yFraction);
     }
 
+    /**
+     * Performs bilinear interpolation for a given point (x, y) in a raster.
+     *
+     * @param source Raster to sample from.
+     * @param x X-coordinate of the point for interpolation.
+     * @param y Y-coordinate of the point for interpolation.
+     * @param sampleLut Table applied to the color channels of the four samples before blending.
+     * @return Packed ARGB value interpolated at the specified point.
+     */
+    @Override
+    public int interpolate(ArgbRaster source, double x, double y, ChannelLut sampleLut) {
+        int xFloor = (int) x;
+        int yFloor = (int) y;
+        int xCeil = Math.min(xFloor + 1, source.width() - 1);
+        int yCeil = Math.min(yFloor + 1, source.height() - 1);
+
+        double xFraction = x - xFloor;
+        double yFraction = y - yFloor;
+
+        int topLeft = sampleLut.apply(source.getArgb(xFloor, yFloor));
+        int topRight = sampleLut.apply(source.getArgb(xCeil, yFloor));
+        int bottomLeft = sampleLut.apply(source.getArgb(xFloor, yCeil));
+        int bottomRight = sampleLut.apply(source.getArgb(xCeil, yCeil));
+
+        // Interpolate each 8-bit channel separately, shifting it down from its position in the packed value.
+        int argb = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            double value = interpolate((topLeft >>> shift) & 0xFF, (topRight >>> shift) & 0xFF,
+                    (bottomLeft >>> shift) & 0xFF, (bottomRight >>> shift) & 0xFF, xFraction, yFraction);
+            argb |= (int) Math.round(value) << shift;
+        }
+        return argb;
+    }
+
 
     // Interpolates colors based on the fractional positions
     private Color interpolateColors(Color topLeft, Color topRight, Color bottomLeft, Color bottomRight, double xFraction, double yFraction) {
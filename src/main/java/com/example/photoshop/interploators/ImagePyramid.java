@@ -0,0 +1,76 @@
+package com.example.photoshop.interploators;
+
+import com.example.photoshop.raster.ArgbRaster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Mipmap pyramid of a raster: level 0 is the raster itself and every further level halves both
+ * dimensions of the one before it. Interactive previews render from the smallest level that still
+ * covers the on-screen size instead of from the full-resolution source.
+ */
+public final class ImagePyramid {
+    // Levels stop once the longest edge would drop below this many pixels.
+    private static final int MIN_LEVEL_SIZE = 64;
+
+    private final List<ArgbRaster> levels;
+
+    private ImagePyramid(List<ArgbRaster> levels) {
+        this.levels = Collections.unmodifiableList(levels);
+    }
+
+    /**
+     * Builds the pyramid by repeatedly halving with pixel-center-aligned bilinear sampling, which averages
+     * each 2x2 block. Every level is computed in parallel on the default tile scheduler.
+     *
+     * @param base Full-resolution raster; kept as level 0 without copying.
+     * @return The pyramid.
+     */
+    public static ImagePyramid build(ArgbRaster base) {
+        List<ArgbRaster> levels = new ArrayList<>();
+        levels.add(base);
+        Interpolator interpolator = new BilinearInterpolator();
+        ArgbRaster level = base;
+        while (Math.max(level.width(), level.height()) / 2 >= MIN_LEVEL_SIZE) {
+            level = ImageResizer.resizeTo(level, Math.max(level.width() / 2, 1), Math.max(level.height() / 2, 1), interpolator);
+            levels.add(level);
+        }
+        return new ImagePyramid(levels);
+    }
+
+    public int levelCount() {
+        return levels.size();
+    }
+
+    /**
+     * Returns a level of the pyramid.
+     *
+     * @param index Level index; 0 is full resolution.
+     * @return The level's raster.
+     */
+    public ArgbRaster level(int index) {
+        return levels.get(index);
+    }
+
+    /**
+     * Returns the smallest level that still has at least the given fraction of the full resolution,
+     * so it can be downscaled, never upscaled, to the requested size.
+     *
+     * @param fraction Required size relative to level 0, in (0, 1].
+     * @return Index of the matching level.
+     */
+    public int levelFor(double fraction) {
+        ArgbRaster base = levels.get(0);
+        int index = 0;
+        while (index + 1 < levels.size()) {
+            ArgbRaster next = levels.get(index + 1);
+            if (next.width() < base.width() * fraction || next.height() < base.height() * fraction) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+}
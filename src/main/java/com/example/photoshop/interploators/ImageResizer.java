@@ -0,0 +1,686 @@
+package com.example.photoshop.interploators;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.BufferPool;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.FixedPoint;
+import com.example.photoshop.raster.Simd;
+import com.example.photoshop.raster.TileScheduler;
+import com.example.photoshop.raster.VectorKernels;
+
+import java.util.Arrays;
+
+/**
+ * Resizes rasters by sampling each output pixel through an {@link Interpolator}.
+ * <p>
+ * The built-in interpolators are resampled row by row instead of pixel by pixel: the source columns and
+ * weights of every output column are computed once per resize, each source row is filtered horizontally
+ * once per tile however many output rows use it, and output rows combine filtered rows. The results are
+ * identical to interpolating every pixel on its own, which remains the route for other interpolators.
+ * Downscaling with {@link AreaAveragingInterpolator} averages whole footprints in linear time instead.
+ * When {@link FixedPoint#isEnabled()} bilinear resizing runs in 16.16 fixed point, within one level of the
+ * floating-point result.
+ */
+public final class ImageResizer {
+    // How close 1 / scale must be to a whole number for area averaging to treat it as one.
+    private static final double RATIO_TOLERANCE = 1e-9;
+    // Halvings before area averaging; 2^16 already exceeds any raster side.
+    private static final int MAX_HALVINGS = 16;
+    // One in 16.16 fixed point, the scale of fixed-point bilinear weights.
+    private static final int FIXED_ONE = 1 << 16;
+
+    private ImageResizer() {
+    }
+
+    /**
+     * Resizes a raster by a uniform scale factor, one output tile per task on the default scheduler.
+     *
+     * @param source Raster to resize.
+     * @param scale Scale factor; values below 1 shrink the raster.
+     * @param interpolator Interpolator used to sample the source.
+     * @return New raster of size (width * scale) × (height * scale).
+     */
+    public static ArgbRaster resize(ArgbRaster source, double scale, Interpolator interpolator) {
+        return resize(source, scale, interpolator, ChannelLut.identity(), ChannelLut.identity());
+    }
+
+    /**
+     * Resizes a raster with fused point operations: one table applied to every source sample
+     * before interpolation and one applied to every output pixel after it.
+     *
+     * @param source Raster to resize.
+     * @param scale Scale factor; values below 1 shrink the raster.
+     * @param interpolator Interpolator used to sample the source.
+     * @param inputLut Table applied to source samples.
+     * @param outputLut Table applied to output pixels.
+     * @return New raster of size (width * scale) × (height * scale).
+     */
+    public static ArgbRaster resize(ArgbRaster source, double scale, Interpolator interpolator,
+                                    ChannelLut inputLut, ChannelLut outputLut) {
+        // Calculate new dimensions for resizing.
+        int newWidth = (int) (source.width() * scale);
+        int newHeight = (int) (source.height() * scale);
+        return resizeRegion(source, scale, interpolator, inputLut, outputLut, 0, 0, newWidth, newHeight);
+    }
+
+    /**
+     * Computes only a rectangular region of a resize, for example the part of a zoomed image that is on
+     * screen. Every pixel of the region equals the pixel at the same position in the full resize.
+     *
+     * @param source Raster to resize.
+     * @param scale Scale factor; values below 1 shrink the raster.
+     * @param interpolator Interpolator used to sample the source.
+     * @param inputLut Table applied to source samples.
+     * @param outputLut Table applied to output pixels.
+     * @param x0 Left edge of the region in output coordinates, inclusive.
+     * @param y0 Top edge of the region in output coordinates, inclusive.
+     * @param x1 Right edge of the region in output coordinates, exclusive.
+     * @param y1 Bottom edge of the region in output coordinates, exclusive.
+     * @return New raster of size (x1 - x0) × (y1 - y0) holding the region.
+     */
+    public static ArgbRaster resizeRegion(ArgbRaster source, double scale, Interpolator interpolator,
+                                          ChannelLut inputLut, ChannelLut outputLut, int x0, int y0, int x1, int y1) {
+        return resizeBand(source, 0, source.height(), scale, interpolator, inputLut, outputLut, x0, y0, x1, y1);
+    }
+
+    /**
+     * Computes a region of a resize from a band of consecutive source rows, for sources that are streamed in
+     * strips rather than held in memory. The band must contain every row {@link #sourceRows} names for the
+     * region's rows; the region then equals the same region of a resize of the whole source.
+     *
+     * @param band Source rows [bandY, bandY + band.height()), at the full source width.
+     * @param bandY Source row held in the band's first row.
+     * @param sourceHeight Height of the whole source.
+     * @param scale Scale factor; values below 1 shrink the source.
+     * @param interpolator Interpolator used to sample the source.
+     * @param inputLut Table applied to source samples.
+     * @param outputLut Table applied to output pixels.
+     * @param x0 Left edge of the region in output coordinates, inclusive.
+     * @param y0 Top edge of the region in output coordinates, inclusive.
+     * @param x1 Right edge of the region in output coordinates, exclusive.
+     * @param y1 Bottom edge of the region in output coordinates, exclusive.
+     * @return New raster of size (x1 - x0) × (y1 - y0) holding the region.
+     * @throws IllegalArgumentException if the interpolator needs the whole source and the band is not all of it.
+     */
+    public static ArgbRaster resizeBand(ArgbRaster band, int bandY, int sourceHeight, double scale,
+                                        Interpolator interpolator, ChannelLut inputLut, ChannelLut outputLut,
+                                        int x0, int y0, int x1, int y1) {
+        if (interpolator instanceof AreaAveragingInterpolator) {
+            return resizeRegionArea(band, bandY, sourceHeight, scale, inputLut, outputLut, x0, y0, x1, y1);
+        }
+        if (interpolator instanceof SeparableInterpolator separable) {
+            return resizeRegionSeparable(band, bandY, sourceHeight, scale, separable, inputLut, outputLut, x0, y0, x1, y1);
+        }
+        if (interpolator.getClass() == BilinearInterpolator.class) {
+            return resizeRegionBilinear(band, bandY, sourceHeight, scale, inputLut, outputLut, x0, y0, x1, y1);
+        }
+        if (interpolator.getClass() == NearestNeighborInterpolator.class) {
+            return resizeRegionNearest(band, bandY, sourceHeight, scale, inputLut, outputLut, x0, y0, x1, y1);
+        }
+        if (bandY != 0 || band.height() != sourceHeight) {
+            throw new IllegalArgumentException(interpolator.getClass().getSimpleName() + " needs the whole source");
+        }
+        ArgbRaster source = band;
+
+        // Prepare the raster for the resized region.
+        ArgbRaster resized = BufferPool.getDefault().raster(x1 - x0, y1 - y0);
+        int[] out = resized.pixels();
+
+        // Resize the region using the interpolator, one output tile per task.
+        TileScheduler.getDefault().forEachTile(resized, (tileX0, tileY0, tileX1, tileY1) -> {
+            for (int y = tileY0; y < tileY1; y++) {
+                double scaleY = ((y + y0) / scale);
+                int outIndex = resized.rowOffset(y);
+                for (int x = tileX0; x < tileX1; x++) {
+                    double scaleX = ((x + x0) / scale);
+                    out[outIndex + x] = outputLut.apply(interpolator.interpolate(source, scaleX, scaleY, inputLut));
+                }
+            }
+        });
+
+        return resized;
+    }
+
+    /**
+     * Returns the source rows that a range of output rows reads, so a streamed resize knows which band of
+     * the source to hold. Interpolators without a row-oriented path read the whole source.
+     *
+     * @param interpolator Interpolator used to sample the source.
+     * @param scale Scale factor of the resize.
+     * @param sourceHeight Height of the whole source.
+     * @param y0 First output row, inclusive.
+     * @param y1 Last output row, exclusive; greater than y0.
+     * @return The first source row, inclusive, and the last, exclusive.
+     */
+    public static int[] sourceRows(Interpolator interpolator, double scale, int sourceHeight, int y0, int y1) {
+        if (interpolator instanceof AreaAveragingInterpolator) {
+            int block = 1 << areaHalvings(scale);
+            return new int[] {(int) (y0 / scale) / block * block,
+                    Math.min((int) Math.ceil(y1 / scale / block) * block, sourceHeight)};
+        }
+        if (interpolator instanceof SeparableInterpolator separable) {
+            ResamplingTable rows = ResamplingTable.of(separable, sourceHeight, scale);
+            return new int[] {rows.index(y0, 0), rows.index(y1 - 1, rows.taps() - 1) + 1};
+        }
+        if (interpolator.getClass() == BilinearInterpolator.class) {
+            return new int[] {(int) (y0 / scale), Math.min((int) ((y1 - 1) / scale) + 1, sourceHeight - 1) + 1};
+        }
+        if (interpolator.getClass() == NearestNeighborInterpolator.class) {
+            return new int[] {ResamplingTable.clamp((int) Math.round(y0 / scale), sourceHeight),
+                    ResamplingTable.clamp((int) Math.round((y1 - 1) / scale), sourceHeight) + 1};
+        }
+        return new int[] {0, sourceHeight};
+    }
+
+    // Nearest neighbor resize of a region: every output pixel copies one source pixel, whose column is
+    // looked up in a table computed once for all rows.
+    private static ArgbRaster resizeRegionNearest(ArgbRaster source, int bandY, int sourceHeight, double scale,
+                                                  ChannelLut inputLut, ChannelLut outputLut,
+                                                  int x0, int y0, int x1, int y1) {
+        ArgbRaster resized = BufferPool.getDefault().raster(x1 - x0, y1 - y0);
+        int[] pixels = source.pixels();
+        int[] out = resized.pixels();
+        int[] columns = new int[x1 - x0];
+        for (int x = 0; x < columns.length; x++) {
+            columns[x] = ResamplingTable.clamp((int) Math.round((x + x0) / scale), source.width());
+        }
+        ChannelLut lut = inputLut.andThen(outputLut);
+
+        TileScheduler.getDefault().forEachTile(resized, (tileX0, tileY0, tileX1, tileY1) -> {
+            for (int y = tileY0; y < tileY1; y++) {
+                int row = source.rowOffset(ResamplingTable.clamp((int) Math.round((y + y0) / scale), sourceHeight) - bandY);
+                int outIndex = resized.rowOffset(y);
+                for (int x = tileX0; x < tileX1; x++) {
+                    out[outIndex + x] = lut.apply(pixels[row + columns[x]]);
+                }
+            }
+        });
+
+        return resized;
+    }
+
+    // Bilinear resize of a region in two passes: each source row a tile needs is resampled horizontally once,
+    // however many output rows share it, and output rows blend two such rows, with vector instructions when
+    // Simd is enabled. The operations match BilinearInterpolator exactly, so the pixels do too.
+    private static ArgbRaster resizeRegionBilinear(ArgbRaster source, int bandY, int sourceHeight, double scale,
+                                                   ChannelLut inputLut, ChannelLut outputLut,
+                                                   int x0, int y0, int x1, int y1) {
+        if (FixedPoint.isEnabled()) {
+            return resizeRegionBilinearFixed(source, bandY, sourceHeight, scale, inputLut, outputLut, x0, y0, x1, y1);
+        }
+        ArgbRaster resized = BufferPool.getDefault().raster(x1 - x0, y1 - y0);
+        int[] out = resized.pixels();
+        // Source columns and weight of every output column; the same for every row.
+        int[] left = new int[x1 - x0];
+        int[] right = new int[x1 - x0];
+        double[] fractions = new double[x1 - x0];
+        for (int x = 0; x < left.length; x++) {
+            double sourceX = (x + x0) / scale;
+            left[x] = (int) sourceX;
+            right[x] = Math.min(left[x] + 1, source.width() - 1);
+            fractions[x] = sourceX - left[x];
+        }
+
+        TileScheduler.getDefault().forEachTile(resized, (tileX0, tileY0, tileX1, tileY1) -> {
+            int length = tileX1 - tileX0;
+            double[][] top = new double[4][length];
+            double[][] bottom = new double[4][length];
+            int topRow = -1;
+            int bottomRow = -1;
+            for (int y = tileY0; y < tileY1; y++) {
+                double sourceY = (y + y0) / scale;
+                int upper = (int) sourceY;
+                int lower = Math.min(upper + 1, sourceHeight - 1);
+                if (upper != topRow) {
+                    if (upper == bottomRow) {
+                        // Moving down one source row: the old lower row becomes the upper one.
+                        double[][] swap = top;
+                        top = bottom;
+                        bottom = swap;
+                        bottomRow = topRow;
+                    } else {
+                        resampleRow(source, upper - bandY, left, right, fractions, tileX0, inputLut, top);
+                    }
+                    topRow = upper;
+                }
+                if (lower != bottomRow) {
+                    resampleRow(source, lower - bandY, left, right, fractions, tileX0, inputLut, bottom);
+                    bottomRow = lower;
+                }
+
+                int outIndex = resized.rowOffset(y) + tileX0;
+                if (Simd.isEnabled()) {
+                    VectorKernels.lerpRows(top, bottom, sourceY - upper, out, outIndex, length);
+                } else {
+                    lerpRows(top, bottom, sourceY - upper, out, outIndex, length);
+                }
+                if (!outputLut.isIdentity()) {
+                    for (int x = outIndex; x < outIndex + length; x++) {
+                        out[x] = outputLut.apply(out[x]);
+                    }
+                }
+            }
+        });
+
+        return resized;
+    }
+
+    // Bilinear resize of a region in integer arithmetic, in the same two passes as resizeRegionBilinear. Weights are
+    // 16.16 fixed-point fractions, and resampled rows are kept as 8.8 fixed-point chars, a quarter of the size of
+    // doubles. Rounding the rows to 8.8 can move a channel by one level from the floating-point result.
+    private static ArgbRaster resizeRegionBilinearFixed(ArgbRaster source, int bandY, int sourceHeight, double scale,
+                                                        ChannelLut inputLut, ChannelLut outputLut,
+                                                        int x0, int y0, int x1, int y1) {
+        ArgbRaster resized = BufferPool.getDefault().raster(x1 - x0, y1 - y0);
+        int[] out = resized.pixels();
+        int[] left = new int[x1 - x0];
+        int[] right = new int[x1 - x0];
+        int[] weights = new int[x1 - x0];
+        for (int x = 0; x < left.length; x++) {
+            double sourceX = (x + x0) / scale;
+            left[x] = (int) sourceX;
+            right[x] = Math.min(left[x] + 1, source.width() - 1);
+            weights[x] = (int) Math.round((sourceX - left[x]) * FIXED_ONE);
+        }
+
+        TileScheduler.getDefault().forEachTile(resized, (tileX0, tileY0, tileX1, tileY1) -> {
+            int length = tileX1 - tileX0;
+            char[][] top = new char[4][length];
+            char[][] bottom = new char[4][length];
+            int topRow = -1;
+            int bottomRow = -1;
+            for (int y = tileY0; y < tileY1; y++) {
+                double sourceY = (y + y0) / scale;
+                int upper = (int) sourceY;
+                int lower = Math.min(upper + 1, sourceHeight - 1);
+                if (upper != topRow) {
+                    if (upper == bottomRow) {
+                        char[][] swap = top;
+                        top = bottom;
+                        bottom = swap;
+                        bottomRow = topRow;
+                    } else {
+                        resampleRowFixed(source, upper - bandY, left, right, weights, tileX0, inputLut, top);
+                    }
+                    topRow = upper;
+                }
+                if (lower != bottomRow) {
+                    resampleRowFixed(source, lower - bandY, left, right, weights, tileX0, inputLut, bottom);
+                    bottomRow = lower;
+                }
+
+                int lowerWeight = (int) Math.round((sourceY - upper) * FIXED_ONE);
+                int upperWeight = FIXED_ONE - lowerWeight;
+                int outIndex = resized.rowOffset(y) + tileX0;
+                for (int i = 0; i < length; i++) {
+                    int argb = 0;
+                    for (int c = 0; c < 4; c++) {
+                        // An 8.8 value times a 16.16 weight is 8.24. The blend is below 2^32 but may exceed
+                        // 2^31, so it is rounded and shifted as an unsigned int.
+                        int blend = top[c][i] * upperWeight + bottom[c][i] * lowerWeight + (1 << 23);
+                        argb |= (blend >>> 24) << (8 * c);
+                    }
+                    out[outIndex + i] = outputLut.apply(argb);
+                }
+            }
+        });
+
+        return resized;
+    }
+
+    // Area-averaging resize of a region. When the ratio is a whole number with factors of 2, the part of the
+    // source the region covers is first halved that many times by averaging 2x2 blocks in integer arithmetic,
+    // which is exact there because every footprint consists of whole blocks. The rest of the ratio is then
+    // averaged by coverage, reading every source pixel once and keeping only a few rows in memory.
+    private static ArgbRaster resizeRegionArea(ArgbRaster source, int bandY, int sourceHeight, double scale,
+                                               ChannelLut inputLut, ChannelLut outputLut,
+                                               int x0, int y0, int x1, int y1) {
+        int halvings = areaHalvings(scale);
+        int block = 1 << halvings;
+        // Crop to the source pixels the region covers, widened to whole blocks of the halvings.
+        int cropX0 = (int) (x0 / scale) / block * block;
+        int cropY0 = (int) (y0 / scale) / block * block;
+        int cropX1 = Math.min((int) Math.ceil(x1 / scale / block) * block, source.width());
+        int cropY1 = Math.min((int) Math.ceil(y1 / scale / block) * block, sourceHeight);
+        ArgbRaster level = source.region(cropX0, cropY0 - bandY, cropX1 - cropX0, cropY1 - cropY0);
+        ChannelLut levelLut = inputLut;
+        for (int i = 0; i < halvings; i++) {
+            ArgbRaster halved = halve(level, levelLut);
+            // Every halving but the first reads one this method made, which nothing else refers to.
+            if (i > 0) {
+                BufferPool.getDefault().release(level);
+            }
+            level = halved;
+            levelLut = ChannelLut.identity();
+        }
+
+        // Footprint of every output column and row in the coordinates of the halved crop.
+        double levelScale = scale * block;
+        Footprints columns = new Footprints(x0, x1, levelScale, (double) cropX0 / block, (double) (cropX1 - cropX0) / block);
+        Footprints rows = new Footprints(y0, y1, levelScale, (double) cropY0 / block, (double) (cropY1 - cropY0) / block);
+
+        ArgbRaster averaged = level;
+        ChannelLut sampleLut = levelLut;
+        ArgbRaster resized = BufferPool.getDefault().raster(x1 - x0, y1 - y0);
+        int[] out = resized.pixels();
+        TileScheduler.getDefault().forEachTile(resized, (tileX0, tileY0, tileX1, tileY1) -> {
+            int length = tileX1 - tileX0;
+            int from = columns.first[tileX0];
+            int[][] sums = new int[4][columns.last[tileX1 - 1] - from + 2];
+            double[][] filtered = new double[4][length];
+            int filteredRow = -1;
+            double[][] accumulated = new double[4][length];
+
+            for (int y = tileY0; y < tileY1; y++) {
+                for (int sourceY = rows.first[y]; sourceY <= rows.last[y]; sourceY++) {
+                    // The row straddling two footprints is filtered once for both.
+                    if (sourceY != filteredRow) {
+                        averageRow(averaged, sourceY, from, sampleLut, sums, columns, tileX0, filtered);
+                        filteredRow = sourceY;
+                    }
+                    double cover = rows.cover(y, sourceY);
+                    for (int c = 0; c < 4; c++) {
+                        double[] sum = accumulated[c];
+                        double[] row = filtered[c];
+                        if (sourceY == rows.first[y]) {
+                            for (int i = 0; i < length; i++) {
+                                sum[i] = cover * row[i];
+                            }
+                        } else {
+                            for (int i = 0; i < length; i++) {
+                                sum[i] += cover * row[i];
+                            }
+                        }
+                    }
+                }
+                int outIndex = resized.rowOffset(y) + tileX0;
+                for (int i = 0; i < length; i++) {
+                    out[outIndex + i] = outputLut.apply(ResamplingTable.pack(accumulated[0][i], accumulated[1][i],
+                            accumulated[2][i], accumulated[3][i]));
+                }
+            }
+        });
+
+        if (halvings > 0) {
+            BufferPool.getDefault().release(level);
+        }
+        return resized;
+    }
+
+    // Number of exact 2x2 halvings before area averaging: the factors of 2 of a whole-number ratio, else none.
+    private static int areaHalvings(double scale) {
+        long ratio = Math.round(1 / scale);
+        return Math.abs(1 / scale - ratio) < RATIO_TOLERANCE ? Math.min(Long.numberOfTrailingZeros(ratio), MAX_HALVINGS) : 0;
+    }
+
+    // Averages one source row over the horizontal footprints of a run of output columns, into one row per
+    // channel. Running sums over the row make the whole columns of every footprint cost one subtraction.
+    private static void averageRow(ArgbRaster source, int y, int from, ChannelLut sampleLut, int[][] sums,
+                                   Footprints columns, int first, double[][] channels) {
+        int[] pixels = source.pixels();
+        int row = source.rowOffset(y) + from;
+        int[] blue = sums[0];
+        int[] green = sums[1];
+        int[] red = sums[2];
+        int[] alpha = sums[3];
+        int count = Math.min(blue.length - 1, source.width() - from);
+        for (int j = 0; j < count; j++) {
+            int argb = sampleLut.apply(pixels[row + j]);
+            blue[j + 1] = blue[j] + (argb & 0xFF);
+            green[j + 1] = green[j] + ((argb >>> 8) & 0xFF);
+            red[j + 1] = red[j] + ((argb >>> 16) & 0xFF);
+            alpha[j + 1] = alpha[j] + (argb >>> 24);
+        }
+        for (int c = 0; c < 4; c++) {
+            int[] sum = sums[c];
+            double[] channel = channels[c];
+            for (int i = 0; i < channel.length; i++) {
+                int a = columns.first[first + i] - from;
+                int b = columns.last[first + i] - from;
+                // The partly covered end columns are weighted by their coverage, the whole ones in between by 1.
+                channel[i] = columns.firstCover[first + i] * (sum[a + 1] - sum[a])
+                        + columns.lastCover[first + i] * (sum[b + 1] - sum[b])
+                        + columns.innerCover[first + i] * (sum[b] - sum[a + 1]);
+            }
+        }
+    }
+
+    // Source samples covered by each output sample along one axis of an area-averaging resize, with the weights
+    // that turn coverage into an average. Coordinates are relative to an origin and clipped to a length.
+    private static final class Footprints {
+        // First and last source sample each output sample touches.
+        final int[] first;
+        final int[] last;
+        // Weights of the first sample, the last sample and every sample in between; the first sample's weight
+        // holds the whole footprint when the first and last sample coincide, and the others are then 0.
+        final double[] firstCover;
+        final double[] lastCover;
+        final double[] innerCover;
+
+        Footprints(int from, int to, double scale, double origin, double length) {
+            int n = to - from;
+            first = new int[n];
+            last = new int[n];
+            firstCover = new double[n];
+            lastCover = new double[n];
+            innerCover = new double[n];
+            for (int i = 0; i < n; i++) {
+                double start = Math.max((from + i) / scale - origin, 0);
+                double end = Math.min((from + i + 1) / scale - origin, length);
+                first[i] = (int) start;
+                last[i] = Math.max((int) Math.ceil(end) - 1, first[i]);
+                double size = end - start;
+                if (first[i] == last[i]) {
+                    firstCover[i] = 1;
+                } else {
+                    firstCover[i] = (first[i] + 1 - start) / size;
+                    lastCover[i] = (end - last[i]) / size;
+                    innerCover[i] = 1 / size;
+                }
+            }
+        }
+
+        // Weight of a source sample in the average of an output sample; 0 outside its footprint.
+        double cover(int output, int sample) {
+            if (sample == first[output]) {
+                return firstCover[output];
+            }
+            if (sample == last[output]) {
+                return lastCover[output];
+            }
+            return sample > first[output] && sample < last[output] ? innerCover[output] : 0;
+        }
+    }
+
+    // Halves a raster by averaging each 2x2 block, rounding to nearest; an odd last row or column is averaged
+    // with itself. Two channels are summed at once in the 16-bit halves of an int, which cannot overflow.
+    private static ArgbRaster halve(ArgbRaster source, ChannelLut sampleLut) {
+        ArgbRaster halved = BufferPool.getDefault().raster((source.width() + 1) / 2, (source.height() + 1) / 2);
+        int[] pixels = source.pixels();
+        int[] out = halved.pixels();
+        int lastX = source.width() - 1;
+        int lastY = source.height() - 1;
+
+        TileScheduler.getDefault().forEachTile(halved, (tileX0, tileY0, tileX1, tileY1) -> {
+            for (int y = tileY0; y < tileY1; y++) {
+                int upper = source.rowOffset(2 * y);
+                int lower = source.rowOffset(Math.min(2 * y + 1, lastY));
+                int outIndex = halved.rowOffset(y);
+                for (int x = tileX0; x < tileX1; x++) {
+                    int leftX = 2 * x;
+                    int rightX = Math.min(leftX + 1, lastX);
+                    int topLeft = sampleLut.apply(pixels[upper + leftX]);
+                    int topRight = sampleLut.apply(pixels[upper + rightX]);
+                    int bottomLeft = sampleLut.apply(pixels[lower + leftX]);
+                    int bottomRight = sampleLut.apply(pixels[lower + rightX]);
+                    int blueRed = (topLeft & 0x00FF00FF) + (topRight & 0x00FF00FF)
+                            + (bottomLeft & 0x00FF00FF) + (bottomRight & 0x00FF00FF) + 0x00020002;
+                    int greenAlpha = ((topLeft >>> 8) & 0x00FF00FF) + ((topRight >>> 8) & 0x00FF00FF)
+                            + ((bottomLeft >>> 8) & 0x00FF00FF) + ((bottomRight >>> 8) & 0x00FF00FF) + 0x00020002;
+                    out[outIndex + x] = ((blueRed >>> 2) & 0x00FF00FF) | (((greenAlpha >>> 2) & 0x00FF00FF) << 8);
+                }
+            }
+        });
+
+        return halved;
+    }
+
+    // Blends two rows of channels vertically and packs the rounded result; the scalar form of VectorKernels.lerpRows.
+    private static void lerpRows(double[][] top, double[][] bottom, double yFraction, int[] out, int outIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            int argb = 0;
+            for (int c = 0; c < 4; c++) {
+                argb |= (int) Math.round(top[c][i] + yFraction * (bottom[c][i] - top[c][i])) << (8 * c);
+            }
+            out[outIndex + i] = argb;
+        }
+    }
+
+    // Resize of a region with a separable kernel, using the cached tables of both axes. Filtered source rows
+    // are kept in a window of one row per tap, which slides down the source as the output rows advance.
+    private static ArgbRaster resizeRegionSeparable(ArgbRaster source, int bandY, int sourceHeight, double scale,
+                                                    SeparableInterpolator interpolator,
+                                                    ChannelLut inputLut, ChannelLut outputLut,
+                                                    int x0, int y0, int x1, int y1) {
+        ArgbRaster resized = BufferPool.getDefault().raster(x1 - x0, y1 - y0);
+        int[] pixels = source.pixels();
+        int[] out = resized.pixels();
+        ResamplingTable columns = ResamplingTable.of(interpolator, source.width(), scale);
+        ResamplingTable rows = ResamplingTable.of(interpolator, sourceHeight, scale);
+        int taps = interpolator.taps();
+
+        TileScheduler.getDefault().forEachTile(resized, (tileX0, tileY0, tileX1, tileY1) -> {
+            int length = tileX1 - tileX0;
+            // Slot s holds the filtered source row whose index is congruent to s modulo taps.
+            double[][][] window = new double[taps][4][length];
+            int[] windowRows = new int[taps];
+            Arrays.fill(windowRows, -1);
+            double[][] sums = new double[4][length];
+            double[][][] selected = new double[taps][][];
+            double[] weights = new double[taps];
+
+            for (int y = tileY0; y < tileY1; y++) {
+                for (int t = 0; t < taps; t++) {
+                    int sourceY = rows.index(y + y0, t);
+                    int slot = sourceY % taps;
+                    if (windowRows[slot] != sourceY) {
+                        filterRow(pixels, source.rowOffset(sourceY - bandY), columns, x0 + tileX0, inputLut, window[slot]);
+                        windowRows[slot] = sourceY;
+                    }
+                    selected[t] = window[slot];
+                    weights[t] = rows.weight(y + y0, t);
+                }
+                // Combine the filtered rows channel by channel, tap by tap, so the inner loop runs over contiguous arrays.
+                for (int c = 0; c < 4; c++) {
+                    double[] sum = sums[c];
+                    Arrays.fill(sum, 0);
+                    for (int t = 0; t < taps; t++) {
+                        double weight = weights[t];
+                        double[] filtered = selected[t][c];
+                        for (int i = 0; i < length; i++) {
+                            sum[i] += weight * filtered[i];
+                        }
+                    }
+                }
+                int outIndex = resized.rowOffset(y) + tileX0;
+                for (int i = 0; i < length; i++) {
+                    out[outIndex + i] = outputLut.apply(ResamplingTable.pack(sums[0][i], sums[1][i], sums[2][i], sums[3][i]));
+                }
+            }
+        });
+
+        return resized;
+    }
+
+    // Filters one source row horizontally at a run of output columns, into one row per channel.
+    private static void filterRow(int[] pixels, int row, ResamplingTable columns, int from, ChannelLut sampleLut,
+                                  double[][] channels) {
+        int taps = columns.taps();
+        for (int i = 0; i < channels[0].length; i++) {
+            double blue = 0, green = 0, red = 0, alpha = 0;
+            for (int t = 0; t < taps; t++) {
+                int argb = sampleLut.apply(pixels[row + columns.index(from + i, t)]);
+                double weight = columns.weight(from + i, t);
+                blue += weight * (argb & 0xFF);
+                green += weight * ((argb >>> 8) & 0xFF);
+                red += weight * ((argb >>> 16) & 0xFF);
+                alpha += weight * (argb >>> 24);
+            }
+            channels[0][i] = blue;
+            channels[1][i] = green;
+            channels[2][i] = red;
+            channels[3][i] = alpha;
+        }
+    }
+
+    // Horizontally interpolates every channel of one source row at the given columns, into channel rows.
+    private static void resampleRow(ArgbRaster source, int y, int[] left, int[] right, double[] fractions,
+                                    int from, ChannelLut sampleLut, double[][] channels) {
+        int[] pixels = source.pixels();
+        int row = source.rowOffset(y);
+        int length = channels[0].length;
+        for (int i = 0; i < length; i++) {
+            int start = sampleLut.apply(pixels[row + left[from + i]]);
+            int end = sampleLut.apply(pixels[row + right[from + i]]);
+            double fraction = fractions[from + i];
+            for (int c = 0; c < 4; c++) {
+                int startChannel = (start >>> (8 * c)) & 0xFF;
+                int endChannel = (end >>> (8 * c)) & 0xFF;
+                channels[c][i] = startChannel + fraction * (endChannel - startChannel);
+            }
+        }
+    }
+
+    // Horizontally interpolates every channel of one source row at the given columns, into channel rows of 8.8
+    // fixed-point values, with 16.16 fixed-point weights.
+    private static void resampleRowFixed(ArgbRaster source, int y, int[] left, int[] right, int[] weights,
+                                         int from, ChannelLut sampleLut, char[][] channels) {
+        int[] pixels = source.pixels();
+        int row = source.rowOffset(y);
+        int length = channels[0].length;
+        for (int i = 0; i < length; i++) {
+            int start = sampleLut.apply(pixels[row + left[from + i]]);
+            int end = sampleLut.apply(pixels[row + right[from + i]]);
+            int endWeight = weights[from + i];
+            int startWeight = FIXED_ONE - endWeight;
+            for (int c = 0; c < 4; c++) {
+                int startChannel = (start >>> (8 * c)) & 0xFF;
+                int endChannel = (end >>> (8 * c)) & 0xFF;
+                channels[c][i] = (char) ((startChannel * startWeight + endChannel * endWeight + (1 << 7)) >>> 8);
+            }
+        }
+    }
+
+    /**
+     * Resizes a raster to exact dimensions, aligning pixel centers rather than pixel corners.
+     * Halving with the bilinear interpolator therefore averages each 2x2 block instead of
+     * picking one of its pixels, which makes this suitable for building image pyramids.
+     *
+     * @param source Raster to resize.
+     * @param newWidth Width of the result. Must be positive.
+     * @param newHeight Height of the result. Must be positive.
+     * @param interpolator Interpolator used to sample the source.
+     * @return New raster of size newWidth × newHeight.
+     */
+    public static ArgbRaster resizeTo(ArgbRaster source, int newWidth, int newHeight, Interpolator interpolator) {
+        double ratioX = (double) source.width() / newWidth;
+        double ratioY = (double) source.height() / newHeight;
+        double maxX = source.width() - 1;
+        double maxY = source.height() - 1;
+        ArgbRaster resized = BufferPool.getDefault().raster(newWidth, newHeight);
+        int[] out = resized.pixels();
+
+        TileScheduler.getDefault().forEachTile(resized, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                double sourceY = Math.min(Math.max((y + 0.5) * ratioY - 0.5, 0), maxY);
+                int outIndex = resized.rowOffset(y);
+                for (int x = x0; x < x1; x++) {
+                    double sourceX = Math.min(Math.max((x + 0.5) * ratioX - 0.5, 0), maxX);
+                    out[outIndex + x] = interpolator.interpolate(source, sourceX, sourceY);
+                }
+            }
+        });
+
+        return resized;
+    }
+}
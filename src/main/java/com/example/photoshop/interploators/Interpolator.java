@@ -1,11 +1,13 @@
 package com.example.photoshop.interploators;
 
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
 import javafx.scene.image.PixelReader;
 import javafx.scene.paint.Color;
 
 /**
  * Interface for interpolators.
- * It provides a method to interpolate a pixel in an image.
+ * It provides methods to interpolate a pixel in an image or in a packed ARGB raster.
  */
 public interface Interpolator {
 
@@ -20,4 +22,28 @@ public interface Interpolator {
      * @return Color of the interpolated pixel.
      */
     Color interpolate(PixelReader reader, double x, double y, int maxWidth, int maxHeight);
-}
\ No newline at end of file
+
+    /**
+     * Interpolates a pixel in a raster without allocating.
+     *
+     * @param source Raster to sample from.
+     * @param x x-coordinate of the pixel.
+     * @param y y-coordinate of the pixel.
+     * @return Packed ARGB value of the interpolated pixel.
+     */
+    default int interpolate(ArgbRaster source, double x, double y) {
+        return interpolate(source, x, y, ChannelLut.identity());
+    }
+
+    /**
+     * Interpolates a pixel in a raster, mapping every source sample through a lookup table first.
+     * This lets a preceding point operation run inside the resampling loop instead of as its own pass.
+     *
+     * @param source Raster to sample from.
+     * @param x x-coordinate of the pixel.
+     * @param y y-coordinate of the pixel.
+     * @param sampleLut Table applied to the color channels of each source sample.
+     * @return Packed ARGB value of the interpolated pixel.
+     */
+    int interpolate(ArgbRaster source, double x, double y, ChannelLut sampleLut);
+}
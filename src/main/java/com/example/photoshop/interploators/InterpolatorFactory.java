@@ -1,40 +1,96 @@
 package com.example.photoshop.interploators;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * Creates interpolators by display name. Interpolators are immutable, so each is created on first use and shared
+ * from then on. Besides the built-in interpolators, the factory registers those of every
+ * {@link InterpolatorProvider} found by {@link ServiceLoader} when it is first used.
+ */
 public class InterpolatorFactory {
-    // Map of interpolator names to their corresponding classes
-    private static final Map<String, Class<? extends Interpolator>> interpolatorMap = new HashMap<>();
+    // Interpolators by name, in the order they are offered.
+    private static final Map<String, Supplier<? extends Interpolator>> suppliers = new LinkedHashMap<>();
+    // Interpolators already created from the suppliers.
+    private static final Map<String, Interpolator> instances = new ConcurrentHashMap<>();
+    private static final Set<String> names;
+    // Provider errors tolerated before the rest are skipped, since the iterator may not get past a broken entry.
+    private static final int MAX_PROVIDER_ERRORS = 16;
 
-    // Static initializer block to populate the interpolator map
+    // Static initializer block to register the built-in interpolators and those of the providers
     static {
-        interpolatorMap.put("Nearest Neighbor", NearestNeighborInterpolator.class);
-        interpolatorMap.put("Bilinear", BilinearInterpolator.class);
+        suppliers.put("Nearest Neighbor", NearestNeighborInterpolator::new);
+        suppliers.put("Bilinear", BilinearInterpolator::new);
+        suppliers.put("Bicubic", BicubicInterpolator::new);
+        suppliers.put("Lanczos", LanczosInterpolator::new);
+        loadProviders();
+        names = Collections.unmodifiableSet(suppliers.keySet());
     }
 
     /**
-     * Creates an instance of the specified interpolator.
+     * Returns the interpolator registered under a name.
      *
-     * @param interpolatorName Name of the interpolator to create an instance of.
-     * @return Instance of the specified interpolator.
-     * @throws RuntimeException if there is an error creating the interpolator instance.
+     * @param interpolatorName Name of the interpolator.
+     * @return The shared interpolator.
+     * @throws IllegalArgumentException if no interpolator is registered under the name.
      */
     public static Interpolator createInterpolator(String interpolatorName) {
-        try {
-            return interpolatorMap.get(interpolatorName).getDeclaredConstructor().newInstance();
-        } catch (Exception e) {
-            throw new RuntimeException("Error creating interpolator", e);
+        Supplier<? extends Interpolator> supplier = suppliers.get(interpolatorName);
+        if (supplier == null) {
+            throw new IllegalArgumentException("Unknown interpolator: " + interpolatorName);
         }
+        return instances.computeIfAbsent(interpolatorName, name -> supplier.get());
+    }
+
+    /**
+     * Creates the interpolator for a resize by a known scale. Downscaling uses
+     * {@link AreaAveragingInterpolator} whatever the name, since point sampling aliases when
+     * output pixels cover several source pixels; upscaling uses the named interpolator.
+     *
+     * @param interpolatorName Name of the interpolator to use when enlarging.
+     * @param scale Scale factor of the resize.
+     * @return Interpolator for that scale.
+     * @throws IllegalArgumentException if no interpolator is registered under the name.
+     */
+    public static Interpolator createInterpolator(String interpolatorName, double scale) {
+        if (scale < 1) {
+            return new AreaAveragingInterpolator(scale);
+        }
+        return createInterpolator(interpolatorName);
     }
 
     /**
      * Returns the names of all available interpolators.
      *
-     * @return Set of names of all available interpolators.
+     * @return Set of names of all available interpolators, built-in ones first.
      */
     public static Set<String> getInterpolatorNames() {
-        return interpolatorMap.keySet();
+        return names;
+    }
+
+    // Registers the interpolators of every provider on the module or class path, skipping any that cannot be
+    // loaded.
+    private static void loadProviders() {
+        Iterator<InterpolatorProvider> providers = ServiceLoader.load(InterpolatorProvider.class).iterator();
+        int errors = 0;
+        while (errors < MAX_PROVIDER_ERRORS) {
+            try {
+                if (!providers.hasNext()) {
+                    return;
+                }
+                providers.next().interpolators().forEach(suppliers::putIfAbsent);
+            } catch (ServiceConfigurationError e) {
+                errors++;
+                System.err.println("Cannot load interpolator provider: " + e.getMessage());
+            }
+        }
+        System.err.println("Skipping the remaining interpolator providers after " + errors + " errors");
     }
-}
\ No newline at end of file
+}
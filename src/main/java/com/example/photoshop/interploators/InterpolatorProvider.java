@@ -0,0 +1,22 @@
+package com.example.photoshop.interploators;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Service through which other modules contribute interpolators to {@link InterpolatorFactory}. Implementations are
+ * found with {@link java.util.ServiceLoader}, declared with {@code provides} in a module or listed in
+ * {@code META-INF/services} on the class path, and are asked for their interpolators once, when the factory is
+ * first used.
+ */
+public interface InterpolatorProvider {
+
+    /**
+     * Returns the interpolators this provider contributes. Each supplier is called at most once and its
+     * interpolator is then shared by every resize on every thread, so interpolators must be immutable. A name
+     * already registered is ignored.
+     *
+     * @return Suppliers of interpolators by display name.
+     */
+    Map<String, Supplier<? extends Interpolator>> interpolators();
+}
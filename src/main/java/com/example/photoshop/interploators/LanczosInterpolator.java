@@ -0,0 +1,35 @@
+package com.example.photoshop.interploators;
+
+/**
+ * Lanczos interpolation with three lobes: a sinc windowed by a wider sinc, six taps per axis.
+ * It preserves more fine detail than bicubic interpolation at the cost of more taps and slight ringing
+ * next to hard edges. Results are clamped to the channel range.
+ */
+public class LanczosInterpolator implements SeparableInterpolator {
+    // Number of lobes of the windowed sinc on each side of the sample position.
+    private static final int LOBES = 3;
+
+    @Override
+    public int taps() {
+        return 2 * LOBES;
+    }
+
+    /**
+     * Evaluates the Lanczos kernel sinc(d) * sinc(d / 3).
+     *
+     * @param distance Distance from the sample position in source pixels.
+     * @return Weight of a tap at that distance.
+     */
+    @Override
+    public double weight(double distance) {
+        double d = Math.abs(distance);
+        if (d < 1e-9) {
+            return 1;
+        }
+        if (d >= LOBES) {
+            return 0;
+        }
+        double x = Math.PI * d;
+        return LOBES * Math.sin(x) * Math.sin(x / LOBES) / (x * x);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.photoshop.interploators;
 
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
 import javafx.scene.image.PixelReader;
 import javafx.scene.paint.Color;
 
@@ -22,6 +24,22 @@ public class NearestNeighborInterpolator implements Interpolator {
         return reader.getColor(nearestX, nearestY);
     }
 
+    /**
+     * Applies the nearest neighbor interpolation to a pixel of a raster.
+     *
+     * @param source Raster to sample from.
+     * @param x x-coordinate of the pixel.
+     * @param y y-coordinate of the pixel.
+     * @param sampleLut Table applied to the color channels of the sample.
+     * @return Packed ARGB value of the nearest pixel.
+     */
+    @Override
+    public int interpolate(ArgbRaster source, double x, double y, ChannelLut sampleLut) {
+        int nearestX = clamp((int) Math.round(x), 0, source.width() - 1);
+        int nearestY = clamp((int) Math.round(y), 0, source.height() - 1);
+        return sampleLut.apply(source.getArgb(nearestX, nearestY));
+    }
+
     private int clamp(int value, int min, int max) {
         return Math.max(min, Math.min(max, value));
     }
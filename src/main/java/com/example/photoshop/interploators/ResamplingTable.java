@@ -0,0 +1,140 @@
+package com.example.photoshop.interploators;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Precomputed source indices and weights of a {@link SeparableInterpolator} along one axis of a resize.
+ * <p>
+ * Output sample i is taken at source position i / scale, like every other resize in {@link ImageResizer}.
+ * Its taps are the source samples around that position, clamped to the edge, with weights normalized to
+ * sum to 1. A table is computed once per interpolator, source length, scale and output length and cached,
+ * so every row of a resize, and every region of it, reuses the same table. Interpolators are told apart by
+ * {@code equals}, so two instances of one class with different parameters never share a table.
+ */
+public final class ResamplingTable {
+    // Recently used tables; a handful covers both axes of the few resizes that are active at once.
+    private static final int CACHE_SIZE = 16;
+    private static final Map<Key, ResamplingTable> CACHE = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, ResamplingTable> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final int taps;
+    private final int[] indices;
+    private final double[] weights;
+
+    private ResamplingTable(SeparableInterpolator interpolator, int sourceLength, double scale, int outputLength) {
+        this.taps = interpolator.taps();
+        this.indices = new int[outputLength * taps];
+        this.weights = new double[outputLength * taps];
+        for (int i = 0; i < outputLength; i++) {
+            int first = weights(interpolator, i / scale, weights, i * taps);
+            for (int t = 0; t < taps; t++) {
+                indices[i * taps + t] = clamp(first + t, sourceLength);
+            }
+        }
+    }
+
+    /**
+     * Returns the table of a resize axis, computing it on first use.
+     *
+     * @param interpolator Interpolator providing the kernel.
+     * @param sourceLength Number of source samples along the axis.
+     * @param scale Scale factor of the resize.
+     * @return The table, covering all (int) (sourceLength * scale) output samples.
+     */
+    public static ResamplingTable of(SeparableInterpolator interpolator, int sourceLength, double scale) {
+        int outputLength = (int) (sourceLength * scale);
+        Key key = new Key(interpolator, sourceLength, scale);
+        synchronized (CACHE) {
+            return CACHE.computeIfAbsent(key, k -> new ResamplingTable(interpolator, sourceLength, scale, outputLength));
+        }
+    }
+
+    public int taps() {
+        return taps;
+    }
+
+    /**
+     * Returns the source index of a tap.
+     *
+     * @param output Index of the output sample.
+     * @param tap Tap number, from 0 to {@link #taps()} - 1.
+     * @return Source index, already clamped to the source.
+     */
+    public int index(int output, int tap) {
+        return indices[output * taps + tap];
+    }
+
+    /**
+     * Returns the normalized weight of a tap.
+     *
+     * @param output Index of the output sample.
+     * @param tap Tap number, from 0 to {@link #taps()} - 1.
+     * @return Weight of the tap.
+     */
+    public double weight(int output, int tap) {
+        return weights[output * taps + tap];
+    }
+
+    // Writes the normalized weights of the taps around a position and returns the unclamped index of the first tap.
+    static int weights(SeparableInterpolator interpolator, double position, double[] weights, int offset) {
+        int taps = interpolator.taps();
+        int first = (int) Math.floor(position) - taps / 2 + 1;
+        double sum = 0;
+        for (int t = 0; t < taps; t++) {
+            weights[offset + t] = interpolator.weight(position - (first + t));
+            sum += weights[offset + t];
+        }
+        for (int t = 0; t < taps; t++) {
+            weights[offset + t] /= sum;
+        }
+        return first;
+    }
+
+    // Clamps a sample index to [0, length - 1], replicating the edge.
+    static int clamp(int index, int length) {
+        return Math.max(0, Math.min(index, length - 1));
+    }
+
+    // Rounds and clamps filtered channel values, which may overshoot for kernels with negative lobes, and packs them.
+    static int pack(double blue, double green, double red, double alpha) {
+        return (channel(alpha) << 24) | (channel(red) << 16) | (channel(green) << 8) | channel(blue);
+    }
+
+    // Rounds a filtered channel value to [0, 255].
+    private static int channel(double value) {
+        return (int) Math.max(0, Math.min(Math.round(value), 255));
+    }
+
+    // Cache key: the kernel, identified by its interpolator's equals, plus the geometry of the axis.
+    private static final class Key {
+        private final SeparableInterpolator kernel;
+        private final int sourceLength;
+        private final double scale;
+
+        Key(SeparableInterpolator kernel, int sourceLength, double scale) {
+            this.kernel = kernel;
+            this.sourceLength = sourceLength;
+            this.scale = scale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return kernel.equals(other.kernel) && sourceLength == other.sourceLength && Double.compare(scale, other.scale) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kernel, sourceLength, scale);
+        }
+    }
+}
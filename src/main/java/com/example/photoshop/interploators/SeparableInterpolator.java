@@ -0,0 +1,76 @@
+package com.example.photoshop.interploators;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import javafx.scene.image.PixelReader;
+import javafx.scene.paint.Color;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * An interpolator whose 2D kernel is the product of the same 1D kernel along each axis.
+ * <p>
+ * Implementations only describe the 1D kernel. Resizes use it through {@link ResamplingTable}, which
+ * precomputes the source positions and weights of every output column and row once, and then resample
+ * row by row: each source row is filtered horizontally once and output rows combine filtered rows.
+ * The per-pixel methods evaluate the same weights in the same order, so both routes give identical pixels.
+ * <p>
+ * Tables are cached per interpolator as told apart by {@code equals}. The default, identity, is always safe; an
+ * implementation with parameters may define {@code equals} and {@code hashCode} over them so that equal instances
+ * share their tables.
+ */
+public interface SeparableInterpolator extends Interpolator {
+
+    /**
+     * Returns how many source samples along one axis contribute to an output sample.
+     *
+     * @return Number of taps; even, so the taps straddle the sample position.
+     */
+    int taps();
+
+    /**
+     * Evaluates the 1D kernel. Weights are normalized to sum to 1 after evaluation, so the kernel need not be.
+     *
+     * @param distance Signed distance in source pixels from the sample position to a tap.
+     * @return Unnormalized weight of the tap.
+     */
+    double weight(double distance);
+
+    @Override
+    default Color interpolate(PixelReader reader, double x, double y, int maxWidth, int maxHeight) {
+        int argb = interpolate(reader::getArgb, x, y, maxWidth, maxHeight);
+        return Color.rgb(ArgbRaster.red(argb), ArgbRaster.green(argb), ArgbRaster.blue(argb), ArgbRaster.alpha(argb) / 255.0);
+    }
+
+    @Override
+    default int interpolate(ArgbRaster source, double x, double y, ChannelLut sampleLut) {
+        return interpolate((sampleX, sampleY) -> sampleLut.apply(source.getArgb(sampleX, sampleY)),
+                x, y, source.width(), source.height());
+    }
+
+    // Filters each contributing source row horizontally, then combines the rows, like the row-oriented resize.
+    private int interpolate(IntBinaryOperator sampler, double x, double y, int width, int height) {
+        int taps = taps();
+        double[] xWeights = new double[taps];
+        double[] yWeights = new double[taps];
+        int firstX = ResamplingTable.weights(this, x, xWeights, 0);
+        int firstY = ResamplingTable.weights(this, y, yWeights, 0);
+
+        double[] sums = new double[4];
+        double[] row = new double[4];
+        for (int ty = 0; ty < taps; ty++) {
+            int sampleY = ResamplingTable.clamp(firstY + ty, height);
+            row[0] = row[1] = row[2] = row[3] = 0;
+            for (int tx = 0; tx < taps; tx++) {
+                int argb = sampler.applyAsInt(ResamplingTable.clamp(firstX + tx, width), sampleY);
+                for (int c = 0; c < 4; c++) {
+                    row[c] += xWeights[tx] * ((argb >>> (8 * c)) & 0xFF);
+                }
+            }
+            for (int c = 0; c < 4; c++) {
+                sums[c] += yWeights[ty] * row[c];
+            }
+        }
+        return ResamplingTable.pack(sums[0], sums[1], sums[2], sums[3]);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.photoshop.metrics;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.StripSource;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects per-stage metrics of the image pipelines: wall time, throughput, heap allocation and queue wait.
+ * <p>
+ * Every stage name gets a {@link StageMetrics}, registered as an MXBean with the platform MBean server the
+ * first time it is recorded, and every run also commits a {@code com.example.photoshop.Stage} flight recorder
+ * event when a recording enables it. Stages that pull their input from other stages, as streamed strips do,
+ * are charged only for their own time and allocation. Allocation is measured over all threads, because tiles
+ * run on the scheduler's workers, so concurrent unrelated work inflates it.
+ * <p>
+ * Recording is on unless the {@code photoshop.metrics} system property is {@code false}.
+ */
+public final class PipelineMetrics {
+    // System property that disables recording when set to false.
+    private static final String METRICS_PROPERTY = "photoshop.metrics";
+    private static final String DOMAIN = "com.example.photoshop";
+    private static final PipelineMetrics DEFAULT = new PipelineMetrics();
+
+    private final Map<String, StageMetrics> stages = new ConcurrentHashMap<>();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    // Innermost running timer of each thread, so an outer stage can exclude the time of the stages it pulls from.
+    private final ThreadLocal<StageTimer> current = new ThreadLocal<>();
+    private volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty(METRICS_PROPERTY));
+
+    private PipelineMetrics() {
+    }
+
+    /**
+     * Returns the metrics the pipelines record into, which are registered with the platform MBean server.
+     *
+     * @return The shared metrics.
+     */
+    public static PipelineMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off. While off, {@link #start} returns a timer that records nothing.
+     *
+     * @param enable Whether to record.
+     */
+    public void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * Starts timing a run of a stage on the calling thread. The run is recorded by {@link StageTimer#record} and
+     * the timer must be closed on the same thread, normally with try-with-resources.
+     *
+     * @param stage Name of the stage; runs with the same name share their metrics.
+     * @return The running timer.
+     */
+    public StageTimer start(String stage) {
+        if (!enabled) {
+            return StageTimer.DISABLED;
+        }
+        StageTimer timer = new StageTimer(this, stage, current.get());
+        current.set(timer);
+        return timer;
+    }
+
+    /**
+     * Wraps a strip source so that every strip read from it is timed as a run of a stage. Strips the source pulls
+     * from other measured sources while computing its own are charged to those.
+     *
+     * @param stage Name of the stage producing the strips.
+     * @param strips Strips to time.
+     * @return Strip source delivering the same strips; closing it closes the wrapped source.
+     */
+    public StripSource measure(String stage, StripSource strips) {
+        return new StripSource() {
+            @Override
+            public int width() {
+                return strips.width();
+            }
+
+            @Override
+            public int height() {
+                return strips.height();
+            }
+
+            @Override
+            public ArgbRaster readRows(int y0, int y1) {
+                try (StageTimer timer = start(stage)) {
+                    ArgbRaster rows = strips.readRows(y0, y1);
+                    timer.record((long) rows.width() * rows.height());
+                    return rows;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                strips.close();
+            }
+        };
+    }
+
+    /**
+     * Records how long a piece of work for a stage waited in a queue before it started.
+     *
+     * @param stage Name of the stage the work belongs to.
+     * @param waitNanos Time spent waiting, in nanoseconds.
+     */
+    public void recordQueueWait(String stage, long waitNanos) {
+        if (!enabled) {
+            return;
+        }
+        stage(stage).recordQueueWait(waitNanos);
+        StageEvent event = new StageEvent();
+        if (event.shouldCommit()) {
+            event.stage = stage;
+            event.queueWait = waitNanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the metrics of every stage recorded so far.
+     *
+     * @return Snapshot list sorted by stage name.
+     */
+    public List<StageMetrics> getStages() {
+        List<StageMetrics> list = new ArrayList<>(stages.values());
+        list.sort(Comparator.comparing(StageMetrics::getName));
+        return list;
+    }
+
+    /**
+     * Clears the counters of every stage.
+     */
+    public void reset() {
+        for (StageMetrics metrics : stages.values()) {
+            metrics.reset();
+        }
+    }
+
+    // Returns the metrics of a stage, creating and registering them on first use.
+    StageMetrics stage(String name) {
+        return stages.computeIfAbsent(name, key -> {
+            StageMetrics metrics = new StageMetrics(key);
+            register(metrics);
+            return metrics;
+        });
+    }
+
+    // Returns the bytes allocated so far by all live threads, or 0 if the JVM cannot tell.
+    long allocatedBytes() {
+        if (!(threads instanceof com.sun.management.ThreadMXBean allocation)
+                || !allocation.isThreadAllocatedMemoryEnabled()) {
+            return 0;
+        }
+        long total = 0;
+        for (long bytes : allocation.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(bytes, 0);
+        }
+        return total;
+    }
+
+    ThreadLocal<StageTimer> current() {
+        return current;
+    }
+
+    // Registers a stage's metrics with the platform MBean server. Metrics stay usable if registration fails.
+    private static void register(StageMetrics metrics) {
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=PipelineStage,name=" + ObjectName.quote(metrics.getName()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+        } catch (JMException e) {
+            System.err.println("Cannot register metrics of " + metrics.getName() + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.photoshop.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for one run of a pipeline stage, or for one wait of work queued for a stage. Its duration
+ * spans the whole run, including stages the run pulled its input from; the self time excludes them.
+ */
+@Name("com.example.photoshop.Stage")
+@Label("Pipeline Stage")
+@Category("Photoshop")
+@Description("A run of an image pipeline stage, or a wait before one")
+final class StageEvent extends jdk.jfr.Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Pixels")
+    @Description("Output pixels produced by the run")
+    long pixels;
+
+    @Label("Self Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long selfTime;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocated;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait;
+}
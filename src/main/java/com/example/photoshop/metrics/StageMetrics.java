@@ -0,0 +1,109 @@
+package com.example.photoshop.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one pipeline stage, updated concurrently by every thread that runs the stage.
+ */
+public final class StageMetrics implements StageMetricsMXBean {
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final String name;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder pixels = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder queueWaits = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+
+    StageMetrics(String name) {
+        this.name = name;
+    }
+
+    // Adds one run of the stage.
+    void record(long runNanos, long runPixels, long runAllocatedBytes) {
+        invocations.increment();
+        nanos.add(runNanos);
+        maxNanos.accumulate(runNanos);
+        pixels.add(runPixels);
+        allocatedBytes.add(runAllocatedBytes);
+    }
+
+    // Adds the time one piece of work for the stage spent queued.
+    void recordQueueWait(long waitNanos) {
+        queueWaits.increment();
+        queueWaitNanos.add(waitNanos);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return nanos.sum() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long count = invocations.sum();
+        return count == 0 ? 0 : getTotalMillis() / count;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMegapixels() {
+        return pixels.sum() / 1e6;
+    }
+
+    @Override
+    public double getMegapixelsPerSecond() {
+        long total = nanos.sum();
+        return total == 0 ? 0 : pixels.sum() * 1e3 / total;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public double getQueueWaitMillis() {
+        return queueWaitNanos.sum() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMeanQueueWaitMillis() {
+        long count = queueWaits.sum();
+        return count == 0 ? 0 : getQueueWaitMillis() / count;
+    }
+
+    @Override
+    public void reset() {
+        invocations.reset();
+        nanos.reset();
+        maxNanos.reset();
+        pixels.reset();
+        allocatedBytes.reset();
+        queueWaits.reset();
+        queueWaitNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-34s %6d runs %9.1f ms %8.1f MP/s %9.1f MB %8.1f ms queued", name, getInvocations(),
+                getTotalMillis(), getMegapixelsPerSecond(), getAllocatedBytes() / 1e6, getQueueWaitMillis());
+    }
+}
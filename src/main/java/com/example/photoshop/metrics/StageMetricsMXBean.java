@@ -0,0 +1,63 @@
+package com.example.photoshop.metrics;
+
+/**
+ * Management interface of the metrics of one pipeline stage, registered with the platform MBean server under
+ * {@code com.example.photoshop:type=PipelineStage,name=<stage>}.
+ */
+public interface StageMetricsMXBean {
+
+    String getName();
+
+    /**
+     * Returns how many times the stage ran, counting every strip or region it computed.
+     *
+     * @return Number of recorded runs.
+     */
+    long getInvocations();
+
+    /**
+     * Returns the wall time spent in the stage itself, excluding stages it pulled its input from.
+     *
+     * @return Total time in milliseconds.
+     */
+    double getTotalMillis();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    /**
+     * Returns the output pixels the stage produced.
+     *
+     * @return Output pixels in millions.
+     */
+    double getMegapixels();
+
+    /**
+     * Returns the stage's throughput over all its runs.
+     *
+     * @return Output megapixels per second of the stage's own time, or 0 before any run.
+     */
+    double getMegapixelsPerSecond();
+
+    /**
+     * Returns the bytes allocated on the heap while the stage ran, by all threads.
+     *
+     * @return Allocated bytes, or 0 if the JVM cannot measure allocation.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Returns how long work for the stage waited in a queue before it started.
+     *
+     * @return Total waiting time in milliseconds.
+     */
+    double getQueueWaitMillis();
+
+    double getMeanQueueWaitMillis();
+
+    /**
+     * Clears all counters.
+     */
+    void reset();
+}
@@ -0,0 +1,77 @@
+package com.example.photoshop.metrics;
+
+/**
+ * Times one run of a stage on one thread; see {@link PipelineMetrics#start}. Timers started while this one runs,
+ * on the same thread, belong to stages it pulls from, and their time and allocation are excluded from this run.
+ */
+public final class StageTimer implements AutoCloseable {
+    // Returned while recording is off.
+    static final StageTimer DISABLED = new StageTimer(null, null, null);
+
+    private final PipelineMetrics metrics;
+    private final String stage;
+    private final StageTimer parent;
+    private final long startNanos;
+    private final long startBytes;
+    private final StageEvent event;
+    // Time and allocation of nested runs, subtracted from this one.
+    private long childNanos;
+    private long childBytes;
+    private boolean closed;
+
+    StageTimer(PipelineMetrics metrics, String stage, StageTimer parent) {
+        this.metrics = metrics;
+        this.stage = stage;
+        this.parent = parent;
+        if (metrics == null) {
+            this.startBytes = 0;
+            this.event = null;
+        } else {
+            this.startBytes = metrics.allocatedBytes();
+            this.event = new StageEvent();
+            event.begin();
+        }
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Records the run as complete. Only the first call of a timer counts.
+     *
+     * @param pixels Output pixels the run produced.
+     */
+    public void record(long pixels) {
+        if (metrics == null || closed) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        long allocated = Math.max(metrics.allocatedBytes() - startBytes, 0);
+        long selfNanos = Math.max(elapsed - childNanos, 0);
+        long selfBytes = Math.max(allocated - childBytes, 0);
+        metrics.stage(stage).record(selfNanos, pixels, selfBytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.stage = stage;
+            event.pixels = pixels;
+            event.selfTime = selfNanos;
+            event.allocated = selfBytes;
+            event.commit();
+        }
+        if (parent != null) {
+            parent.childNanos += elapsed;
+            parent.childBytes += allocated;
+        }
+        close();
+    }
+
+    /**
+     * Ends the timer, recording nothing unless {@link #record} was called first, as when the run failed.
+     */
+    @Override
+    public void close() {
+        if (metrics == null || closed) {
+            return;
+        }
+        closed = true;
+        metrics.current().set(parent);
+    }
+}
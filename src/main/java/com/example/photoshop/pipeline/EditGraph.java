@@ -0,0 +1,442 @@
+package com.example.photoshop.pipeline;
+
+import com.example.photoshop.filter.ConvolutionFilter;
+import com.example.photoshop.filter.FilterFactory;
+import com.example.photoshop.filter.Filters;
+import com.example.photoshop.filter.NeighborhoodFilter;
+import com.example.photoshop.filter.PointFilter;
+import com.example.photoshop.interploators.ImageResizer;
+import com.example.photoshop.interploators.Interpolator;
+import com.example.photoshop.interploators.InterpolatorFactory;
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.BufferPool;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.TileSink;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A non-destructive edit kept as a graph of processing nodes, each holding its last output.
+ * <p>
+ * The graph runs from the source image through gamma correction, the filter and the resize. Every node names the
+ * edit parameters it depends on; changing a parameter marks those nodes and everything downstream of them for
+ * recomputation, while nodes upstream keep their output. A change to a rectangle of the source, such as a local
+ * retouch, instead marks just that rectangle dirty, grown at every node by the reach of its operation: the
+ * kernel radius of a filter, the taps of an interpolator. The next render then recomputes only those rectangles
+ * and writes them into the nodes' outputs. Operations whose output pixels may depend on the whole image, such as
+ * filters normalizing by a measured range, recompute in full.
+ * <p>
+ * Unlike a {@link Pipeline}, the graph does not fuse gamma into the filter, so that each stage keeps an output
+ * to resume from. A graph is not thread-safe, and the raster returned by a render is the graph's own: later
+ * renders update it in place.
+ */
+public final class EditGraph {
+    // Edit parameters nodes depend on.
+    private static final String GAMMA = "gamma";
+    private static final String FILTER = "filter";
+    private static final String INTERPOLATOR = "interpolator";
+    private static final String SCALE = "scale";
+    private static final TileSink NO_SINK = (raster, x0, y0, x1, y1) -> {
+    };
+
+    private final Node sourceNode;
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Object> parameters = new HashMap<>();
+    // Whether the source is still the caller's raster, which local edits must copy before writing.
+    private boolean sourceShared = true;
+    // Statistics of the last render.
+    private int recomputedNodes;
+    private int updatedRegions;
+    private int[] lastChange;
+
+    /**
+     * Creates a graph for an image, initially with the edit that leaves it unchanged.
+     *
+     * @param source Image to edit. It is not modified; local edits work on a copy.
+     */
+    public EditGraph(ArgbRaster source) {
+        sourceNode = new Node("Source", null, Set.of());
+        sourceNode.output = source;
+        sourceNode.stale = false;
+        Node gamma = add(new GammaNode(sourceNode));
+        Node filter = add(new FilterNode(gamma));
+        add(new ResizeNode(filter));
+        setSpec(new PipelineSpec(1.0, PipelineSpec.NO_FILTER, "Bilinear", 1.0));
+    }
+
+    /**
+     * Sets every parameter of the edit. Only nodes depending on a parameter that changed are recomputed by the
+     * next render.
+     *
+     * @param spec Edit to render; gamma and scale are normalized first.
+     */
+    public void setSpec(PipelineSpec spec) {
+        PipelineSpec normalized = spec.normalized();
+        setParameter(GAMMA, normalized.getGamma());
+        setParameter(FILTER, normalized.getFilterName());
+        setParameter(INTERPOLATOR, normalized.getInterpolatorName());
+        setParameter(SCALE, normalized.getScale());
+    }
+
+    /**
+     * Returns the edit the graph renders.
+     *
+     * @return The current parameters.
+     */
+    public PipelineSpec getSpec() {
+        return new PipelineSpec((Double) parameters.get(GAMMA), (String) parameters.get(FILTER),
+                (String) parameters.get(INTERPOLATOR), (Double) parameters.get(SCALE));
+    }
+
+    /**
+     * Writes new pixels into a rectangle of the source image, as a local edit does. Only the rectangle, grown by
+     * the reach of each operation, is recomputed by the next render.
+     *
+     * @param patch Pixels to write.
+     * @param x X-coordinate in the source of the patch's left edge.
+     * @param y Y-coordinate in the source of the patch's top edge.
+     * @throws IllegalArgumentException if the patch does not lie within the source.
+     */
+    public void updateSource(ArgbRaster patch, int x, int y) {
+        if (sourceShared) {
+            // Copy on the first write, so the caller's raster stays untouched. Outputs that were the source itself
+            // now refer to the wrong raster, so everything is recomputed once.
+            sourceNode.output = copyOf(sourceNode.output);
+            sourceShared = false;
+            for (Node consumer : sourceNode.consumers) {
+                markStale(consumer);
+            }
+        }
+        ArgbRaster target = sourceNode.output.region(x, y, patch.width(), patch.height());
+        copy(patch, target);
+        invalidate(sourceNode, new int[] {x, y, x + patch.width(), y + patch.height()});
+    }
+
+    /**
+     * Renders the edit, recomputing only the nodes and rectangles changed since the last render.
+     *
+     * @return The edited image.
+     */
+    public ArgbRaster render() {
+        return render(NO_SINK);
+    }
+
+    /**
+     * Renders the edit, recomputing only the nodes and rectangles changed since the last render. Tiles of the
+     * final node are reported to the sink when it is recomputed in full.
+     *
+     * @param sink Sink receiving completed output tiles.
+     * @return The edited image.
+     */
+    public ArgbRaster render(TileSink sink) {
+        recomputedNodes = 0;
+        updatedRegions = 0;
+        Node last = nodes.get(nodes.size() - 1);
+        lastChange = last.stale ? null : last.dirty;
+        boolean wholeOutput = last.stale;
+        ArgbRaster output = evaluate(last, sink);
+        // The result leaves the graph, and may be read long after, so no node passing it through may recycle it.
+        for (Node node : nodes) {
+            if (node.output.pixels() == output.pixels()) {
+                node.recyclable = false;
+            }
+        }
+        if (wholeOutput) {
+            lastChange = new int[] {0, 0, output.width(), output.height()};
+        }
+        return output;
+    }
+
+    /**
+     * Returns the rectangle of the output that changed in the last render.
+     *
+     * @return {x0, y0, x1, y1} with exclusive ends, or null if the output did not change.
+     */
+    public int[] getLastChange() {
+        return lastChange == null ? null : lastChange.clone();
+    }
+
+    /**
+     * Returns how many nodes the last render recomputed in full.
+     *
+     * @return Nodes recomputed in full.
+     */
+    public int getRecomputedNodes() {
+        return recomputedNodes;
+    }
+
+    /**
+     * Returns how many nodes the last render updated only in a dirty rectangle.
+     *
+     * @return Nodes updated in part.
+     */
+    public int getUpdatedRegions() {
+        return updatedRegions;
+    }
+
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(sourceNode.name);
+        for (Node node : nodes) {
+            text.append(" -> ").append(node.name).append(node.stale ? " (stale)" : node.dirty != null ? " (dirty)" : "");
+        }
+        return text.toString();
+    }
+
+    // Appends a node and links it to its input.
+    private Node add(Node node) {
+        node.input.consumers.add(node);
+        nodes.add(node);
+        return node;
+    }
+
+    // Changes a parameter, marking the nodes that depend on it stale if its value differs.
+    private void setParameter(String name, Object value) {
+        if (Objects.equals(parameters.put(name, value), value)) {
+            return;
+        }
+        for (Node node : nodes) {
+            if (node.parameters.contains(name)) {
+                markStale(node);
+            }
+        }
+    }
+
+    // Marks a node and everything downstream of it for full recomputation.
+    private static void markStale(Node node) {
+        if (node.stale) {
+            return;
+        }
+        node.stale = true;
+        node.dirty = null;
+        for (Node consumer : node.consumers) {
+            markStale(consumer);
+        }
+    }
+
+    // Marks the rectangle of every consumer's output that a change to a rectangle of a node's output affects.
+    private static void invalidate(Node node, int[] changed) {
+        for (Node consumer : node.consumers) {
+            if (consumer.stale) {
+                continue;
+            }
+            int[] affected = consumer.affected(changed, node.output);
+            if (affected == null) {
+                markStale(consumer);
+            } else if (affected[0] < affected[2] && affected[1] < affected[3]) {
+                consumer.dirty = consumer.dirty == null ? affected : union(consumer.dirty, affected);
+                invalidate(consumer, affected);
+            }
+        }
+    }
+
+    // Brings a node's output up to date, computing its input first.
+    private ArgbRaster evaluate(Node node, TileSink sink) {
+        if (node == sourceNode) {
+            return node.output;
+        }
+        ArgbRaster input = evaluate(node.input, NO_SINK);
+        if (node.stale) {
+            Pipeline pipeline = node.compile(parameters);
+            ArgbRaster previous = node.output;
+            node.output = pipeline.run(input, sink);
+            // Outputs of inner nodes that were never rendered stay in the graph, so their buffers go back to the
+            // pool for the next run. Consumers passing the old output through are stale and recomputed next.
+            if (previous != null && node.recyclable && !node.consumers.isEmpty()) {
+                BufferPool.getDefault().release(previous);
+            }
+            node.recyclable = node.output.pixels() != input.pixels();
+            node.pipeline = pipeline;
+            node.stale = false;
+            node.dirty = null;
+            recomputedNodes++;
+        } else if (node.dirty != null) {
+            int[] r = node.dirty;
+            // A node that left its input unchanged shares its input's raster, which is already up to date.
+            if (node.output != input) {
+                ArgbRaster region = node.pipeline.runRegion(input, r[0], r[1], r[2], r[3]);
+                copy(region, node.output.region(r[0], r[1], r[2] - r[0], r[3] - r[1]));
+                BufferPool.getDefault().release(region);
+            }
+            node.dirty = null;
+            updatedRegions++;
+        }
+        return node.output;
+    }
+
+    // Smallest rectangle containing two rectangles.
+    private static int[] union(int[] a, int[] b) {
+        return new int[] {Math.min(a[0], b[0]), Math.min(a[1], b[1]), Math.max(a[2], b[2]), Math.max(a[3], b[3])};
+    }
+
+    // Copies the pixels of one raster into another of the same size.
+    private static void copy(ArgbRaster from, ArgbRaster to) {
+        for (int y = 0; y < from.height(); y++) {
+            System.arraycopy(from.pixels(), from.rowOffset(y), to.pixels(), to.rowOffset(y), from.width());
+        }
+    }
+
+    // Copies a raster into a new, compact one.
+    private static ArgbRaster copyOf(ArgbRaster raster) {
+        ArgbRaster copy = new ArgbRaster(raster.width(), raster.height());
+        copy(raster, copy);
+        return copy;
+    }
+
+    // A node of the graph: its operation, the parameters it depends on, and its last output.
+    private static class Node {
+        final String name;
+        final Node input;
+        final Set<String> parameters;
+        final List<Node> consumers = new ArrayList<>();
+        ArgbRaster output;
+        // The pipeline that computed the output, reused to recompute dirty rectangles.
+        Pipeline pipeline;
+        // Whether the output's pixels may go back to the pool once replaced: they are the node's own rather than
+        // its input passed through, and were never returned by a render.
+        boolean recyclable;
+        // Whether the output must be recomputed in full; otherwise the rectangle of it to recompute, if any.
+        boolean stale = true;
+        int[] dirty;
+
+        Node(String name, Node input, Set<String> parameters) {
+            this.name = name;
+            this.input = input;
+            this.parameters = parameters;
+        }
+
+        // Compiles the node's operation for the current parameters.
+        Pipeline compile(Map<String, Object> parameters) {
+            return Pipeline.builder().build();
+        }
+
+        // Returns the rectangle of the output that a change to a rectangle of the input affects, or null if the
+        // whole output may change. Only called while the output is up to date apart from its dirty rectangle.
+        int[] affected(int[] changed, ArgbRaster input) {
+            return null;
+        }
+    }
+
+    // Gamma correction, a table applied to every pixel.
+    private static final class GammaNode extends Node {
+        GammaNode(Node input) {
+            super("Gamma", input, Set.of(GAMMA));
+        }
+
+        @Override
+        Pipeline compile(Map<String, Object> parameters) {
+            double gamma = (Double) parameters.get(GAMMA);
+            Pipeline.Builder builder = Pipeline.builder();
+            if (gamma != 1.0) {
+                builder.pointOperation(ChannelLut.gamma(gamma));
+            }
+            return builder.build();
+        }
+
+        @Override
+        int[] affected(int[] changed, ArgbRaster input) {
+            return changed;
+        }
+    }
+
+    // A filter from FilterFactory.
+    private static final class FilterNode extends Node {
+        private Filters filter;
+
+        FilterNode(Node input) {
+            super("Filter", input, Set.of(FILTER));
+        }
+
+        @Override
+        Pipeline compile(Map<String, Object> parameters) {
+            String name = (String) parameters.get(FILTER);
+            Pipeline.Builder builder = Pipeline.builder();
+            filter = PipelineSpec.NO_FILTER.equals(name) ? null : FilterFactory.createFilter(name);
+            if (filter != null) {
+                builder.filter(filter);
+            }
+            return builder.build();
+        }
+
+        // Grows the rectangle by the filter's halo, when the filter reads a bounded neighborhood.
+        @Override
+        int[] affected(int[] changed, ArgbRaster input) {
+            if (filter == null || filter instanceof PointFilter) {
+                return changed;
+            }
+            if (!(filter instanceof NeighborhoodFilter neighborhood)
+                    || filter instanceof ConvolutionFilter convolution && convolution.measuresResponses()) {
+                return null;
+            }
+            int rows = neighborhood.haloRows();
+            int columns = neighborhood.haloColumns();
+            if (rows < 0 || columns < 0) {
+                return null;
+            }
+            return new int[] {Math.max(changed[0] - columns, 0), Math.max(changed[1] - rows, 0),
+                    Math.min(changed[2] + columns, input.width()), Math.min(changed[3] + rows, input.height())};
+        }
+    }
+
+    // The resize, mapping a changed rectangle to the output pixels whose interpolator taps reach into it.
+    private static final class ResizeNode extends Node {
+        private Interpolator interpolator;
+        private double scale;
+
+        ResizeNode(Node input) {
+            super("Resize", input, Set.of(INTERPOLATOR, SCALE));
+        }
+
+        @Override
+        Pipeline compile(Map<String, Object> parameters) {
+            scale = (Double) parameters.get(SCALE);
+            interpolator = InterpolatorFactory.createInterpolator((String) parameters.get(INTERPOLATOR), scale);
+            return Pipeline.builder().resize(scale, interpolator).build();
+        }
+
+        @Override
+        int[] affected(int[] changed, ArgbRaster input) {
+            if (scale == 1.0) {
+                return changed;
+            }
+            int[] columns = outputSpan(input.width(), output.width(), changed[0], changed[2]);
+            int[] rows = outputSpan(input.height(), output.height(), changed[1], changed[3]);
+            return new int[] {columns[0], rows[0], columns[1], rows[1]};
+        }
+
+        // Returns the output positions, along one axis, whose source samples overlap [from, to). The samples of
+        // consecutive outputs only move forward, so the first and last such position are found by binary search.
+        private int[] outputSpan(int sourceSize, int outputSize, int from, int to) {
+            int low = 0;
+            int high = outputSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ImageResizer.sourceRows(interpolator, scale, sourceSize, mid, mid + 1)[1] > from) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            int first = low;
+            high = outputSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ImageResizer.sourceRows(interpolator, scale, sourceSize, mid, mid + 1)[0] < to) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return new int[] {first, Math.max(low, first)};
+        }
+    }
+}
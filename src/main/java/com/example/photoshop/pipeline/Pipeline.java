@@ -0,0 +1,554 @@
+package com.example.photoshop.pipeline;
+
+import com.example.photoshop.filter.ConvolutionFilter;
+import com.example.photoshop.filter.Filters;
+import com.example.photoshop.filter.NeighborhoodFilter;
+import com.example.photoshop.filter.PointFilter;
+import com.example.photoshop.filter.ResponseStatistics;
+import com.example.photoshop.interploators.ImageResizer;
+import com.example.photoshop.interploators.Interpolator;
+import com.example.photoshop.metrics.PipelineMetrics;
+import com.example.photoshop.metrics.StageTimer;
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.BufferPool;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.StripSource;
+import com.example.photoshop.raster.TileScheduler;
+import com.example.photoshop.raster.TileSink;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A compiled sequence of raster operations.
+ * <p>
+ * The builder collects point operations (lookup tables), filters and resizes in order; {@link Builder#build()}
+ * then plans the passes. Consecutive point operations are composed into one table. That table is folded into
+ * the output of the preceding neighborhood stage (a convolution or a resize) when there is one, otherwise into
+ * the input of the following one, so it never costs a pass of its own. A separate pass, and with it a full-size
+ * intermediate, is only made for a table that has no neighborhood stage to fuse with, and for filters that
+ * cannot fuse at all.
+ * <p>
+ * Besides running on whole rasters, a pipeline can {@link #stream} an image through its passes in strips,
+ * holding only a few rows per pass.
+ * <p>
+ * Every pass, strip and region is timed into {@link PipelineMetrics#getDefault()} under the name of its stage.
+ */
+public final class Pipeline {
+    // Rows measured at a time when a streamed stage needs a statistic of its whole input first.
+    private static final int MEASURE_STRIP_ROWS = 256;
+
+    private final List<Stage> stages;
+
+    private Pipeline(List<Stage> stages) {
+        this.stages = Collections.unmodifiableList(stages);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Runs every planned pass over a raster.
+     *
+     * @param source Raster to process. It is not modified.
+     * @return The processed raster, or the source itself if the pipeline is empty.
+     */
+    public ArgbRaster run(ArgbRaster source) {
+        ArgbRaster raster = source;
+        for (Stage stage : stages) {
+            raster = next(source, raster, measure(stage, raster));
+        }
+        return raster;
+    }
+
+    /**
+     * Runs every planned pass over a raster, reporting the output tiles of the final pass to a sink as
+     * they complete. Tiles of earlier passes are intermediate and are not reported.
+     *
+     * @param source Raster to process. It is not modified.
+     * @param sink Sink receiving completed output tiles.
+     * @return The processed raster, or the source itself if the pipeline is empty.
+     */
+    public ArgbRaster run(ArgbRaster source, TileSink sink) {
+        ArgbRaster raster = source;
+        for (int i = 0; i < stages.size() - 1; i++) {
+            raster = next(source, raster, measure(stages.get(i), raster));
+        }
+        if (stages.isEmpty()) {
+            return raster;
+        }
+        ArgbRaster input = raster;
+        return next(source, input, TileScheduler.withTileSink(sink, () -> measure(stages.get(stages.size() - 1), input)));
+    }
+
+    /**
+     * Runs every planned pass but computes only a region of the final output. Earlier passes run in full;
+     * a final resize or table pass computes just the region, a final filter with a known halo that does not
+     * measure the whole image computes just the region's rows, and other final passes run in full and are
+     * cropped.
+     *
+     * @param source Raster to process. It is not modified.
+     * @param x0 Left edge of the region in output coordinates, inclusive.
+     * @param y0 Top edge of the region in output coordinates, inclusive.
+     * @param x1 Right edge of the region in output coordinates, exclusive.
+     * @param y1 Bottom edge of the region in output coordinates, exclusive.
+     * @return The region of the processed raster. It may share pixels with the source.
+     */
+    public ArgbRaster runRegion(ArgbRaster source, int x0, int y0, int x1, int y1) {
+        ArgbRaster raster = source;
+        for (int i = 0; i < stages.size() - 1; i++) {
+            raster = next(source, raster, measure(stages.get(i), raster));
+        }
+        if (stages.isEmpty()) {
+            return raster.region(x0, y0, x1 - x0, y1 - y0);
+        }
+        Stage last = stages.get(stages.size() - 1);
+        try (StageTimer timer = PipelineMetrics.getDefault().start(last.name())) {
+            ArgbRaster region = last.runRegion(raster, x0, y0, x1, y1);
+            timer.record(pixels(region));
+            return next(source, raster, region);
+        }
+    }
+
+    /**
+     * Streams every planned pass over a source delivered in strips, for images too large to hold in memory.
+     * Each pass pulls just the rows it needs from the one before: a filter reads its kernel's reach above and
+     * below the requested rows, a resize reads the source rows its interpolator samples, and rows shared by
+     * consecutive strips are kept rather than computed again. Peak memory therefore grows with the image
+     * width and strip height rather than the image area.
+     * <p>
+     * Results equal {@link #run}, except that filters with running sums may round differently by one level.
+     * Filters that normalize by a measured response range first measure it over all strips, which reads the
+     * input twice; filters that normalize by a fixed range stream in a single pass.
+     * Filters that do not declare a halo, and interpolators without a row-oriented path, still need their
+     * whole input at once.
+     *
+     * @param source Image to process.
+     * @return The processed image; reading its strips from top to bottom runs the passes.
+     */
+    public StripSource stream(StripSource source) {
+        StripSource strips = source;
+        for (Stage stage : stages) {
+            strips = PipelineMetrics.getDefault().measure(stage.name(), stage.stream(strips));
+        }
+        return strips;
+    }
+
+    /**
+     * Returns the number of passes over memory the plan makes.
+     *
+     * @return Number of planned stages.
+     */
+    public int passCount() {
+        return stages.size();
+    }
+
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        for (Stage stage : stages) {
+            parts.add(stage.toString());
+        }
+        return "Pipeline" + parts;
+    }
+
+    // Runs a stage over a whole raster, timing it.
+    private static ArgbRaster measure(Stage stage, ArgbRaster input) {
+        try (StageTimer timer = PipelineMetrics.getDefault().start(stage.name())) {
+            ArgbRaster output = stage.run(input);
+            timer.record(pixels(output));
+            return output;
+        }
+    }
+
+    // Hands on a pass's output, returning its input to the buffer pool when that was the intermediate of an earlier
+    // pass. Consecutive passes thus ping-pong between pooled buffers instead of allocating new ones.
+    private static ArgbRaster next(ArgbRaster source, ArgbRaster input, ArgbRaster output) {
+        if (input != source && input.pixels() != source.pixels() && input.pixels() != output.pixels()) {
+            BufferPool.getDefault().release(input);
+        }
+        return output;
+    }
+
+    // Number of pixels in a raster.
+    private static long pixels(ArgbRaster raster) {
+        return (long) raster.width() * raster.height();
+    }
+
+    /**
+     * Collects operations in the order they should be applied.
+     */
+    public static final class Builder {
+        private final List<Object> operations = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Appends a point operation.
+         *
+         * @param lut Lookup table applied to the color channels.
+         * @return This builder.
+         */
+        public Builder pointOperation(ChannelLut lut) {
+            operations.add(lut);
+            return this;
+        }
+
+        /**
+         * Appends a filter. Point filters are treated as their lookup table.
+         *
+         * @param filter Filter to apply.
+         * @return This builder.
+         */
+        public Builder filter(Filters filter) {
+            operations.add(filter instanceof PointFilter ? ((PointFilter) filter).getLut() : filter);
+            return this;
+        }
+
+        /**
+         * Appends a resize. A scale of exactly 1 is dropped during planning.
+         *
+         * @param scale Scale factor.
+         * @param interpolator Interpolator used to sample the source.
+         * @return This builder.
+         */
+        public Builder resize(double scale, Interpolator interpolator) {
+            operations.add(new ResizeStage(scale, interpolator));
+            return this;
+        }
+
+        /**
+         * Plans the passes for the collected operations.
+         *
+         * @return The compiled pipeline.
+         */
+        public Pipeline build() {
+            List<Stage> stages = new ArrayList<>();
+            ChannelLut pending = ChannelLut.identity();
+
+            for (Object operation : operations) {
+                FusableStage previous = lastFusable(stages);
+                if (operation instanceof ChannelLut lut) {
+                    // Fold into the output of the previous neighborhood stage, or hold for the next one.
+                    if (previous != null) {
+                        previous.outputLut = previous.outputLut.andThen(lut);
+                    } else {
+                        pending = pending.andThen(lut);
+                    }
+                } else if (operation instanceof ResizeStage resize) {
+                    if (resize.scale == 1.0) {
+                        continue;
+                    }
+                    stages.add(new ResizeStage(resize.scale, resize.interpolator, pending));
+                    pending = ChannelLut.identity();
+                } else if (operation instanceof NeighborhoodFilter filter) {
+                    stages.add(new NeighborhoodStage(filter, pending));
+                    pending = ChannelLut.identity();
+                } else {
+                    // An opaque filter cannot fuse, so a pending table needs a pass of its own first.
+                    if (!pending.isIdentity()) {
+                        stages.add(new LutStage(pending));
+                        pending = ChannelLut.identity();
+                    }
+                    stages.add(new FilterStage((Filters) operation));
+                }
+            }
+            if (!pending.isIdentity()) {
+                stages.add(new LutStage(pending));
+            }
+            return new Pipeline(new ArrayList<>(stages));
+        }
+
+        // Returns the last stage if it can absorb an output table, otherwise null.
+        private static FusableStage lastFusable(List<Stage> stages) {
+            if (stages.isEmpty()) {
+                return null;
+            }
+            Stage last = stages.get(stages.size() - 1);
+            return last instanceof FusableStage ? (FusableStage) last : null;
+        }
+    }
+
+    // One pass over the image.
+    private interface Stage {
+        ArgbRaster run(ArgbRaster input);
+
+        // Name the pass's metrics are recorded under; the same for every edit using the same operation.
+        String name();
+
+        // Computes a region of the pass's output. Stages that can only produce whole images crop.
+        default ArgbRaster runRegion(ArgbRaster input, int x0, int y0, int x1, int y1) {
+            return run(input).region(x0, y0, x1 - x0, y1 - y0);
+        }
+
+        // Streams the pass over strips. Stages that can only produce whole images read their whole input.
+        default StripSource stream(StripSource input) {
+            return streamWhole(this, input);
+        }
+    }
+
+    // Streams a same-size stage by running it once over its whole input and serving strips of the result.
+    private static StripSource streamWhole(Stage stage, StripSource input) {
+        return new ComputedStrips(input.width(), input.height()) {
+            private ArgbRaster output;
+
+            @Override
+            public ArgbRaster readRows(int y0, int y1) {
+                if (output == null) {
+                    output = stage.run(input.readRows(0, input.height()));
+                }
+                return output.region(0, y0, width(), y1 - y0);
+            }
+        };
+    }
+
+    // Strips of a known size whose rows a stage computes when they are read.
+    private abstract static class ComputedStrips implements StripSource {
+        private final int width;
+        private final int height;
+
+        ComputedStrips(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public int width() {
+            return width;
+        }
+
+        @Override
+        public int height() {
+            return height;
+        }
+    }
+
+    // A neighborhood stage with fused input and output tables. The output table is only extended while planning.
+    private abstract static class FusableStage implements Stage {
+        final ChannelLut inputLut;
+        ChannelLut outputLut = ChannelLut.identity();
+
+        FusableStage(ChannelLut inputLut) {
+            this.inputLut = inputLut;
+        }
+
+        // Describes the fused tables, if any, for toString.
+        String fusion() {
+            return (inputLut.isIdentity() ? "" : " +inputLut") + (outputLut.isIdentity() ? "" : " +outputLut");
+        }
+    }
+
+    // Runs a neighborhood filter with its fused tables.
+    private static final class NeighborhoodStage extends FusableStage {
+        private final NeighborhoodFilter filter;
+
+        NeighborhoodStage(NeighborhoodFilter filter, ChannelLut inputLut) {
+            super(inputLut);
+            this.filter = filter;
+        }
+
+        @Override
+        public ArgbRaster run(ArgbRaster input) {
+            return filter.applyFilter(input, inputLut, outputLut);
+        }
+
+        // Filters just the region's rows together with the halo rows around them, unless the filter measures
+        // the whole image.
+        @Override
+        public ArgbRaster runRegion(ArgbRaster input, int x0, int y0, int x1, int y1) {
+            int halo = filter.haloRows();
+            if (halo < 0 || measuring(filter) != null) {
+                return run(input).region(x0, y0, x1 - x0, y1 - y0);
+            }
+            int bandY = Math.max(y0 - halo, 0);
+            ArgbRaster band = input.region(0, bandY, input.width(), Math.min(y1 + halo, input.height()) - bandY);
+            return filter.applyFilter(band, inputLut, outputLut).region(x0, y0 - bandY, x1 - x0, y1 - y0);
+        }
+
+        // Filters each strip together with the halo rows around it and keeps the strip's rows. A convolution
+        // that normalizes by a measured range first merges its response statistics over the whole input,
+        // strip by strip.
+        @Override
+        public StripSource stream(StripSource input) {
+            int halo = filter.haloRows();
+            if (halo < 0) {
+                return streamWhole(this, input);
+            }
+            ConvolutionFilter normalizing = measuring(filter);
+            RowWindow window = new RowWindow(input);
+            return new ComputedStrips(input.width(), input.height()) {
+                private float[] range;
+
+                @Override
+                public ArgbRaster readRows(int y0, int y1) {
+                    if (normalizing != null && range == null) {
+                        range = measureRange(normalizing, input, halo);
+                    }
+                    int bandY = Math.max(y0 - halo, 0);
+                    ArgbRaster band = window.rows(bandY, Math.min(y1 + halo, height()));
+                    ArgbRaster output;
+                    if (normalizing == null) {
+                        output = filter.applyFilter(band, inputLut, outputLut);
+                    } else if (range.length == 0) {
+                        output = new ArgbRaster(width(), band.height());
+                    } else {
+                        output = normalizing.applyFilter(band, inputLut, outputLut, range);
+                    }
+                    return output.region(0, y0 - bandY, width(), y1 - y0);
+                }
+            };
+        }
+
+        // Merges the filter's response statistics over every strip of the input into the range it stretches;
+        // empty if the input is.
+        private float[] measureRange(ConvolutionFilter convolution, StripSource input, int halo) {
+            RowWindow window = new RowWindow(input);
+            ResponseStatistics statistics = null;
+            for (int y = 0; y < input.height(); y += MEASURE_STRIP_ROWS) {
+                int end = Math.min(y + MEASURE_STRIP_ROWS, input.height());
+                int bandY = Math.max(y - halo, 0);
+                ArgbRaster band = window.rows(bandY, Math.min(end + halo, input.height()));
+                ResponseStatistics part = convolution.responseStatistics(band, inputLut, y - bandY, end - bandY);
+                statistics = statistics == null ? part : statistics.merge(part);
+            }
+            float[] range = statistics == null ? null : convolution.responseRange(statistics);
+            return range == null ? new float[0] : range;
+        }
+
+        // Returns the filter as a convolution if it normalizes by a range measured over the whole image.
+        private static ConvolutionFilter measuring(NeighborhoodFilter filter) {
+            return filter instanceof ConvolutionFilter convolution && convolution.measuresResponses() ? convolution : null;
+        }
+
+        @Override
+        public String name() {
+            return filter.getClass().getSimpleName();
+        }
+
+        @Override
+        public String toString() {
+            return filter.getClass().getSimpleName() + fusion();
+        }
+    }
+
+    // Resizes with fused tables. Also used by the builder, without tables, to record a requested resize.
+    private static final class ResizeStage extends FusableStage {
+        private final double scale;
+        private final Interpolator interpolator;
+
+        ResizeStage(double scale, Interpolator interpolator) {
+            this(scale, interpolator, ChannelLut.identity());
+        }
+
+        ResizeStage(double scale, Interpolator interpolator, ChannelLut inputLut) {
+            super(inputLut);
+            this.scale = scale;
+            this.interpolator = interpolator;
+        }
+
+        @Override
+        public ArgbRaster run(ArgbRaster input) {
+            return ImageResizer.resize(input, scale, interpolator, inputLut, outputLut);
+        }
+
+        @Override
+        public ArgbRaster runRegion(ArgbRaster input, int x0, int y0, int x1, int y1) {
+            return ImageResizer.resizeRegion(input, scale, interpolator, inputLut, outputLut, x0, y0, x1, y1);
+        }
+
+        // Resizes each strip from the band of source rows its interpolator samples.
+        @Override
+        public StripSource stream(StripSource input) {
+            int sourceHeight = input.height();
+            RowWindow window = new RowWindow(input);
+            return new ComputedStrips((int) (input.width() * scale), (int) (sourceHeight * scale)) {
+                @Override
+                public ArgbRaster readRows(int y0, int y1) {
+                    if (y1 <= y0) {
+                        return new ArgbRaster(width(), 0);
+                    }
+                    int[] rows = ImageResizer.sourceRows(interpolator, scale, sourceHeight, y0, y1);
+                    ArgbRaster band = window.rows(rows[0], rows[1]);
+                    return ImageResizer.resizeBand(band, rows[0], sourceHeight, scale, interpolator,
+                            inputLut, outputLut, 0, y0, width(), y1);
+                }
+            };
+        }
+
+        @Override
+        public String name() {
+            return "Resize " + interpolator.getClass().getSimpleName();
+        }
+
+        @Override
+        public String toString() {
+            return "Resize x" + scale + " " + interpolator.getClass().getSimpleName() + fusion();
+        }
+    }
+
+    // Applies a composed table as its own pass.
+    private static final class LutStage implements Stage {
+        private final ChannelLut lut;
+
+        LutStage(ChannelLut lut) {
+            this.lut = lut;
+        }
+
+        @Override
+        public ArgbRaster run(ArgbRaster input) {
+            return lut.apply(input);
+        }
+
+        @Override
+        public ArgbRaster runRegion(ArgbRaster input, int x0, int y0, int x1, int y1) {
+            return lut.apply(input.region(x0, y0, x1 - x0, y1 - y0));
+        }
+
+        @Override
+        public StripSource stream(StripSource input) {
+            return new ComputedStrips(input.width(), input.height()) {
+                @Override
+                public ArgbRaster readRows(int y0, int y1) {
+                    return lut.apply(input.readRows(y0, y1));
+                }
+            };
+        }
+
+        @Override
+        public String name() {
+            return "Lut";
+        }
+
+        @Override
+        public String toString() {
+            return "Lut";
+        }
+    }
+
+    // Runs a filter that cannot take part in fusion.
+    private static final class FilterStage implements Stage {
+        private final Filters filter;
+
+        FilterStage(Filters filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public ArgbRaster run(ArgbRaster input) {
+            return filter.applyFilter(input);
+        }
+
+        @Override
+        public String name() {
+            return filter.getClass().getSimpleName();
+        }
+
+        @Override
+        public String toString() {
+            return filter.getClass().getSimpleName();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.photoshop.pipeline;
+
+import com.example.photoshop.filter.FilterFactory;
+import com.example.photoshop.interploators.InterpolatorFactory;
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+
+import java.util.Objects;
+
+/**
+ * Immutable description of one edit: gamma correction, an optional named filter and a resize.
+ * The same spec drives the interactive UI and the headless batch processor.
+ */
+public final class PipelineSpec {
+    /**
+     * Filter name meaning "no filter".
+     */
+    public static final String NO_FILTER = "None";
+
+    private final double gamma;
+    private final String filterName;
+    private final String interpolatorName;
+    private final double scale;
+
+    /**
+     * Creates a pipeline spec.
+     *
+     * @param gamma Gamma correction value; 1.0 leaves the image unchanged. Must be positive.
+     * @param filterName Name of a filter from {@link FilterFactory}, or {@link #NO_FILTER}.
+     * @param interpolatorName Name of an interpolator from {@link InterpolatorFactory}.
+     * @param scale Resize factor; 1.0 keeps the original size. Must be positive.
+     * @throws IllegalArgumentException if gamma or scale is not positive, or a name is unknown.
+     */
+    public PipelineSpec(double gamma, String filterName, String interpolatorName, double scale) {
+        if (gamma <= 0 || scale <= 0) {
+            throw new IllegalArgumentException("Gamma and scale must be positive");
+        }
+        if (!NO_FILTER.equals(filterName) && !FilterFactory.getFilterNames().contains(filterName)) {
+            throw new IllegalArgumentException("Unknown filter: " + filterName);
+        }
+        if (!InterpolatorFactory.getInterpolatorNames().contains(interpolatorName)) {
+            throw new IllegalArgumentException("Unknown interpolator: " + interpolatorName);
+        }
+        this.gamma = gamma;
+        this.filterName = filterName;
+        this.interpolatorName = interpolatorName;
+        this.scale = scale;
+    }
+
+    /**
+     * Runs the edit on a raster: gamma correction, then the filter, then the resize.
+     *
+     * @param source Raster to process. It is not modified.
+     * @return The processed raster.
+     */
+    public ArgbRaster apply(ArgbRaster source) {
+        return toPipeline().run(source);
+    }
+
+    /**
+     * Compiles the edit into a pipeline. Stages that would leave the image unchanged are left out,
+     * and the gamma table is fused into the filter or resize when there is one.
+     *
+     * @return The compiled pipeline.
+     */
+    public Pipeline toPipeline() {
+        return addResize(addFilters(Pipeline.builder())).build();
+    }
+
+    /**
+     * Compiles only the gamma correction and filter, leaving out the resize.
+     * The result is the intermediate a cache can keep so that changing the scale skips these stages.
+     *
+     * @return The compiled pipeline.
+     */
+    public Pipeline toFilterPipeline() {
+        return addFilters(Pipeline.builder()).build();
+    }
+
+    /**
+     * Compiles only the resize, to run on the output of {@link #toFilterPipeline()}.
+     *
+     * @return The compiled pipeline.
+     */
+    public Pipeline toResizePipeline() {
+        return addResize(Pipeline.builder()).build();
+    }
+
+    /**
+     * Returns whether the edit includes a filter.
+     *
+     * @return True unless the filter is {@link #NO_FILTER}.
+     */
+    public boolean hasFilter() {
+        return !NO_FILTER.equals(filterName);
+    }
+
+    // Appends the gamma correction and the filter to a pipeline.
+    private Pipeline.Builder addFilters(Pipeline.Builder builder) {
+        if (gamma != 1.0) {
+            builder.pointOperation(ChannelLut.gamma(gamma));
+        }
+        if (hasFilter()) {
+            builder.filter(FilterFactory.createFilter(filterName));
+        }
+        return builder;
+    }
+
+    // Appends the resize to a pipeline.
+    private Pipeline.Builder addResize(Pipeline.Builder builder) {
+        return builder.resize(scale, InterpolatorFactory.createInterpolator(interpolatorName, scale));
+    }
+
+    public double getGamma() {
+        return gamma;
+    }
+
+    public String getFilterName() {
+        return filterName;
+    }
+
+    public String getInterpolatorName() {
+        return interpolatorName;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Returns a copy with gamma and scale rounded to four decimal places, the precision shown in the UI,
+     * so slider positions that only differ by floating-point noise describe the same edit.
+     *
+     * @return The normalized spec.
+     */
+    public PipelineSpec normalized() {
+        return new PipelineSpec(round(gamma), filterName, interpolatorName, round(scale));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PipelineSpec)) {
+            return false;
+        }
+        PipelineSpec other = (PipelineSpec) o;
+        return Double.compare(gamma, other.gamma) == 0
+                && Double.compare(scale, other.scale) == 0
+                && filterName.equals(other.filterName)
+                && interpolatorName.equals(other.interpolatorName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gamma, filterName, interpolatorName, scale);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("gamma=%.4f, filter=%s, interpolator=%s, scale=%.4f", gamma, filterName, interpolatorName, scale);
+    }
+
+    // Rounds a parameter to four decimal places, never reaching zero.
+    private static double round(double value) {
+        return Math.max(Math.round(value * 10_000) / 10_000.0, 0.0001);
+    }
+}
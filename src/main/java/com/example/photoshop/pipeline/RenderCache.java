@@ -0,0 +1,282 @@
+package com.example.photoshop.pipeline;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.TileSink;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Memory-bounded LRU cache of rendered rasters.
+ * <p>
+ * Entries are keyed on the identity of the source raster plus the normalized edit parameters. Besides
+ * final results the cache keeps the gamma-and-filter intermediate of every edit that has a filter, so an
+ * edit differing only in interpolator or scale resumes from that intermediate and runs just the resize.
+ * Regions of final results, such as the on-screen tiles of a zoomed image, are cached as entries of their own.
+ * Once the cached rasters exceed the byte budget, the least recently used ones are evicted.
+ * <p>
+ * Keys hold their source weakly, so the cache never keeps an image alive outside its budget: entries of a
+ * discarded source are no longer found and age out like any other. For the same reason results that share
+ * their pixels with the source, such as that of an identity edit, are not stored.
+ * <p>
+ * Cached rasters are shared between callers and must not be modified.
+ */
+public final class RenderCache {
+    private final long byteBudget;
+    // Access-ordered, so iteration starts at the least recently used entry. Guarded by this.
+    private final Map<Key, ArgbRaster> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesUsed;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param byteBudget Maximum total size of the cached pixel arrays, in bytes.
+     * @throws IllegalArgumentException if the budget is negative.
+     */
+    public RenderCache(long byteBudget) {
+        if (byteBudget < 0) {
+            throw new IllegalArgumentException("Byte budget must not be negative");
+        }
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Returns the rendered result of an edit, computing and caching whatever is missing.
+     *
+     * @param source Raster the edit applies to, identified by reference.
+     * @param spec Edit to apply.
+     * @return The rendered raster.
+     */
+    public ArgbRaster render(ArgbRaster source, PipelineSpec spec) {
+        return render(source, spec, (raster, x0, y0, x1, y1) -> {
+        });
+    }
+
+    /**
+     * Returns the rendered result of an edit, computing and caching whatever is missing.
+     * Tiles of the final pass are reported to the sink while it runs; nothing is reported on a full hit.
+     *
+     * @param source Raster the edit applies to, identified by reference.
+     * @param spec Edit to apply.
+     * @param sink Sink receiving completed output tiles.
+     * @return The rendered raster.
+     */
+    public ArgbRaster render(ArgbRaster source, PipelineSpec spec, TileSink sink) {
+        PipelineSpec normalized = spec.normalized();
+        Key resultKey = new Key(source, normalized, true, 0, 0, 0, 0);
+        ArgbRaster result = get(resultKey);
+        if (result != null) {
+            return result;
+        }
+
+        // Without a filter there is no intermediate worth keeping: gamma is fused into the resize pass.
+        if (!normalized.hasFilter()) {
+            result = normalized.toPipeline().run(source, sink);
+            if (!sharesPixels(result, source)) {
+                put(resultKey, result);
+            }
+            return result;
+        }
+
+        ArgbRaster filtered = filtered(source, normalized);
+        result = normalized.toResizePipeline().run(filtered, sink);
+        if (result != filtered) {
+            put(resultKey, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cached final result of an edit without rendering anything.
+     *
+     * @param source Raster the edit applies to, identified by reference.
+     * @param spec Edit to look up.
+     * @return The cached raster, or null if it is not cached.
+     */
+    public ArgbRaster getResult(ArgbRaster source, PipelineSpec spec) {
+        return get(new Key(source, spec.normalized(), true, 0, 0, 0, 0));
+    }
+
+    /**
+     * Stores the final result of an edit rendered elsewhere, such as by an {@link EditGraph}, so that later
+     * requests for the edit hit. A result sharing its pixels with the source is not stored.
+     *
+     * @param source Raster the edit applies to, identified by reference.
+     * @param spec Edit the result was rendered with.
+     * @param result Rendered raster. It must not be modified afterwards.
+     */
+    public void putResult(ArgbRaster source, PipelineSpec spec, ArgbRaster result) {
+        if (!sharesPixels(result, source)) {
+            put(new Key(source, spec.normalized(), true, 0, 0, 0, 0), result);
+        }
+    }
+
+    /**
+     * Returns a region of the rendered result of an edit without rendering the rest of it. Only the
+     * gamma-and-filter intermediate, if the edit has a filter, is computed in full, and it is cached for
+     * the other regions. Callers should request a fixed grid of regions so that they hit the cache.
+     *
+     * @param source Raster the edit applies to, identified by reference.
+     * @param spec Edit to apply.
+     * @param x0 Left edge of the region in output coordinates, inclusive.
+     * @param y0 Top edge of the region in output coordinates, inclusive.
+     * @param x1 Right edge of the region in output coordinates, exclusive.
+     * @param y1 Bottom edge of the region in output coordinates, exclusive.
+     * @return The rendered region.
+     * @throws IllegalArgumentException if the region is empty.
+     */
+    public ArgbRaster renderRegion(ArgbRaster source, PipelineSpec spec, int x0, int y0, int x1, int y1) {
+        if (x1 <= x0 || y1 <= y0) {
+            throw new IllegalArgumentException("Region must not be empty");
+        }
+        PipelineSpec normalized = spec.normalized();
+        Key regionKey = new Key(source, normalized, true, x0, y0, x1, y1);
+        ArgbRaster region = get(regionKey);
+        if (region != null) {
+            return region;
+        }
+        if (normalized.hasFilter()) {
+            region = normalized.toResizePipeline().runRegion(filtered(source, normalized), x0, y0, x1, y1);
+        } else {
+            region = normalized.toPipeline().runRegion(source, x0, y0, x1, y1);
+        }
+        if (!sharesPixels(region, source)) {
+            put(regionKey, region);
+        }
+        return region;
+    }
+
+    /**
+     * Removes every entry and resets the counters.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytesUsed = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getBytesUsed() {
+        return bytesUsed;
+    }
+
+    public long getByteBudget() {
+        return byteBudget;
+    }
+
+    // Returns the gamma-and-filter intermediate of an edit with a filter, computing and caching it if missing.
+    private ArgbRaster filtered(ArgbRaster source, PipelineSpec normalized) {
+        Key filteredKey = new Key(source, normalized, false, 0, 0, 0, 0);
+        ArgbRaster filtered = get(filteredKey);
+        if (filtered == null) {
+            filtered = normalized.toFilterPipeline().run(source);
+            put(filteredKey, filtered);
+        }
+        return filtered;
+    }
+
+    // Looks up an entry, counting the hit or miss.
+    private synchronized ArgbRaster get(Key key) {
+        ArgbRaster raster = entries.get(key);
+        if (raster == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return raster;
+    }
+
+    // Stores an entry and evicts least recently used ones until the budget holds. Oversized rasters are not stored.
+    private synchronized void put(Key key, ArgbRaster raster) {
+        long size = sizeOf(raster);
+        if (size > byteBudget) {
+            return;
+        }
+        ArgbRaster previous = entries.put(key, raster);
+        if (previous != null) {
+            bytesUsed -= sizeOf(previous);
+        }
+        bytesUsed += size;
+        Iterator<ArgbRaster> eldest = entries.values().iterator();
+        while (bytesUsed > byteBudget && eldest.hasNext()) {
+            bytesUsed -= sizeOf(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    // Whether a raster is, or is a region of, another, so caching it would pin the other's pixels.
+    private static boolean sharesPixels(ArgbRaster raster, ArgbRaster other) {
+        return raster.pixels() == other.pixels();
+    }
+
+    // Bytes held by a cached raster. A region that shares its array with a larger raster is counted at its own size.
+    private static long sizeOf(ArgbRaster raster) {
+        return 4L * Math.min(raster.pixels().length, (long) raster.stride() * raster.height());
+    }
+
+    // Cache key: the source by identity plus the parameters that affect the cached raster. The source is only
+    // weakly reachable from the key; once it is collected the key equals nothing but itself.
+    private static final class Key {
+        private final WeakReference<ArgbRaster> source;
+        private final int sourceHash;
+        private final double gamma;
+        private final String filterName;
+        // Interpolator and scale only take part in keys of final results.
+        private final String interpolatorName;
+        private final double scale;
+        // Region of the final result a region entry holds; all zero for whole rasters.
+        private final int x0;
+        private final int y0;
+        private final int x1;
+        private final int y1;
+
+        Key(ArgbRaster source, PipelineSpec spec, boolean includeResize, int x0, int y0, int x1, int y1) {
+            this.source = new WeakReference<>(source);
+            this.sourceHash = System.identityHashCode(source);
+            this.gamma = spec.getGamma();
+            this.filterName = spec.getFilterName();
+            this.interpolatorName = includeResize ? spec.getInterpolatorName() : null;
+            this.scale = includeResize ? spec.getScale() : 0;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            ArgbRaster raster = source.get();
+            return raster != null && raster == other.source.get()
+                    && x0 == other.x0 && y0 == other.y0 && x1 == other.x1 && y1 == other.y1
+                    && Double.compare(gamma, other.gamma) == 0
+                    && Double.compare(scale, other.scale) == 0
+                    && filterName.equals(other.filterName)
+                    && Objects.equals(interpolatorName, other.interpolatorName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sourceHash, gamma, filterName, interpolatorName, scale, x0, y0, x1, y1);
+        }
+    }
+}
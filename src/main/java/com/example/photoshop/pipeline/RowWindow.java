@@ -0,0 +1,59 @@
+package com.example.photoshop.pipeline;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.StripSource;
+
+/**
+ * A sliding window of consecutive rows read from a {@link StripSource}. When the next request overlaps the
+ * rows already held, such as the halo a kernel shares between consecutive strips, only the new rows are read
+ * and the overlap is kept, so each row is usually read once and only the current rows are in memory.
+ */
+final class RowWindow {
+    private final StripSource source;
+    private ArgbRaster rows = new ArgbRaster(0, 0);
+    // Source row held in the window's first row.
+    private int first;
+
+    RowWindow(StripSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Returns a range of source rows, reading only those the window does not already hold.
+     *
+     * @param y0 First row, inclusive.
+     * @param y1 Last row, exclusive.
+     * @return Raster holding the rows; valid until the next call.
+     */
+    ArgbRaster rows(int y0, int y1) {
+        int last = first + rows.height();
+        if (y0 >= first && y1 <= last) {
+            return rows.region(0, y0 - first, rows.width(), y1 - y0);
+        }
+        int keep0 = Math.max(y0, first);
+        int keep1 = Math.min(y1, last);
+        ArgbRaster next;
+        if (keep0 >= keep1) {
+            next = source.readRows(y0, y1);
+        } else {
+            next = new ArgbRaster(source.width(), y1 - y0);
+            copyRows(rows, keep0 - first, next, keep0 - y0, keep1 - keep0);
+            if (y0 < keep0) {
+                copyRows(source.readRows(y0, keep0), 0, next, 0, keep0 - y0);
+            }
+            if (keep1 < y1) {
+                copyRows(source.readRows(keep1, y1), 0, next, keep1 - y0, y1 - keep1);
+            }
+        }
+        rows = next;
+        first = y0;
+        return rows;
+    }
+
+    // Copies whole rows between rasters of the same width.
+    private static void copyRows(ArgbRaster from, int fromY, ArgbRaster to, int toY, int count) {
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(from.pixels(), from.rowOffset(fromY + i), to.pixels(), to.rowOffset(toY + i), from.width());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.photoshop.raster;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * A raster of packed 32-bit ARGB pixels backed by a primitive int array.
+ * Pixel (x, y) lives at {@code pixels[offset + y * stride + x]}, with alpha in the
+ * top byte followed by red, green and blue. Pixels are not premultiplied.
+ */
+public final class ArgbRaster {
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final int offset;
+    private final int stride;
+
+    /**
+     * Creates a new raster with its own zero-filled pixel array.
+     *
+     * @param width Width of the raster in pixels.
+     * @param height Height of the raster in pixels.
+     * @throws IllegalArgumentException if either dimension is negative.
+     */
+    public ArgbRaster(int width, int height) {
+        this(new int[checkedArea(width, height)], width, height, 0, width);
+    }
+
+    /**
+     * Wraps an existing pixel array without copying it.
+     *
+     * @param pixels Array holding the packed ARGB pixels.
+     * @param width Width of the raster in pixels.
+     * @param height Height of the raster in pixels.
+     * @param offset Index of pixel (0, 0) in the array.
+     * @param stride Distance in array elements between the starts of two consecutive rows.
+     * @throws IllegalArgumentException if the dimensions do not fit in the array.
+     */
+    public ArgbRaster(int[] pixels, int width, int height, int offset, int stride) {
+        if (width < 0 || height < 0 || offset < 0 || stride < width) {
+            throw new IllegalArgumentException("Invalid raster geometry");
+        }
+        if (height > 0 && offset + (long) (height - 1) * stride + width > pixels.length) {
+            throw new IllegalArgumentException("Pixel array is too small for the raster");
+        }
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.offset = offset;
+        this.stride = stride;
+    }
+
+    /**
+     * Copies the pixels of an image into a new raster in a single bulk read.
+     *
+     * @param image Image to read the pixels from.
+     * @return Raster containing a copy of the image's pixels.
+     */
+    public static ArgbRaster fromImage(Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        ArgbRaster raster = new ArgbRaster(width, height);
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), raster.pixels, 0, width);
+        return raster;
+    }
+
+    /**
+     * Copies the raster into a new image in a single bulk write.
+     *
+     * @return Image containing a copy of the raster's pixels.
+     */
+    public WritableImage toImage() {
+        WritableImage image = new WritableImage(Math.max(width, 1), Math.max(height, 1));
+        writeTo(image, 0, 0);
+        return image;
+    }
+
+    /**
+     * Copies the raster into an existing image at the given position.
+     *
+     * @param image Image to write the pixels to.
+     * @param x X-coordinate in the image of the raster's top-left pixel.
+     * @param y Y-coordinate in the image of the raster's top-left pixel.
+     */
+    public void writeTo(WritableImage image, int x, int y) {
+        if (width == 0 || height == 0) {
+            return;
+        }
+        image.getPixelWriter().setPixels(x, y, width, height, PixelFormat.getIntArgbInstance(), pixels, offset, stride);
+    }
+
+    /**
+     * Returns the packed ARGB value of a pixel.
+     *
+     * @param x X-coordinate of the pixel.
+     * @param y Y-coordinate of the pixel.
+     * @return Packed ARGB value.
+     */
+    public int getArgb(int x, int y) {
+        return pixels[offset + y * stride + x];
+    }
+
+    /**
+     * Sets the packed ARGB value of a pixel.
+     *
+     * @param x X-coordinate of the pixel.
+     * @param y Y-coordinate of the pixel.
+     * @param argb Packed ARGB value.
+     */
+    public void setArgb(int x, int y, int argb) {
+        pixels[offset + y * stride + x] = argb;
+    }
+
+    /**
+     * Returns the array index of the first pixel of a row.
+     *
+     * @param y Row index.
+     * @return Index into {@link #pixels()} of pixel (0, y).
+     */
+    public int rowOffset(int y) {
+        return offset + y * stride;
+    }
+
+    /**
+     * Returns a view of a rectangular part of this raster. The view shares the pixel array, so
+     * no pixels are copied and writes through either raster are visible in both.
+     *
+     * @param x X-coordinate of the region's top-left pixel.
+     * @param y Y-coordinate of the region's top-left pixel.
+     * @param width Width of the region.
+     * @param height Height of the region.
+     * @return Raster covering the region.
+     * @throws IllegalArgumentException if the region does not lie within this raster.
+     */
+    public ArgbRaster region(int x, int y, int width, int height) {
+        if (x < 0 || y < 0 || width < 0 || height < 0 || x + width > this.width || y + height > this.height) {
+            throw new IllegalArgumentException("Region lies outside the raster");
+        }
+        return new ArgbRaster(pixels, width, height, offset + y * stride + x, stride);
+    }
+
+    public int[] pixels() {
+        return pixels;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * Extracts the alpha channel of a packed ARGB value.
+     *
+     * @param argb Packed ARGB value.
+     * @return Alpha in the range [0, 255].
+     */
+    public static int alpha(int argb) {
+        return argb >>> 24;
+    }
+
+    /**
+     * Extracts the red channel of a packed ARGB value.
+     *
+     * @param argb Packed ARGB value.
+     * @return Red in the range [0, 255].
+     */
+    public static int red(int argb) {
+        return (argb >> 16) & 0xFF;
+    }
+
+    /**
+     * Extracts the green channel of a packed ARGB value.
+     *
+     * @param argb Packed ARGB value.
+     * @return Green in the range [0, 255].
+     */
+    public static int green(int argb) {
+        return (argb >> 8) & 0xFF;
+    }
+
+    /**
+     * Extracts the blue channel of a packed ARGB value.
+     *
+     * @param argb Packed ARGB value.
+     * @return Blue in the range [0, 255].
+     */
+    public static int blue(int argb) {
+        return argb & 0xFF;
+    }
+
+    /**
+     * Packs four channels into a single ARGB value. Channels must already be in [0, 255].
+     *
+     * @param a Alpha channel.
+     * @param r Red channel.
+     * @param g Green channel.
+     * @param b Blue channel.
+     * @return Packed ARGB value.
+     */
+    public static int pack(int a, int r, int g, int b) {
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    // Validates the dimensions and returns the number of pixels they describe.
+    private static int checkedArea(int width, int height) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Raster dimensions must not be negative");
+        }
+        return Math.multiplyExact(width, height);
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.photoshop.raster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Recycles the large pixel and response arrays that filters and resizes need for every run, so dragging a slider
+ * reuses the buffers of the previous frame instead of allocating hundreds of megabytes of garbage per second.
+ * <p>
+ * Arrays are kept in size classes eight to a power of two, so a request is served by an array at most an eighth
+ * larger than asked for. Borrowed arrays hold whatever their previous user wrote, so callers must write every
+ * element they read. Only arrays the caller owns outright may be released: an array still referenced elsewhere,
+ * such as the pixels of a cached or displayed raster, would be handed out and overwritten. Released arrays beyond
+ * the byte budget are left to the garbage collector.
+ * <p>
+ * The default pool holds up to {@code photoshop.poolBytes} bytes, 256 MB unless set; a budget of 0 turns
+ * pooling off.
+ */
+public final class BufferPool {
+    // Requests below this many elements are cheap to allocate and are never pooled.
+    private static final int MIN_POOLED_LENGTH = 4096;
+    // Size classes per power of two, as a shift.
+    private static final int CLASS_BITS = 3;
+    private static final BufferPool DEFAULT = new BufferPool(Long.getLong("photoshop.poolBytes", 256L << 20));
+
+    private final long maxBytes;
+    // Free arrays by size class; every array in a class has at least the class's length.
+    private final Map<Integer, ConcurrentLinkedDeque<int[]>> ints = new ConcurrentHashMap<>();
+    private final Map<Integer, ConcurrentLinkedDeque<float[]>> floats = new ConcurrentHashMap<>();
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param maxBytes Maximum total size of the arrays kept for reuse, in bytes.
+     * @throws IllegalArgumentException if the budget is negative.
+     */
+    public BufferPool(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Byte budget must not be negative");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the pool the filters, resizes and pipelines borrow from.
+     *
+     * @return The shared pool.
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Borrows a raster with its own pixel array. Its pixels are undefined.
+     *
+     * @param width Width of the raster in pixels.
+     * @param height Height of the raster in pixels.
+     * @return Raster with offset 0 and a stride equal to its width.
+     * @throws IllegalArgumentException if either dimension is negative.
+     * @throws ArithmeticException if the raster has more than {@code Integer.MAX_VALUE} pixels.
+     */
+    public ArgbRaster raster(int width, int height) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Raster dimensions must not be negative");
+        }
+        return new ArgbRaster(ints(Math.multiplyExact(width, height)), width, height, 0, width);
+    }
+
+    /**
+     * Borrows an int array. Its contents are undefined.
+     *
+     * @param length Minimum length.
+     * @return Array of at least the given length.
+     */
+    public int[] ints(int length) {
+        int[] array = poll(ints, length, a -> a.length);
+        return array != null ? array : new int[sizeClass(length)];
+    }
+
+    /**
+     * Borrows a float array. Its contents are undefined.
+     *
+     * @param length Minimum length.
+     * @return Array of at least the given length.
+     */
+    public float[] floats(int length) {
+        float[] array = poll(floats, length, a -> a.length);
+        return array != null ? array : new float[sizeClass(length)];
+    }
+
+    /**
+     * Returns the pixel array of a raster for reuse. The raster, and every region of it, must not be used again.
+     *
+     * @param raster Raster whose array nothing else references; null is ignored.
+     */
+    public void release(ArgbRaster raster) {
+        if (raster != null) {
+            release(raster.pixels());
+        }
+    }
+
+    /**
+     * Returns an int array for reuse. It must not be used again.
+     *
+     * @param array Array nothing else references; null is ignored.
+     */
+    public void release(int[] array) {
+        if (array != null) {
+            offer(ints, array, array.length);
+        }
+    }
+
+    /**
+     * Returns a float array for reuse. It must not be used again.
+     *
+     * @param array Array nothing else references; null is ignored.
+     */
+    public void release(float[] array) {
+        if (array != null) {
+            offer(floats, array, array.length);
+        }
+    }
+
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Drops every pooled array.
+     */
+    public void clear() {
+        ints.clear();
+        floats.clear();
+        pooledBytes.set(0);
+    }
+
+    // Takes a free array of the request's size class, or returns null. Small requests are never pooled.
+    private <T> T poll(Map<Integer, ConcurrentLinkedDeque<T>> pool, int length, ToIntFunction<T> lengthOf) {
+        if (length < MIN_POOLED_LENGTH || maxBytes == 0) {
+            return null;
+        }
+        ConcurrentLinkedDeque<T> free = pool.get(sizeClass(length));
+        T array = free == null ? null : free.pollFirst();
+        if (array == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        pooledBytes.addAndGet(-4L * lengthOf.applyAsInt(array));
+        return array;
+    }
+
+    // Keeps an array in the largest size class it can serve, unless that would exceed the budget.
+    private <T> void offer(Map<Integer, ConcurrentLinkedDeque<T>> pool, T array, int length) {
+        if (length < MIN_POOLED_LENGTH) {
+            return;
+        }
+        long bytes = 4L * length;
+        if (pooledBytes.addAndGet(bytes) > maxBytes) {
+            pooledBytes.addAndGet(-bytes);
+            return;
+        }
+        // Most recently released first, so a reused array is more likely to still be in cache.
+        pool.computeIfAbsent(floorClass(length), size -> new ConcurrentLinkedDeque<>()).offerFirst(array);
+    }
+
+    // Smallest size class holding at least length elements.
+    private static int sizeClass(int length) {
+        if (length <= MIN_POOLED_LENGTH) {
+            return length;
+        }
+        int shift = 31 - Integer.numberOfLeadingZeros(length - 1) - CLASS_BITS;
+        long size = ((long) length + (1 << shift) - 1) >> shift << shift;
+        return size > Integer.MAX_VALUE - 8 ? length : (int) size;
+    }
+
+    // Largest size class an array of the given length can serve.
+    private static int floorClass(int length) {
+        int shift = 31 - Integer.numberOfLeadingZeros(length) - CLASS_BITS;
+        return length >> shift << shift;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.photoshop.raster;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation flag for a render job.
+ * A token bound with {@link TileScheduler#withCancellation} is checked before every tile the
+ * scheduler runs, so any filter or resize running on the scheduler stops at the next tile boundary
+ * once the token is cancelled.
+ */
+public final class CancellationToken {
+    private static final CancellationToken NONE = new CancellationToken();
+
+    private volatile boolean cancelled;
+
+    /**
+     * Returns a token that is never cancelled.
+     *
+     * @return The shared never-cancelled token.
+     */
+    public static CancellationToken none() {
+        return NONE;
+    }
+
+    /**
+     * Requests cancellation. Work already inside a tile finishes that tile.
+     */
+    public void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throws if cancellation has been requested.
+     *
+     * @throws CancellationException if the token is cancelled.
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Render cancelled");
+        }
+    }
+}
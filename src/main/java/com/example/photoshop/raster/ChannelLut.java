@@ -0,0 +1,204 @@
+package com.example.photoshop.raster;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable 256-entry lookup table applied identically to the red, green and blue channels of
+ * packed ARGB pixels; alpha passes through unchanged. Point operations such as gamma correction
+ * are expressed as tables so consecutive ones can be composed into a single table and folded into
+ * the inner loop of a neighborhood operation instead of making their own pass over memory.
+ * The table is stored as 256 bytes, a quarter of an int table, so it occupies only four cache lines in
+ * inner loops that read it alongside other tables.
+ */
+public final class ChannelLut {
+    private static final ChannelLut IDENTITY = new ChannelLut(identityTable());
+    // Most gamma tables kept for reuse.
+    private static final int GAMMA_CACHE_SIZE = 64;
+    // Gamma tables by gamma value, least recently used first, guarded by the map itself. Renders of a slider value
+    // already seen share its table instead of recomputing 256 powers.
+    private static final Map<Double, ChannelLut> gammaTables = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Double, ChannelLut> eldest) {
+            return size() > GAMMA_CACHE_SIZE;
+        }
+    };
+
+    // Output values as unsigned bytes, indexed by input value.
+    private final byte[] table;
+    private final boolean identity;
+
+    // Stores a table of 256 values in [0, 255].
+    private ChannelLut(int[] values) {
+        this.table = new byte[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) values[i];
+        }
+        this.identity = Arrays.equals(values, identityTable());
+    }
+
+    /**
+     * Creates a lookup table from explicit values.
+     *
+     * @param table 256 output values in [0, 255], indexed by input value; copied.
+     * @return The lookup table.
+     * @throws IllegalArgumentException if the table does not have 256 entries in range.
+     */
+    public static ChannelLut of(int[] table) {
+        if (table.length != 256) {
+            throw new IllegalArgumentException("Lookup table needs exactly 256 entries");
+        }
+        for (int value : table) {
+            if (value < 0 || value > 255) {
+                throw new IllegalArgumentException("Lookup table values must be in [0, 255]");
+            }
+        }
+        return new ChannelLut(table);
+    }
+
+    /**
+     * Returns the table that maps every value to itself.
+     *
+     * @return The identity lookup table.
+     */
+    public static ChannelLut identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * Returns the gamma correction table out = 255 * (in / 255)^(1 / gamma). Tables of recently used gamma
+     * values are cached and shared, since tables are immutable.
+     *
+     * @param gamma The gamma value. Must be positive.
+     * @return The lookup table.
+     * @throws IllegalArgumentException if gamma is not positive.
+     */
+    public static ChannelLut gamma(double gamma) {
+        if (gamma <= 0) {
+            throw new IllegalArgumentException("Gamma value must be positive");
+        }
+        synchronized (gammaTables) {
+            ChannelLut cached = gammaTables.get(gamma);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        int[] table = new int[256];
+        double inverseGamma = 1.0 / gamma;
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (int) Math.round(Math.pow(i / 255.0, inverseGamma) * 255);
+        }
+        ChannelLut lut = new ChannelLut(table);
+        synchronized (gammaTables) {
+            gammaTables.put(gamma, lut);
+        }
+        return lut;
+    }
+
+    /**
+     * Composes this table with another one applied afterwards.
+     *
+     * @param after Table applied to this table's output.
+     * @return Table equivalent to applying this table and then {@code after}.
+     */
+    public ChannelLut andThen(ChannelLut after) {
+        if (identity) {
+            return after;
+        }
+        if (after.identity) {
+            return this;
+        }
+        int[] composed = new int[256];
+        for (int i = 0; i < composed.length; i++) {
+            composed[i] = after.map(map(i));
+        }
+        return new ChannelLut(composed);
+    }
+
+    /**
+     * Maps a single channel value.
+     *
+     * @param value Channel value in [0, 255].
+     * @return Mapped channel value in [0, 255].
+     */
+    public int map(int value) {
+        return table[value] & 0xFF;
+    }
+
+    /**
+     * Maps the red, green and blue channels of a packed pixel, keeping its alpha.
+     *
+     * @param argb Packed ARGB value.
+     * @return Mapped packed ARGB value.
+     */
+    public int apply(int argb) {
+        return (argb & 0xFF000000)
+                | ((table[(argb >> 16) & 0xFF] & 0xFF) << 16)
+                | ((table[(argb >> 8) & 0xFF] & 0xFF) << 8)
+                | (table[argb & 0xFF] & 0xFF);
+    }
+
+    /**
+     * Maps every pixel of a raster into a new raster, one tile per task on the default scheduler.
+     *
+     * @param source Raster to map. It is not modified.
+     * @return New raster with the table applied.
+     */
+    public ArgbRaster apply(ArgbRaster source) {
+        int width = source.width();
+        int height = source.height();
+        ArgbRaster result = BufferPool.getDefault().raster(width, height);
+        int[] in = source.pixels();
+        int[] out = result.pixels();
+        TileScheduler.getDefault().forEachTile(result, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int inIndex = source.rowOffset(y);
+                int outIndex = result.rowOffset(y);
+                for (int x = x0; x < x1; x++) {
+                    out[outIndex + x] = apply(in[inIndex + x]);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the table as floats, for inner loops that accumulate channel values in floating point.
+     *
+     * @return New array of 256 mapped values.
+     */
+    public float[] toFloatTable() {
+        float[] values = new float[256];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = map(i);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the table as ints, for inner loops that accumulate channel values in integer arithmetic.
+     *
+     * @return New array of 256 mapped values.
+     */
+    public int[] toIntTable() {
+        int[] values = new int[256];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = map(i);
+        }
+        return values;
+    }
+
+    public boolean isIdentity() {
+        return identity;
+    }
+
+    // Builds the table mapping every value to itself.
+    private static int[] identityTable() {
+        int[] table = new int[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = i;
+        }
+        return table;
+    }
+}
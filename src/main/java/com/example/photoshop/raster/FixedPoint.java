@@ -0,0 +1,38 @@
+package com.example.photoshop.raster;
+
+/**
+ * Runtime switch between the floating-point inner loops and their integer counterparts for 8-bit data.
+ * <p>
+ * In integer mode, convolutions with integer kernels accumulate in ints, and bilinear resizing weighs samples
+ * with 16.16 fixed-point fractions and keeps its intermediate rows as 8.8 fixed-point chars rather than doubles.
+ * Integer convolution sums are exact, so filters produce identical pixels. Bilinear resizing rounds its
+ * intermediates, so a channel may differ from the floating-point result by one level. The mode is off unless the
+ * {@code photoshop.fixedPoint} system property is {@code true}, and can be flipped at any time to compare paths.
+ */
+public final class FixedPoint {
+    // System property that enables integer mode when set to true.
+    private static final String FIXED_POINT_PROPERTY = "photoshop.fixedPoint";
+
+    private static volatile boolean enabled = Boolean.getBoolean(FIXED_POINT_PROPERTY);
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Returns whether operations currently use their integer inner loops.
+     *
+     * @return True if integer mode is on.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches between the integer and floating-point inner loops, for example to benchmark one against the other.
+     *
+     * @param enable Whether to use the integer loops.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+}
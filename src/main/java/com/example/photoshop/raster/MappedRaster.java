@@ -0,0 +1,213 @@
+package com.example.photoshop.raster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Packed ARGB pixels stored in a file and memory-mapped, so a raster of any size lives in the operating
+ * system's page cache rather than on the Java heap. The garbage collector never scans or copies the pixels,
+ * and several processes that open the same file share one copy of them in memory.
+ * <p>
+ * The raster is a {@link StripSource}: the filters and interpolators read it strip by strip through
+ * {@link com.example.photoshop.pipeline.Pipeline#stream}, each strip copied to the heap in one bulk transfer
+ * per row run, and {@link #copyOf} writes a streamed result back the same way. The file holds a 16-byte
+ * header (magic, width, height, reserved) followed by the rows as little-endian ints, mapped in segments of
+ * whole rows because a single mapping cannot exceed 2 GB.
+ */
+public final class MappedRaster implements StripSource {
+    // "ARGB" in ASCII; identifies raster files.
+    private static final int MAGIC = 0x41524742;
+    private static final int HEADER_BYTES = 16;
+    // Largest mapping made; a power of two well below the 2 GB limit of a single buffer.
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final boolean writable;
+    private final int rowsPerSegment;
+    private final MappedByteBuffer[] mappings;
+    // Int views of the mappings, used for bulk row transfers.
+    private final IntBuffer[] segments;
+
+    private MappedRaster(FileChannel channel, int width, int height, boolean writable) throws IOException {
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.writable = writable;
+        this.rowsPerSegment = (int) Math.max(1, SEGMENT_BYTES / Math.max(4L * width, 1));
+        this.mappings = new MappedByteBuffer[(height + rowsPerSegment - 1) / rowsPerSegment];
+        this.segments = new IntBuffer[mappings.length];
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int i = 0; i < segments.length; i++) {
+            long position = HEADER_BYTES + (long) i * rowsPerSegment * width * 4;
+            long size = (long) Math.min(rowsPerSegment, height - i * rowsPerSegment) * width * 4;
+            mappings[i] = channel.map(mode, position, size);
+            segments[i] = mappings[i].order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+    }
+
+    /**
+     * Creates a raster file of the given size, replacing any existing file, and maps it for reading and writing.
+     * New pixels are transparent black.
+     *
+     * @param file File to create.
+     * @param width Width of the raster in pixels.
+     * @param height Height of the raster in pixels.
+     * @return The mapped raster, which must be closed.
+     * @throws IOException if the file cannot be created or mapped.
+     * @throws IllegalArgumentException if either dimension is negative.
+     */
+    public static MappedRaster create(Path file, int width, int height) throws IOException {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Invalid raster geometry");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(width).putInt(height).putInt(0).flip();
+            channel.write(header, 0);
+            return new MappedRaster(channel, width, height, true);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps an existing raster file. Read-only mappings can be shared by any number of processes.
+     *
+     * @param file File to map.
+     * @param writable Whether the pixels may be modified through {@link #writeRows}.
+     * @return The mapped raster, which must be closed.
+     * @throws IOException if the file cannot be mapped or is not a raster file.
+     */
+    public static MappedRaster open(Path file, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not a raster file: " + file);
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            if (width < 0 || height < 0 || channel.size() < HEADER_BYTES + 4L * width * height) {
+                throw new IOException("Truncated raster file: " + file);
+            }
+            return new MappedRaster(channel, width, height, writable);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a streamed image into a new raster file, strip by strip.
+     *
+     * @param source Image to store.
+     * @param stripRows Rows read from the source at a time.
+     * @param file File to create, replacing any existing file.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static void copyOf(StripSource source, int stripRows, Path file) throws IOException {
+        try (MappedRaster raster = create(file, source.width(), source.height())) {
+            for (int y = 0; y < source.height(); y += stripRows) {
+                raster.writeRows(y, source.readRows(y, Math.min(y + stripRows, source.height())));
+            }
+            raster.force();
+        }
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Copies rows from the mapping into a new heap raster. Safe to call from several threads at once.
+     *
+     * @param y0 First row, inclusive.
+     * @param y1 Last row, exclusive.
+     * @return Raster of width() × (y1 - y0) holding a copy of the rows.
+     */
+    @Override
+    public ArgbRaster readRows(int y0, int y1) {
+        checkRows(y0, y1);
+        ArgbRaster rows = new ArgbRaster(width, y1 - y0);
+        for (int y = y0; y < y1; ) {
+            int segment = y / rowsPerSegment;
+            int end = Math.min(y1, (segment + 1) * rowsPerSegment);
+            segments[segment].get((y - segment * rowsPerSegment) * width, rows.pixels(), (y - y0) * width, (end - y) * width);
+            y = end;
+        }
+        return rows;
+    }
+
+    /**
+     * Copies rows from a heap raster into the mapping.
+     *
+     * @param y Row of this raster that receives the first row.
+     * @param rows Rows to store, at this raster's width.
+     * @throws IllegalStateException if the raster was opened read-only.
+     * @throws IllegalArgumentException if the rows do not fit.
+     */
+    public void writeRows(int y, ArgbRaster rows) {
+        if (!writable) {
+            throw new IllegalStateException("Raster file is mapped read-only");
+        }
+        if (rows.width() != width) {
+            throw new IllegalArgumentException("Rows must be " + width + " pixels wide");
+        }
+        checkRows(y, y + rows.height());
+        for (int i = 0; i < rows.height(); i++) {
+            int segment = (y + i) / rowsPerSegment;
+            segments[segment].put((y + i - segment * rowsPerSegment) * width, rows.pixels(), rows.rowOffset(i), width);
+        }
+    }
+
+    /**
+     * Writes modified pixels through to the storage device. Other processes mapping the file see writes
+     * immediately through the page cache; this only makes them durable.
+     */
+    public void force() {
+        if (writable) {
+            for (MappedByteBuffer mapping : mappings) {
+                mapping.force();
+            }
+        }
+    }
+
+    /**
+     * Closes the file. The mappings are released once they are garbage collected; the raster must not be used
+     * afterwards.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Checks that [y0, y1) is a range of rows of this raster.
+    private void checkRows(int y0, int y1) {
+        if (y0 < 0 || y1 < y0 || y1 > height) {
+            throw new IllegalArgumentException("Rows " + y0 + " to " + y1 + " lie outside the raster");
+        }
+    }
+}
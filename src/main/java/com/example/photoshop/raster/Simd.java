@@ -0,0 +1,62 @@
+package com.example.photoshop.raster;
+
+/**
+ * Runtime switch between the scalar inner loops and their {@link VectorKernels} counterparts.
+ * <p>
+ * The vector kernels need the incubating {@code jdk.incubator.vector} module, which is only present when
+ * the JVM is started with {@code --add-modules jdk.incubator.vector}. When it is present the kernels are
+ * used unless the {@code photoshop.simd} system property is {@code false}; otherwise every operation
+ * silently keeps its scalar loop. Both paths produce identical pixels, so the switch can be flipped at any
+ * time to compare them.
+ */
+public final class Simd {
+    // System property that disables the vector kernels when set to false.
+    private static final String SIMD_PROPERTY = "photoshop.simd";
+
+    private static final boolean AVAILABLE = detect();
+    private static volatile boolean enabled = AVAILABLE && !"false".equalsIgnoreCase(System.getProperty(SIMD_PROPERTY));
+
+    private Simd() {
+    }
+
+    /**
+     * Returns whether the vector module is present, so the vector kernels can run at all.
+     *
+     * @return True if the vector kernels are usable.
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Returns whether operations currently use the vector kernels.
+     *
+     * @return True if the vector kernels are in use.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches between the vector kernels and the scalar loops, for example to benchmark one against the other.
+     *
+     * @param enable Whether to use the vector kernels.
+     * @throws IllegalStateException if enabling is requested but the vector module is not present.
+     */
+    public static void setEnabled(boolean enable) {
+        if (enable && !AVAILABLE) {
+            throw new IllegalStateException("The jdk.incubator.vector module is not available");
+        }
+        enabled = enable;
+    }
+
+    // Checks for the vector module without linking VectorKernels unless it is there.
+    private static boolean detect() {
+        try {
+            Class.forName("jdk.incubator.vector.FloatVector");
+            return VectorKernels.laneCount() > 1;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.photoshop.raster;
+
+import java.io.IOException;
+
+/**
+ * A raster delivered as horizontal strips of full-width rows, so images larger than the heap can be
+ * processed with only a few strips in memory at once.
+ * <p>
+ * Consumers usually read strips from top to bottom. Sources must still return correct rows when rows are
+ * read again or out of order, for example by decoding them again, but may be slower then. Sources backed by
+ * a file hold it open until closed.
+ */
+public interface StripSource extends AutoCloseable {
+
+    int width();
+
+    int height();
+
+    /**
+     * Reads a strip of rows.
+     *
+     * @param y0 First row of the strip, inclusive.
+     * @param y1 Last row of the strip, exclusive.
+     * @return Raster of width() × (y1 - y0) holding the rows. It may be shared, so callers must not modify it.
+     * @throws java.io.UncheckedIOException if the rows cannot be read from their storage.
+     */
+    ArgbRaster readRows(int y0, int y1);
+
+    /**
+     * Releases the storage behind the strips, such as an open file. Does nothing unless overridden.
+     *
+     * @throws IOException if the storage cannot be released.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Delivers an in-memory raster as strips; every strip is a view of the raster.
+     *
+     * @param raster Raster to deliver.
+     * @return The strip source.
+     */
+    static StripSource of(ArgbRaster raster) {
+        return new StripSource() {
+            @Override
+            public int width() {
+                return raster.width();
+            }
+
+            @Override
+            public int height() {
+                return raster.height();
+            }
+
+            @Override
+            public ArgbRaster readRows(int y0, int y1) {
+                return raster.region(0, y0, raster.width(), y1 - y0);
+            }
+        };
+    }
+}
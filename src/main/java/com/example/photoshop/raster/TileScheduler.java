@@ -0,0 +1,308 @@
+package com.example.photoshop.raster;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Splits a raster-sized region into rectangular tiles and runs work on them in a ForkJoinPool.
+ * Tiles never overlap, so tasks that read from a shared source raster and write only their own
+ * tile of an output raster need no synchronization. Neighborhood operations such as convolutions
+ * read their halo straight from the full source raster, so no tile copies or overlap bookkeeping
+ * are required.
+ * <p>
+ * A {@link CancellationToken} and a {@link TileSink} can be bound to the calling thread. They are
+ * carried into the worker threads, so the token is checked before every tile and the sink hears about
+ * every completed output tile, however deeply the work is nested.
+ */
+public final class TileScheduler implements AutoCloseable {
+    // System properties read when the default scheduler is first created.
+    private static final String PARALLELISM_PROPERTY = "photoshop.parallelism";
+    private static final String TILE_SIZE_PROPERTY = "photoshop.tileSize";
+    private static final int DEFAULT_TILE_SIZE = 256;
+
+    private static volatile TileScheduler defaultScheduler;
+
+    // Cancellation token and tile sink bound to the current thread, or null when none is bound.
+    private static final ThreadLocal<CancellationToken> CURRENT_TOKEN = new ThreadLocal<>();
+    private static final ThreadLocal<TileSink> CURRENT_SINK = new ThreadLocal<>();
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int tileWidth;
+    private final int tileHeight;
+
+    /**
+     * Callback invoked for each tile. Coordinates are half-open: [x0, x1) by [y0, y1).
+     */
+    @FunctionalInterface
+    public interface TileTask {
+        void process(int x0, int y0, int x1, int y1);
+    }
+
+    /**
+     * Callback invoked for each tile that produces a partial result to be combined with the others.
+     *
+     * @param <R> Type of the partial result.
+     */
+    @FunctionalInterface
+    public interface TileFunction<R> {
+        R process(int x0, int y0, int x1, int y1);
+    }
+
+    /**
+     * Creates a scheduler with its own pool.
+     * A parallelism of 1 runs every tile on the calling thread, which serves as the serial baseline.
+     *
+     * @param parallelism Number of worker threads. Must be positive.
+     * @param tileWidth Width of a tile in pixels. Must be positive.
+     * @param tileHeight Height of a tile in pixels. Must be positive.
+     * @throws IllegalArgumentException if any argument is not positive.
+     */
+    public TileScheduler(int parallelism, int tileWidth, int tileHeight) {
+        if (parallelism <= 0 || tileWidth <= 0 || tileHeight <= 0) {
+            throw new IllegalArgumentException("Parallelism and tile size must be positive");
+        }
+        this.parallelism = parallelism;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    /**
+     * Returns the scheduler used by filters and resampling when none is given explicitly.
+     * Unless replaced with {@link #setDefault}, it uses the {@code photoshop.parallelism} and
+     * {@code photoshop.tileSize} system properties, falling back to one thread per core and 256-pixel tiles.
+     *
+     * @return The shared default scheduler.
+     */
+    public static TileScheduler getDefault() {
+        TileScheduler scheduler = defaultScheduler;
+        if (scheduler == null) {
+            synchronized (TileScheduler.class) {
+                scheduler = defaultScheduler;
+                if (scheduler == null) {
+                    int parallelism = Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors());
+                    int tileSize = Integer.getInteger(TILE_SIZE_PROPERTY, DEFAULT_TILE_SIZE);
+                    scheduler = new TileScheduler(parallelism, tileSize, tileSize);
+                    defaultScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * Replaces the default scheduler, for example to measure scaling across thread counts.
+     * The previous default is not closed, since work started on it from other threads may still be running;
+     * its owner closes it once that work is done.
+     *
+     * @param scheduler New default scheduler.
+     * @return The previous default scheduler, or null if none had been created yet.
+     */
+    public static TileScheduler setDefault(TileScheduler scheduler) {
+        synchronized (TileScheduler.class) {
+            TileScheduler previous = defaultScheduler;
+            defaultScheduler = scheduler;
+            return previous;
+        }
+    }
+
+    /**
+     * Runs work with a cancellation token bound, so every tile scheduled by the work, on any scheduler
+     * and any thread, first checks the token.
+     *
+     * @param token Token to check before each tile.
+     * @param work Work to run on the calling thread.
+     * @param <T> Type of the work's result.
+     * @return The work's result.
+     * @throws java.util.concurrent.CancellationException if the token is cancelled while tiles remain.
+     */
+    public static <T> T withCancellation(CancellationToken token, Supplier<T> work) {
+        CancellationToken previous = CURRENT_TOKEN.get();
+        CURRENT_TOKEN.set(token);
+        try {
+            token.throwIfCancelled();
+            return work.get();
+        } finally {
+            restore(CURRENT_TOKEN, previous);
+        }
+    }
+
+    /**
+     * Runs work with a tile sink bound, so every tile written through {@link #forEachTile(ArgbRaster, TileTask)}
+     * is reported to the sink as soon as it completes.
+     *
+     * @param sink Sink receiving completed tiles.
+     * @param work Work to run on the calling thread.
+     * @param <T> Type of the work's result.
+     * @return The work's result.
+     */
+    public static <T> T withTileSink(TileSink sink, Supplier<T> work) {
+        TileSink previous = CURRENT_SINK.get();
+        CURRENT_SINK.set(sink);
+        try {
+            return work.get();
+        } finally {
+            restore(CURRENT_SINK, previous);
+        }
+    }
+
+    /**
+     * Runs a task writing every tile of an output raster, reporting each completed tile to the bound
+     * {@link TileSink}, if any.
+     *
+     * @param output Raster the task writes to; its size defines the tiles.
+     * @param task Task to run for each tile.
+     */
+    public void forEachTile(ArgbRaster output, TileTask task) {
+        TileSink sink = CURRENT_SINK.get();
+        if (sink == null) {
+            forEachTile(output.width(), output.height(), task);
+            return;
+        }
+        forEachTile(output.width(), output.height(), (x0, y0, x1, y1) -> {
+            task.process(x0, y0, x1, y1);
+            sink.tileCompleted(output, x0, y0, x1, y1);
+        });
+    }
+
+    /**
+     * Runs a task over every tile of a width × height region and waits for all of them to finish.
+     *
+     * @param width Width of the region.
+     * @param height Height of the region.
+     * @param task Task to run for each tile.
+     */
+    public void forEachTile(int width, int height, TileTask task) {
+        reduceTiles(width, height, (x0, y0, x1, y1) -> {
+            task.process(x0, y0, x1, y1);
+            return null;
+        }, (a, b) -> null);
+    }
+
+    /**
+     * Runs a function over every tile of a width × height region and combines the partial results.
+     * The combiner must be associative; it is applied in tile order but from arbitrary threads.
+     *
+     * @param width Width of the region.
+     * @param height Height of the region.
+     * @param function Function to run for each tile.
+     * @param combiner Function merging two partial results.
+     * @param <R> Type of the partial results.
+     * @return The combined result, or {@code null} if the region is empty.
+     */
+    public <R> R reduceTiles(int width, int height, TileFunction<R> function, BinaryOperator<R> combiner) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        int columns = (width + tileWidth - 1) / tileWidth;
+        int rows = (height + tileHeight - 1) / tileHeight;
+        TileReduction<R> reduction = new TileReduction<>(width, height, columns, 0, columns * rows, function, combiner,
+                CURRENT_TOKEN.get(), CURRENT_SINK.get());
+        if (pool == null || columns * rows == 1) {
+            return reduction.compute();
+        }
+        return pool.invoke(reduction);
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public int tileWidth() {
+        return tileWidth;
+    }
+
+    public int tileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * Shuts down the scheduler's pool. Tiles already submitted still complete.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // Sets a thread-local back to the value it had before a binding.
+    private static <T> void restore(ThreadLocal<T> local, T previous) {
+        if (previous == null) {
+            local.remove();
+        } else {
+            local.set(previous);
+        }
+    }
+
+    // Recursively halves a range of tile indices until a single tile remains, then runs it
+    // with the caller's token and sink bound on whichever thread picks it up. Tasks are never serialized; they are
+    // only Serializable because ForkJoinTask is.
+    @SuppressWarnings("serial")
+    private final class TileReduction<R> extends RecursiveTask<R> {
+        private final int width;
+        private final int height;
+        private final int columns;
+        private final int from;
+        private final int to;
+        private final TileFunction<R> function;
+        private final BinaryOperator<R> combiner;
+        private final CancellationToken token;
+        private final TileSink sink;
+
+        TileReduction(int width, int height, int columns, int from, int to, TileFunction<R> function,
+                      BinaryOperator<R> combiner, CancellationToken token, TileSink sink) {
+            this.width = width;
+            this.height = height;
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.function = function;
+            this.combiner = combiner;
+            this.token = token;
+            this.sink = sink;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from == 1) {
+                return computeTile();
+            }
+            int middle = (from + to) >>> 1;
+            TileReduction<R> left = new TileReduction<>(width, height, columns, from, middle, function, combiner, token, sink);
+            TileReduction<R> right = new TileReduction<>(width, height, columns, middle, to, function, combiner, token, sink);
+            if (pool == null) {
+                return combiner.apply(left.compute(), right.compute());
+            }
+            right.fork();
+            R leftResult = left.compute();
+            return combiner.apply(leftResult, right.join());
+        }
+
+        // Checks for cancellation, then runs the single tile this task covers.
+        private R computeTile() {
+            if (token != null) {
+                token.throwIfCancelled();
+            }
+            int x0 = (from % columns) * tileWidth;
+            int y0 = (from / columns) * tileHeight;
+            CancellationToken previousToken = CURRENT_TOKEN.get();
+            TileSink previousSink = CURRENT_SINK.get();
+            if (token != null) {
+                CURRENT_TOKEN.set(token);
+            }
+            if (sink != null) {
+                CURRENT_SINK.set(sink);
+            }
+            try {
+                return function.process(x0, y0, Math.min(x0 + tileWidth, width), Math.min(y0 + tileHeight, height));
+            } finally {
+                restore(CURRENT_TOKEN, previousToken);
+                restore(CURRENT_SINK, previousSink);
+            }
+        }
+    }
+}
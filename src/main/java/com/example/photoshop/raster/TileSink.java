@@ -0,0 +1,20 @@
+package com.example.photoshop.raster;
+
+/**
+ * Receives output tiles as soon as they are complete, for progressive display.
+ * Called from worker threads; the tile's pixels are final when the call is made.
+ */
+@FunctionalInterface
+public interface TileSink {
+
+    /**
+     * Called once per completed tile. Coordinates are half-open: [x0, x1) by [y0, y1).
+     *
+     * @param raster Output raster the tile was written to.
+     * @param x0 Left edge of the tile.
+     * @param y0 Top edge of the tile.
+     * @param x1 Right edge of the tile, exclusive.
+     * @param y1 Bottom edge of the tile, exclusive.
+     */
+    void tileCompleted(ArgbRaster raster, int x0, int y0, int x1, int y1);
+}
@@ -1,8 +1,21 @@
 module com.example.photoshop {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.desktop;
+    requires java.management;
+    requires jdk.management;
+    requires jdk.jfr;
+    requires static jdk.incubator.vector;
 
 
     opens com.example.photoshop to javafx.fxml;
     exports com.example.photoshop;
+    exports com.example.photoshop.metrics;
+    // Filters and interpolators of other modules plug in through these packages.
+    exports com.example.photoshop.filter;
+    exports com.example.photoshop.interploators;
+    exports com.example.photoshop.raster;
+
+    uses com.example.photoshop.filter.FilterProvider;
+    uses com.example.photoshop.interploators.InterpolatorProvider;
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.example.photoshop;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the scheduling rules of the render scheduler: latest wins, preemptible jobs are cancelled by newer ones,
+ * other jobs finish, and starts are spaced by the minimum interval.
+ */
+class RenderSchedulerTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private RenderScheduler scheduler;
+
+    @AfterEach
+    void close() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void burstRunsOnlyTheLatestRequest() throws InterruptedException {
+        scheduler = new RenderScheduler(0);
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        scheduler.submit(token -> {
+            blockerStarted.countDown();
+            await(releaseBlocker);
+        }, false);
+        assertTrue(blockerStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch lastDone = new CountDownLatch(1);
+        for (int i = 0; i < 20; i++) {
+            int request = i;
+            scheduler.submit(token -> {
+                ran.add(request);
+                if (request == 19) {
+                    lastDone.countDown();
+                }
+            }, false);
+        }
+        releaseBlocker.countDown();
+        assertTrue(lastDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of(19), ran);
+    }
+
+    @Test
+    void newerRequestCancelsPreemptibleJob() throws InterruptedException {
+        scheduler = new RenderScheduler(0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        scheduler.submit(token -> {
+            started.countDown();
+            while (!token.isCancelled()) {
+                Thread.onSpinWait();
+            }
+            cancelled.countDown();
+        }, true);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        CountDownLatch newerRan = new CountDownLatch(1);
+        scheduler.submit(token -> newerRan.countDown(), false);
+        assertTrue(cancelled.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(newerRan.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void newerRequestLetsOtherJobsFinish() throws InterruptedException {
+        scheduler = new RenderScheduler(0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        AtomicBoolean sawCancellation = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+        scheduler.submit(token -> {
+            started.countDown();
+            await(proceed);
+            sawCancellation.set(token.isCancelled());
+            finished.countDown();
+        }, false);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        CountDownLatch newerRan = new CountDownLatch(1);
+        scheduler.submit(token -> newerRan.countDown(), false);
+        // The newer job waits for the running one rather than cancelling it.
+        assertFalse(newerRan.await(100, TimeUnit.MILLISECONDS));
+        proceed.countDown();
+        assertTrue(finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(sawCancellation.get());
+        assertTrue(newerRan.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void startsAreSpacedByTheMinimumInterval() throws InterruptedException {
+        long intervalMillis = 150;
+        scheduler = new RenderScheduler(intervalMillis);
+        List<Long> starts = new CopyOnWriteArrayList<>();
+        CountDownLatch firstDone = new CountDownLatch(1);
+        scheduler.submit(token -> {
+            starts.add(System.nanoTime());
+            firstDone.countDown();
+        }, false);
+        assertTrue(firstDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        CountDownLatch secondDone = new CountDownLatch(1);
+        scheduler.submit(token -> {
+            starts.add(System.nanoTime());
+            secondDone.countDown();
+        }, false);
+        assertTrue(secondDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(starts.get(1) - starts.get(0) >= TimeUnit.MILLISECONDS.toNanos(intervalMillis),
+                "Jobs started " + TimeUnit.NANOSECONDS.toMillis(starts.get(1) - starts.get(0)) + " ms apart");
+    }
+
+    @Test
+    void cancelDropsWaitingJobAndCancelsRunningOne() throws InterruptedException {
+        scheduler = new RenderScheduler(0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean sawCancellation = new AtomicBoolean();
+        scheduler.submit(token -> {
+            started.countDown();
+            await(proceed);
+            sawCancellation.set(token.isCancelled());
+            finished.countDown();
+        }, false);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        AtomicBoolean waitingRan = new AtomicBoolean();
+        scheduler.submit(token -> waitingRan.set(true), false);
+        scheduler.cancel();
+        proceed.countDown();
+        assertTrue(finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // A job still waiting would start as soon as the running one ends; give it time to.
+        Thread.sleep(200);
+        assertFalse(waitingRan.get());
+        assertTrue(sawCancellation.get());
+    }
+
+    // Waits for a latch inside a job, failing the job if the test takes too long.
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Test did not release the job");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.Simd;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the separable and running-sum strategies give the responses of a direct 2D convolution that
+ * replicates the border, including on images smaller than the kernel.
+ */
+class ConvolutionStrategyTest {
+    // Responses are sums of up to a few hundred float products, summed in a different order by each strategy.
+    private static final double TOLERANCE = 1e-3;
+    private static final int[][] SIZES = {{67, 41}, {1, 23}, {23, 1}, {1, 1}, {3, 2}};
+
+    @Test
+    void separableKernelsMatchDirectConvolution() {
+        Kernel gaussian = Kernel.gaussian(1.6);
+        Kernel sobel = Kernel.sobelX();
+        assertTrue(gaussian.isSeparable() && !gaussian.isUniform());
+        assertTrue(sobel.isSeparable() && !sobel.isUniform());
+        // Both the scalar loops and, where the vector module is present, the vector ones.
+        boolean simdWasEnabled = Simd.isEnabled();
+        try {
+            for (boolean simd : new boolean[] {false, Simd.isAvailable()}) {
+                Simd.setEnabled(simd);
+                assertMatchesDirect(gaussian);
+                assertMatchesDirect(sobel);
+            }
+        } finally {
+            Simd.setEnabled(simdWasEnabled);
+        }
+    }
+
+    @Test
+    void uniformKernelsMatchDirectConvolution() {
+        float[] weights = new float[5 * 3];
+        Arrays.fill(weights, 1f / weights.length);
+        Kernel wide = new Kernel(5, 3, weights);
+        Kernel box = Kernel.box(4);
+        assertTrue(wide.isUniform());
+        assertTrue(box.isUniform());
+        assertMatchesDirect(wide);
+        assertMatchesDirect(box);
+    }
+
+    private static void assertMatchesDirect(Kernel kernel) {
+        ChannelLut gamma = ChannelLut.gamma(1.3);
+        float[] table = gamma.toFloatTable();
+        for (int[] size : SIZES) {
+            ArgbRaster source = TestRasters.noise(size[0], size[1], 3);
+            float[] response = ConvolutionFilter.convolve(source, kernel, gamma);
+            for (int y = 0; y < source.height(); y++) {
+                for (int x = 0; x < source.width(); x++) {
+                    double[] expected = direct(source, kernel, table, x, y);
+                    int base = (y * source.width() + x) * 3;
+                    for (int c = 0; c < 3; c++) {
+                        assertEquals(expected[c], response[base + c], TOLERANCE, "Channel " + c + " at (" + x + ", "
+                                + y + ") of a " + size[0] + "x" + size[1] + " image");
+                    }
+                }
+            }
+        }
+    }
+
+    // Red, green and blue response of one pixel, summing every tap with clamped coordinates.
+    private static double[] direct(ArgbRaster source, Kernel kernel, float[] table, int x, int y) {
+        double[] sums = new double[3];
+        for (int ky = 0; ky < kernel.height(); ky++) {
+            int sourceY = Math.max(0, Math.min(y - kernel.radiusY() + ky, source.height() - 1));
+            for (int kx = 0; kx < kernel.width(); kx++) {
+                int sourceX = Math.max(0, Math.min(x - kernel.radiusX() + kx, source.width() - 1));
+                int argb = source.getArgb(sourceX, sourceY);
+                double weight = kernel.weight(kx, ky);
+                sums[0] += weight * table[ArgbRaster.red(argb)];
+                sums[1] += weight * table[ArgbRaster.green(argb)];
+                sums[2] += weight * table[ArgbRaster.blue(argb)];
+            }
+        }
+        return sums;
+    }
+}
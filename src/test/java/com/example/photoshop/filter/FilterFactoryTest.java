@@ -0,0 +1,31 @@
+package com.example.photoshop.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the factory creates exactly the filters it offers by name.
+ */
+class FilterFactoryTest {
+
+    @Test
+    void everyOfferedNameCreatesASharedFilter() {
+        for (String name : FilterFactory.getFilterNames()) {
+            Filters filter = FilterFactory.createFilter(name);
+            assertNotNull(filter, name);
+            assertSame(filter, FilterFactory.createFilter(name), name);
+        }
+    }
+
+    @Test
+    void namesThatAreNotOfferedAreRejected() {
+        // Gamma is the point stage of every edit, not a filter.
+        assertFalse(FilterFactory.getFilterNames().contains("Gamma"));
+        assertThrows(IllegalArgumentException.class, () -> FilterFactory.createFilter("Gamma"));
+        assertThrows(IllegalArgumentException.class, () -> FilterFactory.createFilter("No Such Filter"));
+    }
+}
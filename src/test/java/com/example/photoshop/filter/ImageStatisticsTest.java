@@ -0,0 +1,138 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks histograms and percentiles on images with known levels, and the tables the statistics filters derive
+ * from them, including images with a single level where a stretch would divide by zero.
+ */
+class ImageStatisticsTest {
+
+    @Test
+    void histogramsCountEveryChannel() {
+        // Ten pixels: four of one color, six of another.
+        ArgbRaster source = new ArgbRaster(5, 2);
+        for (int i = 0; i < 10; i++) {
+            source.setArgb(i % 5, i / 5, i < 4 ? 0xFF0A141E : 0x80FF0000);
+        }
+        ImageStatistics statistics = ImageStatistics.of(source);
+        assertEquals(10, statistics.count());
+        long[] red = statistics.histogram(ImageStatistics.Channel.RED);
+        assertEquals(4, red[10]);
+        assertEquals(6, red[255]);
+        assertEquals(10, statistics.histogram(ImageStatistics.Channel.GREEN)[20] + statistics.histogram(
+                ImageStatistics.Channel.GREEN)[0]);
+        assertEquals(4, statistics.histogram(ImageStatistics.Channel.LUMINANCE)[ImageStatistics.luminance(10, 20, 30)]);
+        assertEquals(6, statistics.histogram(ImageStatistics.Channel.LUMINANCE)[ImageStatistics.luminance(255, 0, 0)]);
+        assertEquals((4 * 10 + 6 * 255) / 10.0, statistics.mean(ImageStatistics.Channel.RED), 1e-9);
+    }
+
+    @Test
+    void histogramsOfTilesMergeIntoThoseOfTheImage() {
+        ArgbRaster source = TestRasters.noise(300, 200, 31);
+        ImageStatistics statistics = ImageStatistics.of(source, ChannelLut.gamma(2.0));
+        int[] lut = ChannelLut.gamma(2.0).toIntTable();
+        long[] expected = new long[256];
+        for (int y = 0; y < source.height(); y++) {
+            for (int x = 0; x < source.width(); x++) {
+                expected[lut[ArgbRaster.green(source.getArgb(x, y))]]++;
+            }
+        }
+        assertArrayEquals(expected, statistics.histogram(ImageStatistics.Channel.GREEN));
+        assertEquals(60_000, statistics.count());
+    }
+
+    @Test
+    void percentilesFindTheLevelAtOrBelowWhichSamplesLie() {
+        // Levels 0 to 99, one pixel each.
+        ArgbRaster source = new ArgbRaster(100, 1);
+        for (int x = 0; x < 100; x++) {
+            source.setArgb(x, 0, ArgbRaster.pack(255, x, x, x));
+        }
+        ImageStatistics statistics = ImageStatistics.of(source);
+        assertEquals(0, statistics.percentile(ImageStatistics.Channel.RED, 0));
+        assertEquals(0, statistics.percentile(ImageStatistics.Channel.RED, 1));
+        assertEquals(49, statistics.percentile(ImageStatistics.Channel.RED, 50));
+        assertEquals(50, statistics.percentile(ImageStatistics.Channel.RED, 50.5));
+        assertEquals(99, statistics.percentile(ImageStatistics.Channel.RED, 100));
+        assertThrows(IllegalArgumentException.class, () -> statistics.percentile(ImageStatistics.Channel.RED, 101));
+    }
+
+    @Test
+    void singleLevelImagesAreLeftUnchanged() {
+        for (int level : new int[] {0, 77, 255}) {
+            ArgbRaster flat = TestRasters.filled(16, 16, ArgbRaster.pack(255, level, level, level));
+            ImageStatistics statistics = ImageStatistics.of(flat);
+            assertEquals(level, statistics.percentile(ImageStatistics.Channel.BLUE, 0));
+            assertEquals(level, statistics.percentile(ImageStatistics.Channel.BLUE, 100));
+            assertTrue(new AutoLevelsFilter().lutFor(statistics).isIdentity());
+            assertTrue(new EqualizeHistogramFilter().lutFor(statistics).isIdentity());
+            TestRasters.assertSamePixels(flat, new AutoLevelsFilter().applyFilter(flat, ChannelLut.identity(),
+                    ChannelLut.identity()));
+        }
+    }
+
+    @Test
+    void emptyStatisticsAreNeutral() {
+        ImageStatistics empty = ImageStatistics.of(new ArgbRaster(0, 0));
+        assertEquals(0, empty.count());
+        assertEquals(0, empty.mean(ImageStatistics.Channel.LUMINANCE));
+        assertEquals(1, AutoGammaFilter.estimateGamma(empty));
+        assertTrue(new AutoLevelsFilter().lutFor(empty).isIdentity());
+    }
+
+    @Test
+    void autoLevelsStretchesTheOccupiedRange() {
+        // Levels 50 to 150 only, so the table maps 50 to black and 150 to white.
+        ArgbRaster source = new ArgbRaster(101, 1);
+        for (int x = 0; x <= 100; x++) {
+            source.setArgb(x, 0, ArgbRaster.pack(255, 50 + x, 50 + x, 50 + x));
+        }
+        ChannelLut lut = new AutoLevelsFilter(0).lutFor(ImageStatistics.of(source));
+        assertEquals(0, lut.map(50));
+        assertEquals(0, lut.map(10));
+        assertEquals(128, lut.map(100));
+        assertEquals(255, lut.map(150));
+        assertEquals(255, lut.map(200));
+    }
+
+    @Test
+    void equalizationIsMonotonicAndSpansTheRange() {
+        // Mostly dark noise: levels 0 to 63 in every channel.
+        ArgbRaster source = TestRasters.noise(64, 64, 32);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                source.setArgb(x, y, source.getArgb(x, y) & 0xFF3F3F3F);
+            }
+        }
+        ImageStatistics statistics = ImageStatistics.of(source);
+        ChannelLut lut = new EqualizeHistogramFilter().lutFor(statistics);
+        for (int level = 1; level < 256; level++) {
+            assertTrue(lut.map(level) >= lut.map(level - 1), "Level " + level);
+        }
+        assertEquals(0, lut.map(statistics.percentile(ImageStatistics.Channel.RED, 0)));
+        assertEquals(255, lut.map(63));
+        // A uniform spread of 64 levels should land close to evenly spaced outputs.
+        assertEquals(128, lut.map(31), 8);
+    }
+
+    @Test
+    void autoGammaBrightensDarkImagesAndDarkensBrightOnes() {
+        ImageStatistics dark = ImageStatistics.of(TestRasters.filled(8, 8, 0xFF202020));
+        ImageStatistics gray = ImageStatistics.of(TestRasters.filled(8, 8, 0xFF808080));
+        ImageStatistics bright = ImageStatistics.of(TestRasters.filled(8, 8, 0xFFE0E0E0));
+        assertTrue(AutoGammaFilter.estimateGamma(dark) > 1);
+        assertEquals(1, AutoGammaFilter.estimateGamma(gray), 0.02);
+        assertTrue(AutoGammaFilter.estimateGamma(bright) < 1);
+        // The estimated curve maps the mean to mid-gray.
+        assertEquals(128, ChannelLut.gamma(AutoGammaFilter.estimateGamma(dark)).map(0x20), 1);
+    }
+}
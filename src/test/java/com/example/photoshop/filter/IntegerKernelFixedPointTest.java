@@ -0,0 +1,46 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.FixedPoint;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that convolutions with integer kernels give identical pixels with and without fixed-point mode, since
+ * their sums are exact either way.
+ */
+class IntegerKernelFixedPointTest {
+    private final boolean wasEnabled = FixedPoint.isEnabled();
+
+    @AfterEach
+    void restoreMode() {
+        FixedPoint.setEnabled(wasEnabled);
+    }
+
+    @Test
+    void laplacianIsIdenticalInBothModes() {
+        for (ConvolutionFilter.OutputMode mode : ConvolutionFilter.OutputMode.values()) {
+            assertIdentical(new LaplacianFilter(mode));
+        }
+    }
+
+    @Test
+    void sharpenIsIdenticalInBothModes() {
+        assertIdentical(new SharpenFilter());
+    }
+
+    private static void assertIdentical(ConvolutionFilter filter) {
+        assertTrue(filter.getKernel().isInteger());
+        ArgbRaster source = TestRasters.noise(173, 119, 7);
+        ChannelLut gamma = ChannelLut.gamma(0.7);
+        FixedPoint.setEnabled(false);
+        ArgbRaster exact = filter.applyFilter(source, gamma, ChannelLut.identity());
+        FixedPoint.setEnabled(true);
+        ArgbRaster fixed = filter.applyFilter(source, gamma, ChannelLut.identity());
+        TestRasters.assertSamePixels(exact, fixed);
+    }
+}
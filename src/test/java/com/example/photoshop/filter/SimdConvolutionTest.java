@@ -0,0 +1,57 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.FixedPoint;
+import com.example.photoshop.raster.Simd;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the vector convolution kernels give the same pixels as the scalar loops. Runs only when the JVM
+ * has the vector module, which the build adds.
+ */
+class SimdConvolutionTest {
+    // A width that is not a multiple of any vector length, so the tail loops run too.
+    private static final ArgbRaster SOURCE = TestRasters.noise(157, 61, 12);
+
+    private final boolean simdWasEnabled = Simd.isEnabled();
+    private final boolean fixedPointWasEnabled = FixedPoint.isEnabled();
+
+    @BeforeEach
+    void requireVectorModule() {
+        assumeTrue(Simd.isAvailable(), "jdk.incubator.vector is not present");
+        // Integer kernels would otherwise take the fixed-point loop and never reach the vector one.
+        FixedPoint.setEnabled(false);
+    }
+
+    @AfterEach
+    void restoreModes() {
+        Simd.setEnabled(simdWasEnabled);
+        FixedPoint.setEnabled(fixedPointWasEnabled);
+    }
+
+    @Test
+    void directKernelsMatchScalarLoops() {
+        assertSameWithAndWithoutSimd(new LaplacianFilter());
+        assertSameWithAndWithoutSimd(new SharpenFilter());
+    }
+
+    @Test
+    void separableKernelMatchesScalarLoops() {
+        assertSameWithAndWithoutSimd(new GaussianBlurFilter(2.5));
+    }
+
+    private static void assertSameWithAndWithoutSimd(ConvolutionFilter filter) {
+        ChannelLut gamma = ChannelLut.gamma(1.4);
+        Simd.setEnabled(false);
+        ArgbRaster scalar = filter.applyFilter(SOURCE, gamma, ChannelLut.identity());
+        Simd.setEnabled(true);
+        ArgbRaster vector = filter.applyFilter(SOURCE, gamma, ChannelLut.identity());
+        TestRasters.assertSamePixels(scalar, vector);
+    }
+}
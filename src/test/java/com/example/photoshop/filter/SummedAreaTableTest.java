@@ -0,0 +1,130 @@
+package com.example.photoshop.filter;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks summed-area table queries against sums taken pixel by pixel, and the window filters built on the table
+ * against direct means and convolutions.
+ */
+class SummedAreaTableTest {
+
+    @Test
+    void everyRectangleSumsLikeItsPixels() {
+        ArgbRaster source = TestRasters.noise(13, 9, 23);
+        SummedAreaTable table = new SummedAreaTable(source);
+        // Every rectangle, including empty ones and those along the borders.
+        for (int y0 = 0; y0 <= 9; y0++) {
+            for (int y1 = y0; y1 <= 9; y1++) {
+                for (int x0 = 0; x0 <= 13; x0++) {
+                    for (int x1 = x0; x1 <= 13; x1++) {
+                        for (int channel = 0; channel < 3; channel++) {
+                            assertEquals(directSum(source, channel, x0, y0, x1, y1),
+                                    table.sum(channel, x0, y0, x1, y1));
+                        }
+                    }
+                }
+            }
+        }
+        table.release();
+    }
+
+    @Test
+    void singlePixelAndSingleRowImagesSum() {
+        ArgbRaster pixel = TestRasters.filled(1, 1, 0xFF102030);
+        SummedAreaTable single = new SummedAreaTable(pixel);
+        assertEquals(0x10, single.sum(0, 0, 0, 1, 1));
+        assertEquals(0x30, single.sum(2, 0, 0, 1, 1));
+        assertEquals(0, single.sum(1, 0, 0, 0, 1));
+
+        ArgbRaster column = TestRasters.noise(1, 40, 24);
+        SummedAreaTable columnTable = new SummedAreaTable(column);
+        ArgbRaster row = TestRasters.noise(40, 1, 25);
+        SummedAreaTable rowTable = new SummedAreaTable(row);
+        for (int start = 0; start < 40; start += 7) {
+            int end = Math.min(start + 11, 40);
+            assertEquals(directSum(column, 1, 0, start, 1, end), columnTable.sum(1, 0, start, 1, end));
+            assertEquals(directSum(row, 1, start, 0, end, 1), rowTable.sum(1, start, 0, end, 1));
+        }
+    }
+
+    @Test
+    void varianceMatchesDirectVariance() {
+        ArgbRaster source = TestRasters.noise(20, 20, 26);
+        SummedAreaTable table = new SummedAreaTable(source, ChannelLut.gamma(1.7), true);
+        int[] lut = ChannelLut.gamma(1.7).toIntTable();
+        double sum = 0;
+        double squares = 0;
+        for (int y = 3; y < 15; y++) {
+            for (int x = 5; x < 12; x++) {
+                int sample = lut[ArgbRaster.blue(source.getArgb(x, y))];
+                sum += sample;
+                squares += (double) sample * sample;
+            }
+        }
+        double mean = sum / 84;
+        assertEquals(mean, table.mean(2, 5, 3, 12, 15), 1e-9);
+        assertEquals(squares / 84 - mean * mean, table.variance(2, 5, 3, 12, 15), 1e-6);
+        assertThrows(IllegalStateException.class, () -> new SummedAreaTable(source).variance(0, 0, 0, 1, 1));
+    }
+
+    @Test
+    void rectanglesOutsideTheTableAreRejected() {
+        SummedAreaTable table = new SummedAreaTable(TestRasters.noise(4, 4, 27));
+        assertThrows(IllegalArgumentException.class, () -> table.sum(0, 0, 0, 5, 4));
+        assertThrows(IllegalArgumentException.class, () -> table.sum(0, 2, 0, 1, 4));
+        assertThrows(IllegalArgumentException.class, () -> table.sum(3, 0, 0, 1, 1));
+    }
+
+    @Test
+    void meanFilterRoundsClippedWindowMeans() {
+        int radius = 3;
+        ArgbRaster source = TestRasters.noise(31, 17, 28);
+        ArgbRaster blurred = new IntegralBoxBlurFilter(radius).applyFilter(source, ChannelLut.identity(),
+                ChannelLut.identity());
+        for (int y = 0; y < source.height(); y++) {
+            for (int x = 0; x < source.width(); x++) {
+                int x0 = Math.max(x - radius, 0), x1 = Math.min(x + radius + 1, source.width());
+                int y0 = Math.max(y - radius, 0), y1 = Math.min(y + radius + 1, source.height());
+                long area = (long) (x1 - x0) * (y1 - y0);
+                int argb = blurred.getArgb(x, y);
+                assertEquals(ArgbRaster.alpha(source.getArgb(x, y)), ArgbRaster.alpha(argb));
+                assertEquals((directSum(source, 0, x0, y0, x1, y1) + area / 2) / area, ArgbRaster.red(argb));
+                assertEquals((directSum(source, 1, x0, y0, x1, y1) + area / 2) / area, ArgbRaster.green(argb));
+                assertEquals((directSum(source, 2, x0, y0, x1, y1) + area / 2) / area, ArgbRaster.blue(argb));
+            }
+        }
+    }
+
+    @Test
+    void meanFilterMatchesBoxConvolutionAwayFromTheBorder() {
+        int radius = 4;
+        ArgbRaster source = TestRasters.noise(45, 33, 29);
+        ChannelLut gamma = ChannelLut.gamma(0.8);
+        ArgbRaster integral = new IntegralBoxBlurFilter(radius).applyFilter(source, gamma, ChannelLut.identity());
+        ArgbRaster convolved = new ConvolutionFilter(Kernel.box(radius), ConvolutionFilter.OutputMode.CLAMP)
+                .applyFilter(source, gamma, ChannelLut.identity());
+        // The two differ only where the convolution replicates border pixels that the table leaves out, and by
+        // the float rounding of the convolution's weights.
+        int width = source.width() - 2 * radius;
+        int height = source.height() - 2 * radius;
+        TestRasters.assertWithinLevels(convolved.region(radius, radius, width, height),
+                integral.region(radius, radius, width, height), 1);
+    }
+
+    // Sum of one channel over a rectangle, pixel by pixel.
+    private static long directSum(ArgbRaster source, int channel, int x0, int y0, int x1, int y1) {
+        long sum = 0;
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                sum += source.getArgb(x, y) >>> (16 - 8 * channel) & 0xFF;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.photoshop.interploators;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks area-averaging downscales against the exact mean of every output pixel's footprint, both when the
+ * ratio is a power of two and runs as 2x2 halvings and when it is not.
+ */
+class AreaAveragingTest {
+    // Odd sizes, so the output does not cover the last rows and columns.
+    private static final ArgbRaster SOURCE = TestRasters.noise(103, 71, 14);
+
+    @Test
+    void halvingRoundsBlockAveragesToNearest() {
+        ArgbRaster halved = ImageResizer.resize(SOURCE, 0.5, new AreaAveragingInterpolator(0.5));
+        assertEquals(51, halved.width());
+        assertEquals(35, halved.height());
+        for (int y = 0; y < halved.height(); y++) {
+            for (int x = 0; x < halved.width(); x++) {
+                int argb = halved.getArgb(x, y);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int sum = 0;
+                    for (int i = 0; i < 4; i++) {
+                        sum += SOURCE.getArgb(2 * x + i % 2, 2 * y + i / 2) >>> shift & 0xFF;
+                    }
+                    assertEquals((sum + 2) / 4, argb >>> shift & 0xFF, "Pixel (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    void repeatedHalvingStaysWithinOneLevelOfBlockMean() {
+        // Two rounded halvings; each rounding is off by at most half a level.
+        assertNearBoxMean(0.25, 1.0);
+        assertNearBoxMean(0.125, 1.5);
+    }
+
+    @Test
+    void wholeRatioWithoutHalvingsRoundsBoxMean() {
+        assertNearBoxMean(1 / 3.0, 0.5);
+    }
+
+    @Test
+    void fractionalRatioMatchesPerPixelAverage() {
+        double scale = 0.3;
+        AreaAveragingInterpolator interpolator = new AreaAveragingInterpolator(scale);
+        ArgbRaster resized = ImageResizer.resize(SOURCE, scale, interpolator);
+        ArgbRaster expected = new ArgbRaster(resized.width(), resized.height());
+        for (int y = 0; y < expected.height(); y++) {
+            for (int x = 0; x < expected.width(); x++) {
+                expected.setArgb(x, y, interpolator.interpolate(SOURCE, x / scale, y / scale, ChannelLut.identity()));
+            }
+        }
+        TestRasters.assertWithinLevels(expected, resized, 1);
+    }
+
+    // Checks every channel of a downscale by a whole ratio against the mean of its ratio x ratio block.
+    private static void assertNearBoxMean(double scale, double tolerance) {
+        int ratio = (int) Math.round(1 / scale);
+        ArgbRaster resized = ImageResizer.resize(SOURCE, scale, new AreaAveragingInterpolator(scale));
+        assertEquals(SOURCE.width() / ratio, resized.width());
+        for (int y = 0; y < resized.height(); y++) {
+            for (int x = 0; x < resized.width(); x++) {
+                for (int shift = 0; shift < 32; shift += 8) {
+                    double sum = 0;
+                    for (int by = 0; by < ratio; by++) {
+                        for (int bx = 0; bx < ratio; bx++) {
+                            sum += SOURCE.getArgb(ratio * x + bx, ratio * y + by) >>> shift & 0xFF;
+                        }
+                    }
+                    double mean = sum / (ratio * ratio);
+                    int actual = resized.getArgb(x, y) >>> shift & 0xFF;
+                    assertTrue(Math.abs(actual - mean) <= tolerance + 1e-9, "Pixel (" + x + ", " + y + ") is " + actual
+                            + ", block mean " + mean + " at scale " + scale);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.photoshop.interploators;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.FixedPoint;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that bilinear resizing in fixed-point mode stays within one level of the floating-point path.
+ */
+class BilinearFixedPointTest {
+    private final boolean wasEnabled = FixedPoint.isEnabled();
+
+    @AfterEach
+    void restoreMode() {
+        FixedPoint.setEnabled(wasEnabled);
+    }
+
+    @Test
+    void fixedPointStaysWithinOneLevelAtEveryScale() {
+        ArgbRaster source = TestRasters.noise(211, 157, 18);
+        ChannelLut gamma = ChannelLut.gamma(1.8);
+        for (double scale : new double[]{0.3, 0.5, 0.77, 1.0, 1.5, 2.0, 3.3}) {
+            FixedPoint.setEnabled(false);
+            ArgbRaster exact = ImageResizer.resize(source, scale, new BilinearInterpolator(), gamma, ChannelLut.identity());
+            FixedPoint.setEnabled(true);
+            ArgbRaster fixed = ImageResizer.resize(source, scale, new BilinearInterpolator(), gamma, ChannelLut.identity());
+            TestRasters.assertWithinLevels(exact, fixed, 1);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.photoshop.interploators;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.ChannelLut;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that row-by-row resizing through {@link ResamplingTable} gives exactly the pixels of the per-pixel
+ * interpolator sampling the same positions.
+ */
+class SeparableResizeTest {
+    private static final ArgbRaster SOURCE = TestRasters.noise(53, 37, 13);
+
+    @Test
+    void bicubicTablesMatchPerPixelInterpolation() {
+        assertTablesMatchPerPixel(new BicubicInterpolator(), 2.3);
+        assertTablesMatchPerPixel(new BicubicInterpolator(), 0.7);
+    }
+
+    @Test
+    void lanczosTablesMatchPerPixelInterpolation() {
+        assertTablesMatchPerPixel(new LanczosInterpolator(), 1.6);
+        assertTablesMatchPerPixel(new LanczosInterpolator(), 0.55);
+    }
+
+    @Test
+    void tapsNearTheEdgeAreClampedAndWeightsSumToOne() {
+        ResamplingTable table = ResamplingTable.of(new LanczosInterpolator(), 10, 3.0);
+        for (int output = 0; output < 30; output++) {
+            double sum = 0;
+            for (int tap = 0; tap < table.taps(); tap++) {
+                int index = table.index(output, tap);
+                assertEquals(Math.max(0, Math.min(index, 9)), index);
+                sum += table.weight(output, tap);
+            }
+            assertEquals(1, sum, 1e-9, "Weights of output " + output);
+        }
+    }
+
+    @Test
+    void tablesAreSharedBetweenResizes() {
+        SeparableInterpolator bicubic = new BicubicInterpolator();
+        assertSame(ResamplingTable.of(bicubic, 53, 2.3), ResamplingTable.of(bicubic, 53, 2.3));
+    }
+
+    private static void assertTablesMatchPerPixel(Interpolator interpolator, double scale) {
+        ChannelLut gamma = ChannelLut.gamma(1.5);
+        ArgbRaster resized = ImageResizer.resize(SOURCE, scale, interpolator, gamma, ChannelLut.identity());
+        ArgbRaster expected = new ArgbRaster(resized.width(), resized.height());
+        for (int y = 0; y < expected.height(); y++) {
+            for (int x = 0; x < expected.width(); x++) {
+                expected.setArgb(x, y, interpolator.interpolate(SOURCE, x / scale, y / scale, gamma));
+            }
+        }
+        TestRasters.assertSamePixels(expected, resized);
+    }
+}
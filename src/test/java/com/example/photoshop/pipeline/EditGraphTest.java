@@ -0,0 +1,96 @@
+package com.example.photoshop.pipeline;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that the edit graph renders what running the edit from scratch would, while recomputing only what
+ * changed.
+ */
+class EditGraphTest {
+
+    @Test
+    void localEditMatchesFullRender() {
+        PipelineSpec spec = new PipelineSpec(1.4, "Gaussian Blur", "Bicubic", 1.6);
+        EditGraph graph = new EditGraph(TestRasters.noise(96, 71, 21));
+        graph.setSpec(spec);
+        graph.render();
+        // The first edit copies the source and recomputes everything; the second updates only its rectangle.
+        ArgbRaster first = TestRasters.noise(9, 7, 22);
+        ArgbRaster second = TestRasters.noise(12, 5, 23);
+        graph.updateSource(first, 30, 20);
+        graph.render();
+        graph.updateSource(second, 60, 50);
+        ArgbRaster rendered = graph.render();
+        assertEquals(0, graph.getRecomputedNodes());
+        assertEquals(3, graph.getUpdatedRegions());
+
+        ArgbRaster edited = TestRasters.noise(96, 71, 21);
+        paste(first, edited, 30, 20);
+        paste(second, edited, 60, 50);
+        TestRasters.assertSamePixels(spec.apply(edited), rendered);
+    }
+
+    @Test
+    void localEditLeavesCallerImageUntouched() {
+        ArgbRaster image = TestRasters.noise(40, 30, 21);
+        EditGraph graph = new EditGraph(image);
+        graph.updateSource(TestRasters.noise(10, 10, 22), 5, 5);
+        graph.render();
+        TestRasters.assertSamePixels(TestRasters.noise(40, 30, 21), image);
+    }
+
+    @Test
+    void parameterChangeRecomputesOnlyDownstreamNodes() {
+        ArgbRaster image = TestRasters.noise(64, 48, 21);
+        EditGraph graph = new EditGraph(image);
+        graph.setSpec(new PipelineSpec(0.8, "Sharpen", "Bilinear", 1.0));
+        graph.render();
+        PipelineSpec resized = new PipelineSpec(0.8, "Sharpen", "Lanczos", 1.5);
+        graph.setSpec(resized);
+        ArgbRaster rendered = graph.render();
+        assertEquals(1, graph.getRecomputedNodes());
+        TestRasters.assertSamePixels(resized.apply(image), rendered);
+    }
+
+    @Test
+    void unchangedRenderReportsNoChange() {
+        EditGraph graph = new EditGraph(TestRasters.noise(32, 32, 21));
+        graph.setSpec(new PipelineSpec(1.1, "Box Blur", "Bilinear", 1.0));
+        graph.render();
+        assertArrayEquals(new int[] {0, 0, 32, 32}, graph.getLastChange());
+        graph.render();
+        assertNull(graph.getLastChange());
+        assertEquals(0, graph.getRecomputedNodes());
+    }
+
+    @Test
+    void renderedRasterIsNotRecycled() {
+        // Large enough for the buffer pool to keep.
+        ArgbRaster image = TestRasters.noise(128, 96, 21);
+        EditGraph graph = new EditGraph(image);
+        // Without a filter or resize, the render is the gamma node's output passed through.
+        PipelineSpec spec = new PipelineSpec(1.2, PipelineSpec.NO_FILTER, "Bilinear", 1.0);
+        graph.setSpec(spec);
+        ArgbRaster first = graph.render();
+        graph.setSpec(new PipelineSpec(1.5, PipelineSpec.NO_FILTER, "Bilinear", 1.0));
+        graph.render();
+        graph.setSpec(new PipelineSpec(2.0, PipelineSpec.NO_FILTER, "Bilinear", 1.0));
+        graph.render();
+        TestRasters.assertSamePixels(spec.apply(image), first);
+    }
+
+    // Writes a patch into a raster, as EditGraph.updateSource does into its copy of the source.
+    private static void paste(ArgbRaster patch, ArgbRaster target, int x0, int y0) {
+        for (int y = 0; y < patch.height(); y++) {
+            for (int x = 0; x < patch.width(); x++) {
+                target.setArgb(x0 + x, y0 + y, patch.getArgb(x, y));
+            }
+        }
+    }
+}
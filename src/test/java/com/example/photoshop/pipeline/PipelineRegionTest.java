@@ -0,0 +1,40 @@
+package com.example.photoshop.pipeline;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that computing a region of a pipeline's output gives the same pixels as cropping the whole output.
+ */
+class PipelineRegionTest {
+    private static final ArgbRaster SOURCE = TestRasters.noise(117, 89, 11);
+
+    @Test
+    void resizeRegionMatchesCrop() {
+        assertRegionMatchesCrop(new PipelineSpec(1.3, "Sharpen", "Bilinear", 2.2), 37, 51, 190, 122);
+    }
+
+    @Test
+    void filterRegionMatchesCrop() {
+        // A final filter with a halo computes only the region's rows.
+        assertRegionMatchesCrop(new PipelineSpec(0.7, "Gaussian Blur", "Bilinear", 1.0), 5, 40, 88, 71);
+    }
+
+    @Test
+    void measuringFilterRegionMatchesCrop() {
+        // Normalizes by the range of the whole image, so the pass runs in full and is cropped.
+        assertRegionMatchesCrop(new PipelineSpec(1.0, "Laplacian", "Bilinear", 1.0), 0, 0, 64, 33);
+    }
+
+    @Test
+    void emptyPipelineRegionMatchesCrop() {
+        assertRegionMatchesCrop(new PipelineSpec(1.0, PipelineSpec.NO_FILTER, "Bilinear", 1.0), 12, 9, 100, 80);
+    }
+
+    private static void assertRegionMatchesCrop(PipelineSpec spec, int x0, int y0, int x1, int y1) {
+        Pipeline pipeline = spec.toPipeline();
+        ArgbRaster whole = pipeline.run(SOURCE);
+        TestRasters.assertSamePixels(whole.region(x0, y0, x1 - x0, y1 - y0), pipeline.runRegion(SOURCE, x0, y0, x1, y1));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.photoshop.pipeline;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.StripSource;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that streaming a pipeline over strips gives the same image as running it over the whole raster.
+ */
+class PipelineStreamTest {
+    private static final ArgbRaster SOURCE = TestRasters.noise(131, 97, 15);
+    // Rows read from the streamed result at a time; not a divisor of the heights, so the last strip is short.
+    private static final int STRIP_ROWS = 23;
+
+    @Test
+    void filterAndUpscaleMatchRun() {
+        assertStreamMatchesRun(new PipelineSpec(1.6, "Gaussian Blur", "Bicubic", 1.7));
+    }
+
+    @Test
+    void downscaleMatchesRun() {
+        assertStreamMatchesRun(new PipelineSpec(0.8, PipelineSpec.NO_FILTER, "Bilinear", 0.45));
+    }
+
+    @Test
+    void filterMeasuringItsRangeMatchesRun() {
+        // Normalizes by the response range of the whole image, so streaming measures every strip first.
+        assertStreamMatchesRun(new PipelineSpec(1.0, "Laplacian", "Bilinear", 1.0));
+    }
+
+    @Test
+    void stripsMayBeReadOutOfOrder() {
+        Pipeline pipeline = new PipelineSpec(1.2, "Sharpen", "Bilinear", 1.0).toPipeline();
+        ArgbRaster whole = pipeline.run(SOURCE);
+        StripSource streamed = pipeline.stream(StripSource.of(SOURCE));
+        ArgbRaster late = streamed.readRows(60, 70);
+        ArgbRaster early = streamed.readRows(3, 9);
+        TestRasters.assertSamePixels(whole.region(0, 60, whole.width(), 10), late);
+        TestRasters.assertSamePixels(whole.region(0, 3, whole.width(), 6), early);
+    }
+
+    private static void assertStreamMatchesRun(PipelineSpec spec) {
+        Pipeline pipeline = spec.toPipeline();
+        ArgbRaster whole = pipeline.run(SOURCE);
+        StripSource streamed = pipeline.stream(StripSource.of(SOURCE));
+        assertEquals(whole.width(), streamed.width());
+        assertEquals(whole.height(), streamed.height());
+        for (int y0 = 0; y0 < streamed.height(); y0 += STRIP_ROWS) {
+            ArgbRaster strip = streamed.readRows(y0, Math.min(y0 + STRIP_ROWS, streamed.height()));
+            for (int y = 0; y < strip.height(); y++) {
+                assertArrayEquals(TestRasters.row(whole, y0 + y), TestRasters.row(strip, y), "Row " + (y0 + y));
+            }
+        }
+    }
+}
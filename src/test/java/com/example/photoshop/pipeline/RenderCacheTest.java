@@ -0,0 +1,135 @@
+package com.example.photoshop.pipeline;
+
+import com.example.photoshop.raster.ArgbRaster;
+import com.example.photoshop.raster.TestRasters;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that the render cache hits on repeated edits, evicts the least recently used rasters over its budget,
+ * forgets everything when cleared and never stores a result that aliases its source.
+ */
+class RenderCacheTest {
+    private static final ArgbRaster SOURCE = TestRasters.noise(40, 30, 9);
+    // Bytes of one 40x30 result.
+    private static final long RESULT_BYTES = 4L * 40 * 30;
+
+    @Test
+    void repeatedSpecHits() {
+        RenderCache cache = new RenderCache(1 << 20);
+        PipelineSpec spec = new PipelineSpec(1.4, "Box Blur", "Bilinear", 1.5);
+        ArgbRaster first = cache.render(SOURCE, spec);
+        long misses = cache.getMisses();
+        assertSame(first, cache.render(SOURCE, spec));
+        assertEquals(1, cache.getHits());
+        assertEquals(misses, cache.getMisses());
+        TestRasters.assertSamePixels(spec.apply(SOURCE), first);
+    }
+
+    @Test
+    void resizeChangeReusesFilteredIntermediate() {
+        RenderCache cache = new RenderCache(1 << 20);
+        cache.render(SOURCE, new PipelineSpec(1.4, "Sharpen", "Bilinear", 1.5));
+        PipelineSpec smaller = new PipelineSpec(1.4, "Sharpen", "Nearest Neighbor", 0.5);
+        ArgbRaster result = cache.render(SOURCE, smaller);
+        // The result misses; the gamma-and-filter intermediate hits.
+        assertEquals(1, cache.getHits());
+        TestRasters.assertSamePixels(smaller.apply(SOURCE), result);
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedOverBudget() {
+        RenderCache cache = new RenderCache(2 * RESULT_BYTES);
+        PipelineSpec a = gamma(1.1);
+        PipelineSpec b = gamma(1.2);
+        ArgbRaster resultA = cache.render(SOURCE, a);
+        cache.render(SOURCE, b);
+        assertEquals(2 * RESULT_BYTES, cache.getBytesUsed());
+        // Touching a makes b the least recently used, so adding c evicts b.
+        cache.render(SOURCE, a);
+        cache.render(SOURCE, gamma(1.3));
+        assertEquals(2 * RESULT_BYTES, cache.getBytesUsed());
+        long hits = cache.getHits();
+        assertSame(resultA, cache.render(SOURCE, a));
+        assertEquals(hits + 1, cache.getHits());
+        cache.render(SOURCE, b);
+        assertEquals(hits + 1, cache.getHits());
+    }
+
+    @Test
+    void rasterLargerThanBudgetIsNotStored() {
+        RenderCache cache = new RenderCache(RESULT_BYTES - 1);
+        cache.render(SOURCE, gamma(1.1));
+        cache.render(SOURCE, gamma(1.1));
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getBytesUsed());
+    }
+
+    @Test
+    void clearDropsEntriesAndCounters() {
+        RenderCache cache = new RenderCache(1 << 20);
+        ArgbRaster first = cache.render(SOURCE, gamma(0.8));
+        cache.render(SOURCE, gamma(0.8));
+        cache.clear();
+        assertEquals(0, cache.getBytesUsed());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertNotSame(first, cache.render(SOURCE, gamma(0.8)));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void regionsAreCachedOnTheirOwn() {
+        RenderCache cache = new RenderCache(1 << 20);
+        PipelineSpec spec = new PipelineSpec(0.9, "Gaussian Blur", "Bilinear", 2.0);
+        ArgbRaster region = cache.renderRegion(SOURCE, spec, 16, 8, 48, 40);
+        assertSame(region, cache.renderRegion(SOURCE, spec, 16, 8, 48, 40));
+        TestRasters.assertSamePixels(spec.apply(SOURCE).region(16, 8, 32, 32), region);
+    }
+
+    @Test
+    void resultsSharingTheSourcePixelsAreNotStored() {
+        RenderCache cache = new RenderCache(1 << 20);
+        // The identity edit runs no pass at all, so its result is the source itself.
+        assertSame(SOURCE, cache.render(SOURCE, gamma(1.0)));
+        ArgbRaster region = cache.renderRegion(SOURCE, gamma(1.0), 4, 4, 20, 12);
+        TestRasters.assertSamePixels(SOURCE.region(4, 4, 16, 8), region);
+        assertEquals(0, cache.getBytesUsed());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void equalSourcesAreToldApartByIdentity() {
+        RenderCache cache = new RenderCache(1 << 20);
+        ArgbRaster copy = TestRasters.noise(40, 30, 9);
+        ArgbRaster first = cache.render(SOURCE, gamma(1.6));
+        assertNotSame(first, cache.render(copy, gamma(1.6)));
+        assertEquals(0, cache.getHits());
+        assertSame(first, cache.render(SOURCE, gamma(1.6)));
+    }
+
+    @Test
+    void resultsRenderedElsewhereAreFoundByTheirEdit() {
+        RenderCache cache = new RenderCache(1 << 20);
+        PipelineSpec spec = new PipelineSpec(1.2, "Sharpen", "Bilinear", 0.5);
+        assertNull(cache.getResult(SOURCE, spec));
+        EditGraph graph = new EditGraph(SOURCE);
+        graph.setSpec(spec);
+        ArgbRaster rendered = graph.render();
+        cache.putResult(SOURCE, spec, rendered);
+        assertSame(rendered, cache.getResult(SOURCE, spec));
+        assertSame(rendered, cache.render(SOURCE, spec));
+        // The identity edit passes the source through, which is not stored.
+        cache.putResult(SOURCE, gamma(1.0), SOURCE);
+        assertNull(cache.getResult(SOURCE, gamma(1.0)));
+    }
+
+    // An edit with only gamma correction, whose result is a single lookup-table pass.
+    private static PipelineSpec gamma(double gamma) {
+        return new PipelineSpec(gamma, PipelineSpec.NO_FILTER, "Bilinear", 1.0);
+    }
+}
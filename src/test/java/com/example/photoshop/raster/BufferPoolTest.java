@@ -0,0 +1,92 @@
+package com.example.photoshop.raster;
+
+import com.example.photoshop.pipeline.Pipeline;
+import com.example.photoshop.pipeline.PipelineSpec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the size classes, reuse and budget of the buffer pool, and that results handed out by pipelines are never
+ * recycled under their callers.
+ */
+class BufferPoolTest {
+
+    @Test
+    void borrowedArraysAreAtMostAnEighthLarger() {
+        BufferPool pool = new BufferPool(1 << 20);
+        for (int length : new int[] {4097, 5000, 65536, 65537, 100_003}) {
+            int[] ints = pool.ints(length);
+            float[] floats = pool.floats(length);
+            assertTrue(ints.length >= length && ints.length <= length + length / 8, "Length " + ints.length);
+            assertEquals(ints.length, floats.length);
+        }
+        // Small requests are exact.
+        assertEquals(100, pool.ints(100).length);
+    }
+
+    @Test
+    void releasedArrayServesLaterRequestsOfItsClass() {
+        BufferPool pool = new BufferPool(1 << 20);
+        int[] array = pool.ints(5000);
+        pool.release(array);
+        assertEquals(4L * array.length, pool.getPooledBytes());
+        assertSame(array, pool.ints(array.length - 10));
+        assertEquals(1, pool.getHits());
+        assertEquals(0, pool.getPooledBytes());
+        // Nothing is left to reuse, so the next request allocates.
+        assertNotSame(array, pool.ints(5000));
+        assertEquals(2, pool.getMisses());
+    }
+
+    @Test
+    void arrayIsNeverHandedOutTwice() {
+        BufferPool pool = new BufferPool(1 << 20);
+        float[] array = pool.floats(8192);
+        pool.release(array);
+        float[] first = pool.floats(8192);
+        float[] second = pool.floats(8192);
+        assertSame(array, first);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    void arraysBeyondTheBudgetAreDropped() {
+        BufferPool pool = new BufferPool(4L * 10_000);
+        pool.release(new int[6000]);
+        pool.release(new int[6000]);
+        assertEquals(4L * 6000, pool.getPooledBytes());
+        pool.clear();
+        assertEquals(0, pool.getPooledBytes());
+
+        BufferPool disabled = new BufferPool(0);
+        int[] array = disabled.ints(5000);
+        disabled.release(array);
+        assertNotSame(array, disabled.ints(5000));
+        assertEquals(0, disabled.getPooledBytes());
+    }
+
+    @Test
+    void smallArraysAreNotPooled() {
+        BufferPool pool = new BufferPool(1 << 20);
+        pool.release(new int[100]);
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    void pipelineResultsAreNotRecycledByLaterRuns() {
+        // Two passes, so the runs release their intermediates to the default pool.
+        Pipeline pipeline = new PipelineSpec(1.6, "Laplacian", "Bicubic", 1.3).toPipeline();
+        ArgbRaster source = TestRasters.noise(120, 90, 22);
+        ArgbRaster first = pipeline.run(source);
+        ArgbRaster expected = pipeline.run(source);
+        for (int i = 0; i < 3; i++) {
+            pipeline.run(TestRasters.noise(120, 90, 23 + i));
+        }
+        assertNotSame(expected.pixels(), first.pixels());
+        TestRasters.assertSamePixels(expected, first);
+    }
+}
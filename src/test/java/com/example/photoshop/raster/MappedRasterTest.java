@@ -0,0 +1,88 @@
+package com.example.photoshop.raster;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that pixels survive a round trip through a mapped raster file, and that files are checked on opening.
+ */
+class MappedRasterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void rowsWrittenAreReadBackAfterReopening() throws IOException {
+        Path file = directory.resolve("noise.argb");
+        ArgbRaster pixels = TestRasters.noise(37, 29, 16);
+        try (MappedRaster raster = MappedRaster.create(file, 37, 29)) {
+            // Written in two uneven parts, the second from a region with a stride wider than the raster.
+            raster.writeRows(0, pixels.region(0, 0, 37, 11));
+            ArgbRaster padded = new ArgbRaster(40, 18);
+            for (int y = 0; y < 18; y++) {
+                for (int x = 0; x < 37; x++) {
+                    padded.setArgb(x, y, pixels.getArgb(x, 11 + y));
+                }
+            }
+            raster.writeRows(11, padded.region(0, 0, 37, 18));
+            raster.force();
+        }
+        try (MappedRaster raster = MappedRaster.open(file, false)) {
+            assertEquals(37, raster.width());
+            assertEquals(29, raster.height());
+            TestRasters.assertSamePixels(pixels, raster.readRows(0, 29));
+            TestRasters.assertSamePixels(pixels.region(0, 5, 37, 7), raster.readRows(5, 12));
+        }
+    }
+
+    @Test
+    void copyOfStoresEveryStrip() throws IOException {
+        Path file = directory.resolve("copy.argb");
+        ArgbRaster pixels = TestRasters.noise(23, 41, 17);
+        MappedRaster.copyOf(StripSource.of(pixels), 10, file);
+        assertEquals(16 + 4L * 23 * 41, Files.size(file));
+        try (MappedRaster raster = MappedRaster.open(file, false)) {
+            TestRasters.assertSamePixels(pixels, raster.readRows(0, 41));
+        }
+    }
+
+    @Test
+    void readOnlyRasterRejectsWrites() throws IOException {
+        Path file = directory.resolve("read-only.argb");
+        MappedRaster.copyOf(StripSource.of(TestRasters.noise(8, 8, 1)), 8, file);
+        try (MappedRaster raster = MappedRaster.open(file, false)) {
+            assertThrows(IllegalStateException.class, () -> raster.writeRows(0, TestRasters.noise(8, 1, 2)));
+        }
+    }
+
+    @Test
+    void rowsOutsideTheRasterAreRejected() throws IOException {
+        try (MappedRaster raster = MappedRaster.create(directory.resolve("small.argb"), 4, 4)) {
+            assertThrows(IllegalArgumentException.class, () -> raster.readRows(2, 5));
+            assertThrows(IllegalArgumentException.class, () -> raster.writeRows(0, TestRasters.noise(5, 1, 3)));
+        }
+    }
+
+    @Test
+    void foreignAndTruncatedFilesAreRejected() throws IOException {
+        Path foreign = directory.resolve("foreign.argb");
+        Files.write(foreign, new byte[64]);
+        assertThrows(IOException.class, () -> MappedRaster.open(foreign, false));
+
+        Path truncated = directory.resolve("truncated.argb");
+        MappedRaster.copyOf(StripSource.of(TestRasters.noise(16, 16, 4)), 16, truncated);
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> MappedRaster.open(truncated, false));
+        // The rejected files were closed, so they can be removed.
+        Files.delete(foreign);
+        Files.delete(truncated);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.photoshop.raster;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Rasters and pixel assertions shared by the tests.
+ */
+public final class TestRasters {
+
+    private TestRasters() {
+    }
+
+    /**
+     * Creates a raster of random pixels with varying alpha, the worst case for rounding differences.
+     *
+     * @param width Width in pixels.
+     * @param height Height in pixels.
+     * @param seed Seed of the pixels; the same seed gives the same raster.
+     * @return New compact raster.
+     */
+    public static ArgbRaster noise(int width, int height, long seed) {
+        Random random = new Random(seed);
+        ArgbRaster raster = new ArgbRaster(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setArgb(x, y, random.nextInt());
+            }
+        }
+        return raster;
+    }
+
+    /**
+     * Creates a raster of one color.
+     *
+     * @param width Width in pixels.
+     * @param height Height in pixels.
+     * @param argb Color of every pixel.
+     * @return New compact raster.
+     */
+    public static ArgbRaster filled(int width, int height, int argb) {
+        ArgbRaster raster = new ArgbRaster(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setArgb(x, y, argb);
+            }
+        }
+        return raster;
+    }
+
+    /**
+     * Returns one row of a raster's pixels.
+     *
+     * @param raster Raster to read, of any offset and stride.
+     * @param y Row to read.
+     * @return New array of the row's pixels.
+     */
+    public static int[] row(ArgbRaster raster, int y) {
+        int[] row = new int[raster.width()];
+        System.arraycopy(raster.pixels(), raster.rowOffset(y), row, 0, row.length);
+        return row;
+    }
+
+    /**
+     * Asserts that two rasters have the same size and pixels, whatever their offsets and strides.
+     *
+     * @param expected Expected pixels.
+     * @param actual Actual pixels.
+     */
+    public static void assertSamePixels(ArgbRaster expected, ArgbRaster actual) {
+        assertEquals(expected.width(), actual.width(), "Width");
+        assertEquals(expected.height(), actual.height(), "Height");
+        for (int y = 0; y < expected.height(); y++) {
+            assertArrayEquals(row(expected, y), row(actual, y), "Row " + y);
+        }
+    }
+
+    /**
+     * Asserts that two rasters have the same size and that no channel of any pixel differs by more than a
+     * number of levels.
+     *
+     * @param expected Expected pixels.
+     * @param actual Actual pixels.
+     * @param levels Largest difference allowed per channel.
+     */
+    public static void assertWithinLevels(ArgbRaster expected, ArgbRaster actual, int levels) {
+        assertEquals(expected.width(), actual.width(), "Width");
+        assertEquals(expected.height(), actual.height(), "Height");
+        for (int y = 0; y < expected.height(); y++) {
+            for (int x = 0; x < expected.width(); x++) {
+                int a = expected.getArgb(x, y);
+                int b = actual.getArgb(x, y);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int difference = Math.abs((a >>> shift & 0xFF) - (b >>> shift & 0xFF));
+                    if (difference > levels) {
+                        fail(String.format("Pixel (%d, %d) is %08x, expected %08x", x, y, b, a));
+                    }
+                }
+            }
+        }
+    }
+}